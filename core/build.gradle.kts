@@ -13,8 +13,16 @@ dependencies {
     implementation(libs.jackson.databind)
     implementation(libs.commons.beanutils)
     implementation(libs.jcip.annotations)
+
+    testImplementation(platform(libs.junit.bom))
+    testImplementation(libs.junit.jupiter)
+    testRuntimeOnly(libs.junit.platform.launcher)
 }
 
 tasks.generateGrammarSource {
     arguments = arguments + listOf("-visitor", "-long-messages")
 }
+
+tasks.test {
+    useJUnitPlatform()
+}
@@ -0,0 +1,333 @@
+package io.github.walkin.purifier;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+import com.google.common.base.Stopwatch;
+import com.google.common.io.ByteStreams;
+import io.github.walkin.purifier.bean.TypeGraph;
+import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.context.NodePurifierContext;
+import io.github.walkin.purifier.context.PurifierContext;
+import io.github.walkin.purifier.context.provider.AbstractPurifierContextProvider;
+import io.github.walkin.purifier.filter.PurifierPropertyFilter;
+import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierParser;
+import io.github.walkin.purifier.view.PropertyView;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Serializes synthetic samples of root types with every shape of filter, until the JIT compiler has compiled the
+ * filtering code, see {@link Purifier#warmUpJit(ObjectMapper, Collection, Collection)}.
+ * <p>
+ * The samples are written with a copy of the mapper whose filter shares the original's introspector but has its own
+ * context provider, so that the filter can be switched between serializations without touching the original.
+ */
+@NotThreadSafe
+final class JitWarmUp {
+
+    private static final int MAX_SAMPLE_DEPTH = 4;
+
+    // names that can be written in a filter expression as they are
+    private static final Pattern PLAIN_NAME = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    private static final OutputStream NULL_OUTPUT = ByteStreams.nullOutputStream();
+
+    private final ObjectMapper mapper;
+
+    private final SwitchingContextProvider contextProvider = new SwitchingContextProvider();
+
+    private final TypeGraph graph;
+
+    private final SerializationConfig config;
+
+    private final Map<Class<?>, String> failedTypes = new LinkedHashMap<>();
+
+    private JitWarmUp(ObjectMapper mapper, PurifierPropertyFilter filter, TypeGraph graph) {
+        PurifierPropertyFilter warmUpFilter = new PurifierPropertyFilter(contextProvider,
+                                                                         filter.getBeanInfoIntrospector());
+
+        this.mapper = mapper.copy();
+        this.mapper.setFilterProvider(new SimpleFilterProvider()
+                                              .addFilter(PurifierPropertyFilter.FILTER_ID, warmUpFilter));
+        this.graph = graph;
+        this.config = mapper.getSerializationConfig();
+    }
+
+    /**
+     * Run the warm-up.
+     *
+     * @param mapper    the mapper, initialized with a {@link PurifierPropertyFilter}
+     * @param filter    its filter
+     * @param rootTypes the types to make samples of
+     * @param filters   the filters to serialize with, in addition to synthetic ones
+     * @return report
+     */
+    static PurifierJitWarmUpReport run(ObjectMapper mapper, PurifierPropertyFilter filter,
+                                       Collection<Class<?>> rootTypes, Collection<String> filters) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        JitWarmUp warmUp = new JitWarmUp(mapper, filter, TypeGraph.of(mapper, rootTypes));
+        Map<Class<?>, Object> samples = warmUp.newSamples(rootTypes);
+        Map<String, List<PurifierNode>> allFilters = warmUp.getFilters(rootTypes, filters);
+
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        long startCompilationTime = monitored ? compiler.getTotalCompilationTime() : 0;
+
+        int rounds = 0;
+        int stableRounds = 0;
+        long serializations = 0;
+
+        while (!samples.isEmpty() && rounds < PurifierConfig.getWarmUpJitMaxRounds()
+                && stopwatch.elapsed(TimeUnit.MILLISECONDS) < PurifierConfig.getWarmUpJitTimeoutMillis()) {
+            long roundCompilationTime = monitored ? compiler.getTotalCompilationTime() : 0;
+
+            for (int i = 0; i < PurifierConfig.getWarmUpJitRoundIterations(); i++) {
+                serializations += warmUp.serialize(samples, allFilters);
+            }
+
+            rounds++;
+
+            // compilation time is only counted in milliseconds, a round that compiled nothing leaves it as it was
+            if (monitored && compiler.getTotalCompilationTime() == roundCompilationTime) {
+                if (++stableRounds >= PurifierConfig.getWarmUpJitStableRounds()) {
+                    break;
+                }
+            } else {
+                stableRounds = 0;
+            }
+        }
+
+        Duration compilationTime = monitored
+                ? Duration.ofMillis(compiler.getTotalCompilationTime() - startCompilationTime)
+                : null;
+
+        return new PurifierJitWarmUpReport(samples.size(), allFilters.size(), rounds, serializations,
+                                           monitored && stableRounds >= PurifierConfig.getWarmUpJitStableRounds(),
+                                           compilationTime, stopwatch.elapsed(), warmUp.failedTypes);
+    }
+
+    // serialize every sample with every filter once, samples that fail are dropped
+    private long serialize(Map<Class<?>, Object> samples, Map<String, List<PurifierNode>> filters) {
+        long serializations = 0;
+
+        for (Iterator<Map.Entry<Class<?>, Object>> it = samples.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Class<?>, Object> sample = it.next();
+
+            try {
+                for (Map.Entry<String, List<PurifierNode>> filter : filters.entrySet()) {
+                    contextProvider.filter = filter.getKey();
+                    contextProvider.nodes = filter.getValue();
+                    mapper.writeValue(NULL_OUTPUT, sample.getValue());
+                    serializations++;
+                }
+            } catch (IOException | RuntimeException e) {
+                failedTypes.put(sample.getKey(), e.getMessage());
+                it.remove();
+            }
+        }
+
+        return serializations;
+    }
+
+    private Map<Class<?>, Object> newSamples(Collection<Class<?>> rootTypes) {
+        Map<Class<?>, Object> samples = new LinkedHashMap<>();
+
+        for (Class<?> rootType : rootTypes) {
+            try {
+                Object sample = newBean(config.constructType(rootType), new HashSet<>(), 0);
+
+                if (sample != null) {
+                    samples.put(rootType, sample);
+                }
+            } catch (IllegalArgumentException e) {
+                failedTypes.put(rootType, e.getMessage());
+            }
+        }
+
+        return samples;
+    }
+
+    // a bean made with its default constructor, with samples in the properties that hold beans
+    private Object newBean(JavaType type, Set<Class<?>> creating, int depth) {
+        Class<?> rawClass = type.getRawClass();
+        Object bean = ClassUtil.createInstance(rawClass, true);
+        creating.add(rawClass);
+
+        BeanDescription description = config.introspect(type);
+
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            AnnotatedMember mutator = property.hasSetter() ? property.getSetter() : property.getField();
+
+            if (mutator == null || !property.couldSerialize()) {
+                continue;
+            }
+
+            Object value = newValue(property.getPrimaryType(), creating, depth + 1);
+
+            if (value != null) {
+                try {
+                    mutator.fixAccess(true);
+                    mutator.setValue(bean, value);
+                } catch (RuntimeException e) {
+                    // left as constructed
+                }
+            }
+        }
+
+        creating.remove(rawClass);
+        return bean;
+    }
+
+    private Object newValue(JavaType type, Set<Class<?>> creating, int depth) {
+        if (type == null || depth > MAX_SAMPLE_DEPTH) {
+            return null;
+        }
+
+        Class<?> rawClass = type.getRawClass();
+
+        if (type.isArrayType()) {
+            Object element = newValue(type.getContentType(), creating, depth);
+            Object array = Array.newInstance(type.getContentType().getRawClass(), element == null ? 0 : 1);
+
+            if (element != null) {
+                Array.set(array, 0, element);
+            }
+
+            return array;
+        }
+
+        if (type.isCollectionLikeType()) {
+            Object element = newValue(type.getContentType(), creating, depth);
+            Collection<Object> collection;
+
+            if (rawClass.isAssignableFrom(ArrayList.class)) {
+                collection = new ArrayList<>();
+            } else if (rawClass.isAssignableFrom(LinkedHashSet.class)) {
+                collection = new LinkedHashSet<>();
+            } else {
+                return null;
+            }
+
+            if (element != null) {
+                collection.add(element);
+            }
+
+            return collection;
+        }
+
+        if (type.isMapLikeType()) {
+            Object value = newValue(type.getContentType(), creating, depth);
+
+            if (value == null || !rawClass.isAssignableFrom(LinkedHashMap.class)
+                    || !type.getKeyType().hasRawClass(String.class)) {
+                return null;
+            }
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("key", value);
+            return map;
+        }
+
+        if (!graph.getBeanClasses().contains(rawClass) || creating.contains(rawClass)) {
+            return null;
+        }
+
+        try {
+            return newBean(type, creating, depth);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // the given filters, then a filter of each shape per root type: exact, wildcard, negated, nested, dotted and views
+    private Map<String, List<PurifierNode>> getFilters(Collection<Class<?>> rootTypes, Collection<String> filters) {
+        Set<String> allFilters = new LinkedHashSet<>(filters);
+
+        for (Class<?> rootType : rootTypes) {
+            for (Map.Entry<String, Set<Class<?>>> property : graph.getProperties(rootType).entrySet()) {
+                String name = property.getKey();
+
+                if (!PLAIN_NAME.matcher(name).matches()) {
+                    continue;
+                }
+
+                allFilters.add(name);
+                allFilters.add(name.charAt(0) + "*");
+                allFilters.add("-" + name);
+
+                for (Class<?> valueClass : property.getValue()) {
+                    for (String nestedName : graph.getProperties(valueClass).keySet()) {
+                        if (PLAIN_NAME.matcher(nestedName).matches()) {
+                            allFilters.add(name + "{" + nestedName + "}");
+                            allFilters.add(name + "." + nestedName);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        allFilters.add(PropertyView.BASE_VIEW);
+        allFilters.add(PropertyView.FULL_VIEW);
+        allFilters.add("*");
+        allFilters.add("**");
+
+        // invalid filters would fail every serialization, and the synthetic ones stay out of the parser's caches
+        PurifierParser parser = new PurifierParser();
+        Map<String, List<PurifierNode>> validFilters = new LinkedHashMap<>();
+
+        for (String filter : allFilters) {
+            try {
+                validFilters.put(filter, parser.parseUncached(filter));
+            } catch (RuntimeException e) {
+                // skipped
+            }
+        }
+
+        return validFilters;
+    }
+
+    // the base provider's hooks, so that the warm-up filter prunes like the original does
+    private static class SwitchingContextProvider extends AbstractPurifierContextProvider {
+
+        private String filter;
+
+        private List<PurifierNode> nodes;
+
+        @Override
+        public PurifierContext getContext(Class beanClass) {
+            return new NodePurifierContext(beanClass, nodes, filter);
+        }
+
+        @Override
+        protected String getFilter(Class beanClass) {
+            return filter;
+        }
+
+    }
+
+}
@@ -1,14 +1,35 @@
 package io.github.walkin.purifier;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BasicSerializerFactory;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
 import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.SerializerFactory;
 import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.google.common.base.Stopwatch;
+import io.github.walkin.purifier.bean.BeanInfoIntrospector;
+import io.github.walkin.purifier.bean.TypeGraph;
+import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.context.provider.NodePurifierContextProvider;
 import io.github.walkin.purifier.context.provider.PurifierContextProvider;
 import io.github.walkin.purifier.context.provider.SimplePurifierContextProvider;
+import io.github.walkin.purifier.filter.PurifierBeanSerializerModifier;
 import io.github.walkin.purifier.filter.PurifierPropertyFilter;
 import io.github.walkin.purifier.filter.PurifierPropertyFilterMixin;
+import io.github.walkin.purifier.parser.FilterBuilder;
+import io.github.walkin.purifier.parser.PurifierNode;
 import io.github.walkin.purifier.parser.PurifierParser;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Provides various way of registering a {@link PurifierPropertyFilter} with a Jackson ObjectMapper.
  */
@@ -29,6 +50,19 @@ public class Purifier {
         return init(mapper, new SimplePurifierContextProvider(new PurifierParser(), filter));
     }
 
+    /**
+     * Initialize a @{@link PurifierPropertyFilter} with static nodes, eg. built with a {@link FilterBuilder}, instead
+     * of an expression to parse.
+     *
+     * @param mapper the Jackson Object Mapper
+     * @param nodes  the nodes
+     * @return object mapper, mainly for convenience
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static ObjectMapper init(ObjectMapper mapper, List<PurifierNode> nodes) throws IllegalStateException {
+        return init(mapper, new NodePurifierContextProvider(nodes));
+    }
+
     /**
      * Initialize a @{@link PurifierPropertyFilter} with a static filter expression.
      *
@@ -50,7 +84,7 @@ public class Purifier {
      */
     public static ObjectMapper init(ObjectMapper mapper,
                                     PurifierContextProvider contextProvider) throws IllegalStateException {
-        return init(mapper, new PurifierPropertyFilter(contextProvider));
+        return init(mapper, newFilter(mapper, contextProvider));
     }
 
     /**
@@ -61,6 +95,15 @@ public class Purifier {
      * @throws IllegalStateException if the filter was unable to be registered
      */
     public static void init(Iterable<ObjectMapper> mappers, PurifierContextProvider contextProvider) {
+        // with the jackson introspector, properties depend on the mapper
+        if ("jackson".equals(PurifierConfig.getPropertyIntrospector())) {
+            for (ObjectMapper mapper : mappers) {
+                init(mapper, contextProvider);
+            }
+
+            return;
+        }
+
         init(mappers, new PurifierPropertyFilter(contextProvider));
     }
 
@@ -72,8 +115,72 @@ public class Purifier {
      * @return object mapper, mainly for convenience
      * @throws IllegalStateException if the filter was unable to be registered
      */
-    @SuppressWarnings("deprecation")
     public static ObjectMapper init(ObjectMapper mapper, PurifierPropertyFilter filter) throws IllegalStateException {
+        addFilter(mapper, filter);
+        mapper.addMixIn(Object.class, PurifierPropertyFilterMixin.class);
+
+        if (PurifierConfig.isFilterPruneSerializers() && !hasSerializerModifier(mapper)) {
+            mapper.setSerializerFactory(mapper.getSerializerFactory()
+                                                .withSerializerModifier(new PurifierBeanSerializerModifier()));
+        }
+
+        return mapper;
+    }
+
+    /**
+     * Initialize a @{@link PurifierPropertyFilter} with a specific context provider, applied only to the types in
+     * the scope of a module.
+     *
+     * @param mapper          the Jackson Object Mapper
+     * @param contextProvider the context provider to use
+     * @param module          the module scoping the filter
+     * @return object mapper, mainly for convenience
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static ObjectMapper init(ObjectMapper mapper, PurifierContextProvider contextProvider,
+                                    PurifierModule module) throws IllegalStateException {
+        return init(mapper, newFilter(mapper, contextProvider), module);
+    }
+
+    /**
+     * Initialize a @{@link PurifierPropertyFilter} with a specific property filter, applied only to the types in the
+     * scope of a module.
+     *
+     * @param mapper the Jackson Object Mapper
+     * @param filter the property filter
+     * @param module the module scoping the filter
+     * @return object mapper, mainly for convenience
+     * @throws IllegalStateException if the filter was unable to be registered
+     */
+    public static ObjectMapper init(ObjectMapper mapper, PurifierPropertyFilter filter,
+                                    PurifierModule module) throws IllegalStateException {
+        addFilter(mapper, filter);
+        mapper.registerModule(module);
+        return mapper;
+    }
+
+    // so that initializing a mapper again, or along with a module, doesn't stack modifiers
+    static boolean hasSerializerModifier(ObjectMapper mapper) {
+        SerializerFactory factory = mapper.getSerializerFactory();
+
+        if (factory instanceof BasicSerializerFactory) {
+            for (BeanSerializerModifier modifier : ((BasicSerializerFactory) factory).getFactoryConfig()
+                                                                                     .serializerModifiers()) {
+                if (modifier instanceof PurifierBeanSerializerModifier) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static PurifierPropertyFilter newFilter(ObjectMapper mapper, PurifierContextProvider contextProvider) {
+        return new PurifierPropertyFilter(contextProvider, BeanInfoIntrospector.create(mapper));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void addFilter(ObjectMapper mapper, PurifierPropertyFilter filter) throws IllegalStateException {
         FilterProvider filterProvider = mapper.getSerializationConfig().getFilterProvider();
         SimpleFilterProvider simpleFilterProvider;
 
@@ -90,9 +197,6 @@ public class Purifier {
         }
 
         simpleFilterProvider.addFilter(PurifierPropertyFilter.FILTER_ID, filter);
-        mapper.addMixIn(Object.class, PurifierPropertyFilterMixin.class);
-
-        return mapper;
     }
 
     /**
@@ -108,4 +212,121 @@ public class Purifier {
         }
     }
 
+    /**
+     * Warm up a mapper initialized with a {@link PurifierPropertyFilter}, so that the first requests after startup
+     * don't run against cold caches.  From the root types, it walks the properties the mapper serializes, introspects
+     * the bean classes reachable from them in parallel, builds the mapper's serializers for the root types, parses
+     * the filters and compiles their plans for each root type.
+     * <p>
+     * Failures don't stop the warm-up, they are in the report.
+     *
+     * @param mapper    the Jackson Object Mapper, already initialized
+     * @param rootTypes the types of the top-level beans, including the subtypes of polymorphic properties
+     * @param filters   the filter expressions expected to be used
+     * @return report
+     * @throws IllegalStateException if no filter is registered with the mapper
+     */
+    public static PurifierWarmUpReport warmUp(ObjectMapper mapper, Collection<Class<?>> rootTypes,
+                                              Collection<String> filters) throws IllegalStateException {
+        PurifierPropertyFilter filter = findFilter(mapper);
+        Stopwatch totalStopwatch = Stopwatch.createStarted();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        TypeGraph graph = TypeGraph.of(mapper, rootTypes);
+        Duration typeGraphTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        BeanInfoIntrospector introspector = filter.getBeanInfoIntrospector();
+        graph.getBeanClasses().parallelStream().forEach(introspector::introspect);
+        Duration introspectionTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        SerializerProvider provider = mapper.getSerializerProviderInstance();
+        Map<Class<?>, String> failedTypes = new LinkedHashMap<>();
+
+        for (Class<?> rootType : rootTypes) {
+            try {
+                provider.findValueSerializer(rootType);
+            } catch (JsonMappingException e) {
+                failedTypes.put(rootType, e.getOriginalMessage());
+            }
+        }
+
+        Duration serializerTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        PurifierParser parser = new PurifierParser();
+        List<List<PurifierNode>> parsedFilters = new ArrayList<>();
+        Map<String, String> failedFilters = new LinkedHashMap<>();
+
+        for (String filterExpression : filters) {
+            try {
+                parsedFilters.add(parser.parse(filterExpression));
+            } catch (RuntimeException e) {
+                failedFilters.put(filterExpression, e.getMessage());
+            }
+        }
+
+        Duration parseTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        int decisionCount = 0;
+
+        for (List<PurifierNode> nodes : parsedFilters) {
+            for (Class<?> rootType : rootTypes) {
+                decisionCount += filter.precompile(nodes, rootType, graph);
+            }
+        }
+
+        Duration planTime = stopwatch.elapsed();
+
+        return new PurifierWarmUpReport(graph.getBeanClasses().size(), parsedFilters.size(), decisionCount,
+                                        failedTypes, failedFilters, typeGraphTime, introspectionTime, serializerTime,
+                                        parseTime, planTime, totalStopwatch.elapsed());
+    }
+
+    /**
+     * Warm up the JIT compiler for a mapper initialized with a {@link PurifierPropertyFilter}, so that the first
+     * requests after startup don't run interpreted code.  Meant to be called before the application reports itself
+     * ready, after {@link #warmUp(ObjectMapper, Collection, Collection)} has filled the caches.
+     * <p>
+     * Samples of the root types are made with their default constructors, with samples of the beans, collections and
+     * maps their properties hold, and serialized through the filter in rounds, with the given filters and synthetic
+     * ones of every shape: exact, wildcard, negated, nested, dotted and views.  The warm-up stops when
+     * {@link PurifierConfig#getWarmUpJitStableRounds()} rounds in a row don't compile anything, or after
+     * {@link PurifierConfig#getWarmUpJitMaxRounds()} rounds or {@link PurifierConfig#getWarmUpJitTimeoutMillis()}.
+     * <p>
+     * The samples are written to no output with a copy of the mapper and a filter of its own, so the mapper's context
+     * provider isn't called and its filter's plans and tiers are left as they are.  The shared caches do fill up.
+     *
+     * @param mapper    the Jackson Object Mapper, already initialized
+     * @param rootTypes the types of the top-level beans, with default constructors
+     * @param filters   the filter expressions expected to be used
+     * @return report
+     * @throws IllegalStateException if no filter is registered with the mapper
+     */
+    public static PurifierJitWarmUpReport warmUpJit(ObjectMapper mapper, Collection<Class<?>> rootTypes,
+                                                    Collection<String> filters) throws IllegalStateException {
+        return JitWarmUp.run(mapper, findFilter(mapper), rootTypes, filters);
+    }
+
+    static PurifierPropertyFilter findFilter(ObjectMapper mapper) throws IllegalStateException {
+        FilterProvider filterProvider = mapper.getSerializationConfig().getFilterProvider();
+        PropertyFilter filter = null;
+
+        if (filterProvider != null) {
+            try {
+                filter = filterProvider.findPropertyFilter(PurifierPropertyFilter.FILTER_ID, null);
+            } catch (IllegalArgumentException e) {
+                // unknown id
+            }
+        }
+
+        if (!(filter instanceof PurifierPropertyFilter)) {
+            throw new IllegalStateException("No squiggly filter registered with the mapper, initialize it first");
+        }
+
+        return (PurifierPropertyFilter) filter;
+    }
+
 }
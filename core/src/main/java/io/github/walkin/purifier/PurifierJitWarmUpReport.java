@@ -0,0 +1,124 @@
+package io.github.walkin.purifier;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What {@link Purifier#warmUpJit(com.fasterxml.jackson.databind.ObjectMapper, java.util.Collection, java.util.Collection)}
+ * did and whether the JIT compiler settled.
+ */
+@ThreadSafe
+public final class PurifierJitWarmUpReport {
+
+    private final int sampleCount;
+
+    private final int filterCount;
+
+    private final int rounds;
+
+    private final long serializations;
+
+    private final boolean stable;
+
+    private final Duration compilationTime;
+
+    private final Duration totalTime;
+
+    private final Map<Class<?>, String> failedTypes;
+
+    PurifierJitWarmUpReport(int sampleCount, int filterCount, int rounds, long serializations, boolean stable,
+                            Duration compilationTime, Duration totalTime, Map<Class<?>, String> failedTypes) {
+        this.sampleCount = sampleCount;
+        this.filterCount = filterCount;
+        this.rounds = rounds;
+        this.serializations = serializations;
+        this.stable = stable;
+        this.compilationTime = compilationTime;
+        this.totalTime = totalTime;
+        this.failedTypes = Collections.unmodifiableMap(failedTypes);
+    }
+
+    /**
+     * Get the number of synthetic samples that were serialized.
+     *
+     * @return count
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Get the number of filters the samples were serialized with, the given ones and the synthetic ones.
+     *
+     * @return count
+     */
+    public int getFilterCount() {
+        return filterCount;
+    }
+
+    /**
+     * Get the number of rounds run.
+     *
+     * @return rounds
+     */
+    public int getRounds() {
+        return rounds;
+    }
+
+    /**
+     * Get the number of serializations run.
+     *
+     * @return count
+     */
+    public long getSerializations() {
+        return serializations;
+    }
+
+    /**
+     * Determines whether the warm-up stopped because the JIT compiler settled, rather than because it ran out of
+     * rounds or time.
+     *
+     * @return true if settled
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    /**
+     * Get the time the JIT compiler spent compiling during the warm-up, in all threads.
+     *
+     * @return time or null if the JVM doesn't monitor it
+     */
+    public Duration getCompilationTime() {
+        return compilationTime;
+    }
+
+    /**
+     * Get the time the whole warm-up took.
+     *
+     * @return time
+     */
+    public Duration getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * Get the root types no sample could be made of, or whose sample failed to serialize.
+     *
+     * @return types to error messages
+     */
+    public Map<Class<?>, String> getFailedTypes() {
+        return failedTypes;
+    }
+
+    @Override
+    public String toString() {
+        return "PurifierJitWarmUpReport{sampleCount=" + sampleCount + ", filterCount=" + filterCount + ", rounds="
+                + rounds + ", serializations=" + serializations + ", stable=" + stable + ", compilationTime="
+                + compilationTime + ", totalTime=" + totalTime + ", failedTypes=" + failedTypes.size() + "}";
+    }
+
+}
@@ -0,0 +1,159 @@
+package io.github.walkin.purifier;
+
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.google.common.collect.ImmutableSet;
+import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.filter.PurifierBeanSerializerModifier;
+import io.github.walkin.purifier.filter.PurifierPropertyFilter;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.lang.annotation.Annotation;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Jackson module that applies the {@link PurifierPropertyFilter} to a configured scope of types only, instead of to
+ * every type like the mixin registered by {@link Purifier#init(com.fasterxml.jackson.databind.ObjectMapper,
+ * PurifierPropertyFilter)}.
+ * <p>
+ * A type is in scope if it is in one of the packages (or their sub-packages), extends one of the base types or is
+ * annotated with one of the annotations.  Types out of scope are written by Jackson as usual, whole, including when
+ * they are nested in a filtered bean, so the scope has to cover every type the filters reach into.  That includes
+ * maps: add {@link java.util.Map} as a base type to filter their keys.
+ * <p>
+ * The module only sets the filter id and, if serializers are pruned, registers the
+ * {@link PurifierBeanSerializerModifier}, use
+ * {@link Purifier#init(com.fasterxml.jackson.databind.ObjectMapper, PurifierPropertyFilter, PurifierModule)} to register
+ * the filter itself.  Configure the module before registering it.
+ */
+@NotThreadSafe
+public class PurifierModule extends Module {
+
+    private final Set<String> packageNames = new LinkedHashSet<>();
+
+    private final Set<Class<?>> baseTypes = new LinkedHashSet<>();
+
+    private final Set<Class<? extends Annotation>> annotationTypes = new LinkedHashSet<>();
+
+    /**
+     * Add packages whose types (including the ones of sub-packages) are filtered.
+     *
+     * @param packageNames package names
+     * @return this module
+     */
+    public PurifierModule scopePackages(String... packageNames) {
+        this.packageNames.addAll(Arrays.asList(packageNames));
+        return this;
+    }
+
+    /**
+     * Add base types whose subtypes (and themselves) are filtered.
+     *
+     * @param baseTypes classes or interfaces
+     * @return this module
+     */
+    public PurifierModule scopeTypes(Class<?>... baseTypes) {
+        this.baseTypes.addAll(Arrays.asList(baseTypes));
+        return this;
+    }
+
+    /**
+     * Add annotations whose annotated types are filtered.  Annotations on supertypes and mixins count.
+     *
+     * @param annotationTypes annotation types
+     * @return this module
+     */
+    public PurifierModule scopeAnnotations(Collection<Class<? extends Annotation>> annotationTypes) {
+        this.annotationTypes.addAll(annotationTypes);
+        return this;
+    }
+
+    @Override
+    public String getModuleName() {
+        return "PurifierModule";
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        if (packageNames.isEmpty() && baseTypes.isEmpty() && annotationTypes.isEmpty()) {
+            throw new IllegalStateException("PurifierModule has no scope, add packages, types or annotations");
+        }
+
+        context.insertAnnotationIntrospector(new ScopeIntrospector(packageNames, baseTypes, annotationTypes));
+
+        if (PurifierConfig.isFilterPruneSerializers() && !(context.getOwner() instanceof ObjectMapper
+                && Purifier.hasSerializerModifier(context.getOwner()))) {
+            context.addBeanSerializerModifier(new PurifierBeanSerializerModifier());
+        }
+    }
+
+    // takes precedence over the other introspectors for types in scope, and leaves the rest to them
+    private static class ScopeIntrospector extends NopAnnotationIntrospector {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Set<String> packageNames;
+
+        private final Set<Class<?>> baseTypes;
+
+        private final Set<Class<? extends Annotation>> annotationTypes;
+
+        // copied, so that changing the module afterwards has no effect
+        ScopeIntrospector(Set<String> packageNames, Set<Class<?>> baseTypes,
+                          Set<Class<? extends Annotation>> annotationTypes) {
+            this.packageNames = ImmutableSet.copyOf(packageNames);
+            this.baseTypes = ImmutableSet.copyOf(baseTypes);
+            this.annotationTypes = ImmutableSet.copyOf(annotationTypes);
+        }
+
+        @Override
+        public Object findFilterId(Annotated annotated) {
+            if (annotated instanceof AnnotatedClass && isInScope((AnnotatedClass) annotated)) {
+                return PurifierPropertyFilter.FILTER_ID;
+            }
+
+            return null;
+        }
+
+        private boolean isInScope(AnnotatedClass annotatedClass) {
+            Class<?> type = annotatedClass.getRawType();
+
+            for (Class<?> baseType : baseTypes) {
+                if (baseType.isAssignableFrom(type)) {
+                    return true;
+                }
+            }
+
+            for (Class<? extends Annotation> annotationType : annotationTypes) {
+                if (annotatedClass.hasAnnotation(annotationType)) {
+                    return true;
+                }
+            }
+
+            String typeName = type.getName();
+
+            for (String packageName : packageNames) {
+                if (typeName.length() > packageName.length() && typeName.charAt(packageName.length()) == '.'
+                        && typeName.startsWith(packageName)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,467 @@
+package io.github.walkin.purifier;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.google.common.base.Stopwatch;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import io.github.walkin.purifier.bean.BeanInfoIntrospector;
+import io.github.walkin.purifier.bean.TypeGraph;
+import io.github.walkin.purifier.filter.PurifierPropertyFilter;
+import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierNodes;
+import io.github.walkin.purifier.parser.PurifierParser;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What the purifier learned while running, saved to warm it up again after a restart: the filter expressions in the
+ * parser's cache, the introspected classes and, for each compiled plan, the classes of the top-level beans it was
+ * used for.  Results aren't saved, they are computed again when the snapshot is restored, so a snapshot never changes
+ * what is filtered.
+ * <p>
+ * Classes are saved with a fingerprint of their bytecode and of their superclasses'.  Classes that are gone or that
+ * changed since the snapshot was captured are skipped when it is restored, they warm up on first use as usual.
+ * <p>
+ * Save a snapshot on shutdown with {@link #saveOnShutdown(ObjectMapper, Path)}, or periodically with
+ * {@link #capture(ObjectMapper)} and {@link #save(Path)}, and restore it with {@link #read(Path)} and
+ * {@link #restore(ObjectMapper)} before the application reports ready.
+ */
+@ThreadSafe
+public final class PurifierSnapshot {
+
+    private static final int MAGIC = 0x50555246;
+
+    private static final int VERSION = 1;
+
+    // longest expression DataOutput.writeUTF is sure to take, at 3 bytes per char
+    private static final int MAX_EXPRESSION_LENGTH = 65535 / 3;
+
+    private final List<String> filters;
+
+    private final Map<String, Long> classFingerprints;
+
+    private final Map<String, Set<String>> planRootClasses;
+
+    private PurifierSnapshot(List<String> filters, Map<String, Long> classFingerprints,
+                             Map<String, Set<String>> planRootClasses) {
+        this.filters = Collections.unmodifiableList(filters);
+        this.classFingerprints = Collections.unmodifiableMap(classFingerprints);
+        this.planRootClasses = Collections.unmodifiableMap(planRootClasses);
+    }
+
+    /**
+     * Capture what the purifier of a mapper learned so far.
+     *
+     * @param mapper the Jackson Object Mapper, initialized with a {@link PurifierPropertyFilter}
+     * @return snapshot
+     * @throws IllegalStateException if no filter is registered with the mapper
+     */
+    public static PurifierSnapshot capture(ObjectMapper mapper) throws IllegalStateException {
+        PurifierPropertyFilter filter = Purifier.findFilter(mapper);
+        Map<String, List<PurifierNode>> cachedNodes = PurifierParser.getCachedNodes();
+        Map<List<PurifierNode>, String> expressions = new IdentityHashMap<>();
+        List<String> filters = new ArrayList<>();
+
+        for (Map.Entry<String, List<PurifierNode>> entry : cachedNodes.entrySet()) {
+            if (entry.getKey().length() <= MAX_EXPRESSION_LENGTH) {
+                filters.add(entry.getKey());
+                expressions.put(entry.getValue(), entry.getKey());
+            }
+        }
+
+        Map<String, Long> classFingerprints = new LinkedHashMap<>();
+
+        for (Class beanClass : filter.getBeanInfoIntrospector().getIntrospectedClasses()) {
+            classFingerprints.put(beanClass.getName(), fingerprint(beanClass));
+        }
+
+        Map<String, Set<String>> planRootClasses = new LinkedHashMap<>();
+
+        for (Map.Entry<List<PurifierNode>, Set<Class>> entry : filter.getPlanRootClasses().entrySet()) {
+            // the expression as written, so that the restored plan is keyed by the nodes the parser caches for it
+            String expression = expressions.get(entry.getKey());
+
+            if (expression == null) {
+                expression = PurifierNodes.toFilter(entry.getKey());
+            }
+
+            if (expression.length() > MAX_EXPRESSION_LENGTH || entry.getValue().isEmpty()) {
+                continue;
+            }
+
+            Set<String> rootClassNames = new TreeSet<>();
+
+            for (Class rootClass : entry.getValue()) {
+                rootClassNames.add(rootClass.getName());
+
+                if (!classFingerprints.containsKey(rootClass.getName())) {
+                    classFingerprints.put(rootClass.getName(), fingerprint(rootClass));
+                }
+            }
+
+            planRootClasses.put(expression, rootClassNames);
+        }
+
+        return new PurifierSnapshot(filters, classFingerprints, planRootClasses);
+    }
+
+    /**
+     * Capture a snapshot of what the purifier of a mapper learned and save it when the JVM shuts down.
+     *
+     * @param mapper the Jackson Object Mapper, initialized with a {@link PurifierPropertyFilter}
+     * @param path   file to save to
+     */
+    public static void saveOnShutdown(ObjectMapper mapper, Path path) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                capture(mapper).save(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to save purifier snapshot to " + path, e);
+            }
+        }, "purifier-snapshot"));
+    }
+
+    /**
+     * Read a snapshot saved by {@link #save(Path)}.
+     *
+     * @param path the file
+     * @return snapshot
+     * @throws IOException if the file can't be read, is corrupt or isn't a snapshot of this version
+     */
+    public static PurifierSnapshot read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(path))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a purifier snapshot");
+            }
+
+            int version = in.readInt();
+
+            if (version != VERSION) {
+                throw new IOException("Unsupported purifier snapshot version " + version + " in " + path);
+            }
+
+            int filterCount = in.readInt();
+            List<String> filters = new ArrayList<>(filterCount);
+
+            for (int i = 0; i < filterCount; i++) {
+                filters.add(in.readUTF());
+            }
+
+            int classCount = in.readInt();
+            List<String> classNames = new ArrayList<>(classCount);
+            Map<String, Long> classFingerprints = new LinkedHashMap<>();
+
+            for (int i = 0; i < classCount; i++) {
+                String className = in.readUTF();
+                classNames.add(className);
+                classFingerprints.put(className, in.readLong());
+            }
+
+            int planCount = in.readInt();
+            Map<String, Set<String>> planRootClasses = new LinkedHashMap<>();
+
+            for (int i = 0; i < planCount; i++) {
+                String expression = in.readUTF();
+                int rootCount = in.readInt();
+                Set<String> rootClassNames = new LinkedHashSet<>();
+
+                for (int j = 0; j < rootCount; j++) {
+                    int classIndex = in.readInt();
+
+                    if (classIndex < 0 || classIndex >= classNames.size()) {
+                        throw new IOException("Class index " + classIndex + " out of range in " + path);
+                    }
+
+                    rootClassNames.add(classNames.get(classIndex));
+                }
+
+                planRootClasses.put(expression, rootClassNames);
+            }
+
+            return new PurifierSnapshot(filters, classFingerprints, planRootClasses);
+        }
+    }
+
+    /**
+     * Save the snapshot.  The file is replaced atomically, a reader never sees a partial snapshot.
+     *
+     * @param path the file
+     * @throws IOException if the file can't be written
+     */
+    public void save(Path path) throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        Path tempPath = Files.createTempFile(absolutePath.getParent(), absolutePath.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath))))) {
+                write(out);
+            }
+
+            Files.move(tempPath, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    // classes are written once, plans reference them by index
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(filters.size());
+
+        for (String filter : filters) {
+            out.writeUTF(filter);
+        }
+
+        Map<String, Integer> classIndexes = new LinkedHashMap<>();
+        out.writeInt(classFingerprints.size());
+
+        for (Map.Entry<String, Long> entry : classFingerprints.entrySet()) {
+            classIndexes.put(entry.getKey(), classIndexes.size());
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+
+        out.writeInt(planRootClasses.size());
+
+        for (Map.Entry<String, Set<String>> entry : planRootClasses.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().size());
+
+            for (String rootClassName : entry.getValue()) {
+                out.writeInt(classIndexes.get(rootClassName));
+            }
+        }
+    }
+
+    /**
+     * Warm up the purifier of a mapper with this snapshot, like
+     * {@link Purifier#warmUp(ObjectMapper, java.util.Collection, java.util.Collection)} does with given types and
+     * filters: introspect the classes, build the serializers of the root classes, parse the filters and compile the
+     * plans for the root classes they were used for.
+     * <p>
+     * Classes that changed since the snapshot are in the report's failed types.  Classes that are gone are ignored.
+     *
+     * @param mapper the Jackson Object Mapper, initialized with a {@link PurifierPropertyFilter}
+     * @return report
+     * @throws IllegalStateException if no filter is registered with the mapper
+     */
+    public PurifierWarmUpReport restore(ObjectMapper mapper) throws IllegalStateException {
+        PurifierPropertyFilter filter = Purifier.findFilter(mapper);
+        Stopwatch totalStopwatch = Stopwatch.createStarted();
+        Stopwatch stopwatch = Stopwatch.createStarted();
+
+        Map<String, Class<?>> classes = new LinkedHashMap<>();
+        Map<Class<?>, String> failedTypes = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Long> entry : classFingerprints.entrySet()) {
+            Class<?> type;
+
+            try {
+                type = loadClass(mapper, entry.getKey());
+            } catch (ClassNotFoundException | LinkageError e) {
+                continue;
+            }
+
+            if (fingerprint(type) == entry.getValue()) {
+                classes.put(entry.getKey(), type);
+            } else {
+                failedTypes.put(type, "Changed since the snapshot");
+            }
+        }
+
+        Set<Class<?>> rootTypes = new LinkedHashSet<>();
+
+        for (Set<String> rootClassNames : planRootClasses.values()) {
+            for (String rootClassName : rootClassNames) {
+                Class<?> rootType = classes.get(rootClassName);
+
+                if (rootType != null) {
+                    rootTypes.add(rootType);
+                }
+            }
+        }
+
+        TypeGraph graph = TypeGraph.of(mapper, rootTypes);
+        Duration typeGraphTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        Set<Class<?>> beanClasses = new LinkedHashSet<>(classes.values());
+        beanClasses.addAll(graph.getBeanClasses());
+        BeanInfoIntrospector introspector = filter.getBeanInfoIntrospector();
+        beanClasses.parallelStream().forEach(introspector::introspect);
+        Duration introspectionTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        SerializerProvider provider = mapper.getSerializerProviderInstance();
+
+        for (Class<?> rootType : rootTypes) {
+            try {
+                provider.findValueSerializer(rootType);
+            } catch (JsonMappingException e) {
+                failedTypes.put(rootType, e.getOriginalMessage());
+            }
+        }
+
+        Duration serializerTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        PurifierParser parser = new PurifierParser();
+        Set<String> allFilters = new LinkedHashSet<>(filters);
+        allFilters.addAll(planRootClasses.keySet());
+        Map<String, List<PurifierNode>> parsedFilters = new LinkedHashMap<>();
+        Map<String, String> failedFilters = new LinkedHashMap<>();
+
+        for (String filterExpression : allFilters) {
+            try {
+                parsedFilters.put(filterExpression, parser.parse(filterExpression));
+            } catch (RuntimeException e) {
+                failedFilters.put(filterExpression, e.getMessage());
+            }
+        }
+
+        Duration parseTime = stopwatch.elapsed();
+
+        stopwatch.reset().start();
+        int decisionCount = 0;
+
+        for (Map.Entry<String, Set<String>> entry : planRootClasses.entrySet()) {
+            List<PurifierNode> nodes = parsedFilters.get(entry.getKey());
+
+            if (nodes == null) {
+                continue;
+            }
+
+            for (String rootClassName : entry.getValue()) {
+                Class<?> rootType = classes.get(rootClassName);
+
+                if (rootType != null) {
+                    decisionCount += filter.precompile(nodes, rootType, graph);
+                }
+            }
+        }
+
+        Duration planTime = stopwatch.elapsed();
+
+        return new PurifierWarmUpReport(beanClasses.size(), parsedFilters.size(), decisionCount, failedTypes,
+                                        failedFilters, typeGraphTime, introspectionTime, serializerTime, parseTime,
+                                        planTime, totalStopwatch.elapsed());
+    }
+
+    /**
+     * Get the filter expressions, as they were written.
+     *
+     * @return expressions
+     */
+    public List<String> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Get the names of the classes, with their fingerprints.
+     *
+     * @return class names to fingerprints
+     */
+    public Map<String, Long> getClassFingerprints() {
+        return classFingerprints;
+    }
+
+    /**
+     * Get the filters plans were compiled for, with the classes of the top-level beans each plan was used for.
+     *
+     * @return expressions to class names
+     */
+    public Map<String, Set<String>> getPlanRootClasses() {
+        return planRootClasses;
+    }
+
+    // like the mapper's type factory, but without initializing the class, a class that changed isn't run before its
+    // fingerprint says so
+    private static Class<?> loadClass(ObjectMapper mapper, String className) throws ClassNotFoundException {
+        ClassLoader classLoader = mapper.getTypeFactory().getClassLoader();
+
+        if (classLoader == null) {
+            classLoader = Thread.currentThread().getContextClassLoader();
+        }
+
+        if (classLoader == null) {
+            classLoader = PurifierSnapshot.class.getClassLoader();
+        }
+
+        return Class.forName(className, false, classLoader);
+    }
+
+    // the bytecode of the class and its superclasses, or their members if the bytecode can't be read
+    static long fingerprint(Class<?> type) {
+        Hasher hasher = Hashing.murmur3_128().newHasher();
+
+        // JDK classes only change with the JDK, which is in their name
+        for (Class<?> current = type; current != null && current.getClassLoader() != null;
+             current = current.getSuperclass()) {
+            hasher.putString(current.getName(), StandardCharsets.UTF_8);
+            byte[] bytecode = readBytecode(current);
+
+            if (bytecode != null) {
+                hasher.putBytes(bytecode);
+                continue;
+            }
+
+            Set<String> members = new TreeSet<>();
+
+            for (Field field : current.getDeclaredFields()) {
+                members.add(field.toGenericString());
+            }
+
+            for (Method method : current.getDeclaredMethods()) {
+                members.add(method.toGenericString());
+            }
+
+            for (String member : members) {
+                hasher.putString(member, StandardCharsets.UTF_8);
+            }
+        }
+
+        return hasher.hash().asLong();
+    }
+
+    private static byte[] readBytecode(Class<?> type) {
+        String resource = type.getName().replace('.', '/') + ".class";
+
+        try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+            return in == null ? null : ByteStreams.toByteArray(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package io.github.walkin.purifier;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What {@link Purifier#warmUp(com.fasterxml.jackson.databind.ObjectMapper, java.util.Collection, java.util.Collection)}
+ * did and how long each of its steps took.
+ */
+@ThreadSafe
+public final class PurifierWarmUpReport {
+
+    private final int beanClassCount;
+
+    private final int filterCount;
+
+    private final int decisionCount;
+
+    private final Map<Class<?>, String> failedTypes;
+
+    private final Map<String, String> failedFilters;
+
+    private final Duration typeGraphTime;
+
+    private final Duration introspectionTime;
+
+    private final Duration serializerTime;
+
+    private final Duration parseTime;
+
+    private final Duration planTime;
+
+    private final Duration totalTime;
+
+    PurifierWarmUpReport(int beanClassCount, int filterCount, int decisionCount, Map<Class<?>, String> failedTypes,
+                         Map<String, String> failedFilters, Duration typeGraphTime, Duration introspectionTime,
+                         Duration serializerTime, Duration parseTime, Duration planTime, Duration totalTime) {
+        this.beanClassCount = beanClassCount;
+        this.filterCount = filterCount;
+        this.decisionCount = decisionCount;
+        this.failedTypes = Collections.unmodifiableMap(failedTypes);
+        this.failedFilters = Collections.unmodifiableMap(failedFilters);
+        this.typeGraphTime = typeGraphTime;
+        this.introspectionTime = introspectionTime;
+        this.serializerTime = serializerTime;
+        this.parseTime = parseTime;
+        this.planTime = planTime;
+        this.totalTime = totalTime;
+    }
+
+    /**
+     * Get the number of bean classes reachable from the root types, which were introspected.
+     *
+     * @return count
+     */
+    public int getBeanClassCount() {
+        return beanClassCount;
+    }
+
+    /**
+     * Get the number of filters that were parsed successfully.
+     *
+     * @return count
+     */
+    public int getFilterCount() {
+        return filterCount;
+    }
+
+    /**
+     * Get the number of plan decisions compiled, over all filters and root types.
+     *
+     * @return count
+     */
+    public int getDecisionCount() {
+        return decisionCount;
+    }
+
+    /**
+     * Get the root types the mapper has no serializer for.
+     *
+     * @return types to error messages
+     */
+    public Map<Class<?>, String> getFailedTypes() {
+        return failedTypes;
+    }
+
+    /**
+     * Get the filters that failed to parse.  They fail again, from the parser's failure cache, when used.
+     *
+     * @return filters to error messages
+     */
+    public Map<String, String> getFailedFilters() {
+        return failedFilters;
+    }
+
+    /**
+     * Get the time spent walking the mapper's properties from the root types.
+     *
+     * @return time
+     */
+    public Duration getTypeGraphTime() {
+        return typeGraphTime;
+    }
+
+    /**
+     * Get the time spent introspecting the bean classes.
+     *
+     * @return time
+     */
+    public Duration getIntrospectionTime() {
+        return introspectionTime;
+    }
+
+    /**
+     * Get the time spent building the mapper's serializers for the root types.
+     *
+     * @return time
+     */
+    public Duration getSerializerTime() {
+        return serializerTime;
+    }
+
+    /**
+     * Get the time spent parsing the filters.
+     *
+     * @return time
+     */
+    public Duration getParseTime() {
+        return parseTime;
+    }
+
+    /**
+     * Get the time spent compiling plans.
+     *
+     * @return time
+     */
+    public Duration getPlanTime() {
+        return planTime;
+    }
+
+    /**
+     * Get the time the whole warm-up took.
+     *
+     * @return time
+     */
+    public Duration getTotalTime() {
+        return totalTime;
+    }
+
+    @Override
+    public String toString() {
+        return "PurifierWarmUpReport{beanClassCount=" + beanClassCount + ", filterCount=" + filterCount
+                + ", decisionCount=" + decisionCount + ", failedTypes=" + failedTypes.size() + ", failedFilters="
+                + failedFilters.size() + ", typeGraphTime=" + typeGraphTime + ", introspectionTime="
+                + introspectionTime + ", serializerTime=" + serializerTime + ", parseTime=" + parseTime
+                + ", planTime=" + planTime + ", totalTime=" + totalTime + "}";
+    }
+
+}
@@ -1,19 +1,79 @@
 package io.github.walkin.purifier.bean;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.view.PropertyView;
 
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class BeanInfo {
 
+    private static final BitSet NO_PROPERTIES = new BitSet();
+
     private Map<String, Set<String>> viewNameToPropertiesNames;
 
+    private SetMultimap<String, String> propertyNameToViewNames;
+
     private Set<String> unwrappedProperties;
 
+    // every property in a view gets an index, views are sets of these indexes
+    private Map<String, Integer> propertyIndexes;
+
+    private Map<String, BitSet> viewNameToPropertyBits;
+
+    private final ConcurrentMap<Set<String>, BitSet> viewUnions = new ConcurrentHashMap<>();
+
+    // bean property name to property, for subclasses to build on, or null if not introspected with java.beans
+    private final Map<String, IntrospectedProperty> introspectedProperties;
+
     public BeanInfo(Map<String, Set<String>> viewNameToPropertiesNames, Set<String> unwrappedProperties) {
+        this(viewNameToPropertiesNames, unwrappedProperties, null);
+    }
+
+    BeanInfo(Map<String, Set<String>> viewNameToPropertiesNames, Set<String> unwrappedProperties,
+             Map<String, IntrospectedProperty> introspectedProperties) {
+        this.introspectedProperties = introspectedProperties;
         this.viewNameToPropertiesNames = viewNameToPropertiesNames;
+        this.propertyNameToViewNames = invert(viewNameToPropertiesNames);
         this.unwrappedProperties = unwrappedProperties;
+        this.propertyIndexes = new HashMap<>();
+        this.viewNameToPropertyBits = new HashMap<>();
+
+        for (Map.Entry<String, Set<String>> entry : viewNameToPropertiesNames.entrySet()) {
+            BitSet bits = new BitSet();
+
+            for (String propertyName : entry.getValue()) {
+                Integer idx = propertyIndexes.get(propertyName);
+
+                if (idx == null) {
+                    idx = propertyIndexes.size();
+                    propertyIndexes.put(propertyName, idx);
+                }
+
+                bits.set(idx);
+            }
+
+            viewNameToPropertyBits.put(entry.getKey(), bits);
+        }
+    }
+
+    private static SetMultimap<String, String> invert(Map<String, Set<String>> viewNameToPropertiesNames) {
+        ImmutableSetMultimap.Builder<String, String> builder = ImmutableSetMultimap.builder();
+
+        for (Map.Entry<String, Set<String>> entry : viewNameToPropertiesNames.entrySet()) {
+            for (String propertyName : entry.getValue()) {
+                builder.put(propertyName, entry.getKey());
+            }
+        }
+
+        return builder.build();
     }
 
     public Set<String> getPropertyNamesForView(String view) {
@@ -26,8 +86,73 @@ public class BeanInfo {
         return properties;
     }
 
+    /**
+     * Get the views that include a property.
+     *
+     * @param property property name
+     * @return view names
+     */
+    public Set<String> getViewNamesForProperty(String property) {
+        return propertyNameToViewNames.get(property);
+    }
+
+    /**
+     * Get the index of a property in the bit sets returned by {@link #getPropertyBitsForViews(Set)}.
+     *
+     * @param property property name
+     * @return index or -1 if the property isn't in any view
+     */
+    public int getPropertyIndex(String property) {
+        Integer idx = propertyIndexes.get(property);
+        return idx == null ? -1 : idx;
+    }
+
+    /**
+     * Get the properties included by any of the given views.  A view without properties stands for the base view if
+     * base fields are implicitly included.
+     * <p>
+     * Unions are computed once per combination of views.  The returned bits must not be modified.
+     *
+     * @param views view names
+     * @return property bits, indexed by {@link #getPropertyIndex(String)}
+     */
+    public BitSet getPropertyBitsForViews(Set<String> views) {
+        BitSet union = viewUnions.get(views);
+
+        if (union == null) {
+            union = new BitSet();
+
+            for (String view : views) {
+                BitSet bits = viewNameToPropertyBits.get(view);
+
+                if (bits == null && PurifierConfig.isFilterImplicitlyIncludeBaseFields()) {
+                    bits = viewNameToPropertyBits.get(PropertyView.BASE_VIEW);
+                }
+
+                union.or(bits == null ? NO_PROPERTIES : bits);
+            }
+
+            // the view stack may be mutable, the key must not be
+            viewUnions.putIfAbsent(ImmutableSet.copyOf(views), union);
+        }
+
+        return union;
+    }
+
     public boolean isUnwrapped(String property) {
         return unwrappedProperties.contains(property);
     }
 
+    Map<String, Set<String>> getViewNameToPropertiesNames() {
+        return viewNameToPropertiesNames;
+    }
+
+    Set<String> getUnwrappedProperties() {
+        return unwrappedProperties;
+    }
+
+    Map<String, IntrospectedProperty> getIntrospectedProperties() {
+        return introspectedProperties;
+    }
+
 }
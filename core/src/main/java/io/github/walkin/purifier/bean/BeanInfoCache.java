@@ -0,0 +1,54 @@
+package io.github.walkin.purifier.bean;
+
+import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Holds the {@link BeanInfo} of introspected classes.
+ */
+interface BeanInfoCache {
+
+    /**
+     * Create the engine configured by {@link PurifierConfig#getPropertyDescriptorCacheEngine()}.
+     *
+     * @param metricsPrefix prefix of the cache metrics
+     * @param loader        introspects a class
+     * @return cache
+     */
+    static BeanInfoCache create(String metricsPrefix, Function<Class, BeanInfo> loader) {
+        String engine = PurifierConfig.getPropertyDescriptorCacheEngine();
+
+        switch (engine) {
+            case "guava":
+                return new GuavaBeanInfoCache(metricsPrefix, PurifierConfig.getPropertyDescriptorCacheSpec(), loader);
+            case "bounded":
+                return new GuavaBeanInfoCache(metricsPrefix, PurifierConfig.getPropertyDescriptorCacheMaximumSize(),
+                                              loader);
+            case "classValue":
+                return new ClassValueBeanInfoCache(metricsPrefix, loader);
+            default:
+                throw new IllegalArgumentException("Unrecognized descriptor cache engine " + engine);
+        }
+    }
+
+    /**
+     * Get the info of a class, introspecting it if needed.
+     *
+     * @param beanClass the class
+     * @return info
+     */
+    BeanInfo get(Class beanClass);
+
+    /**
+     * Get the classes introspected so far, that are still cached.
+     *
+     * @return a copy of the classes
+     */
+    Set<Class> getClasses();
+
+    PurifierMetricsSource getMetricsSource();
+
+}
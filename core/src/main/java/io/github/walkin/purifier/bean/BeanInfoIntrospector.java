@@ -2,15 +2,19 @@ package io.github.walkin.purifier.bean;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotationMap;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.github.walkin.purifier.config.PurifierConfig;
-import io.github.walkin.purifier.metric.source.GuavaCachePurifierMetricsSource;
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
 import io.github.walkin.purifier.view.PropertyView;
 import net.jcip.annotations.ThreadSafe;
 import org.apache.commons.lang3.StringUtils;
@@ -22,71 +26,311 @@ import java.beans.PropertyDescriptor;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Introspects bean classes, looking for @{@link PropertyView} annotations on fields.
+ * <p>
+ * By default properties are found with {@link Introspector}.  An introspector constructed with an
+ * {@link ObjectMapper} finds them the way the mapper serializes them instead, from its {@link BeanDescription}s, so
+ * that naming strategies, mixins, records and the like are taken into account, see
+ * {@link PurifierConfig#getPropertyIntrospector()}.
+ * <p>
+ * Without a mapper, classes processed by the purifier annotation processor aren't introspected, their
+ * {@link GeneratedBeanInfo} is loaded instead.  Other classes are introspected on top of their superclass: only the
+ * properties a class declares or overrides are introspected, the others are taken from the superclass's info.
  */
 @ThreadSafe
 public class BeanInfoIntrospector {
 
+    private static final String METRICS_PREFIX = "squiggly.property.descriptorCache.";
+
     /**
      * Caches bean class to a map of views to property views.
      */
-    private static final LoadingCache<Class, BeanInfo> CACHE;
+    private static final BeanInfoCache CACHE = BeanInfoCache.create(METRICS_PREFIX,
+                                                                      BeanInfoIntrospector::introspectClass);
 
-    private static final GuavaCachePurifierMetricsSource METRICS_SOURCE;
+    // null to introspect with java.beans
+    private final ObjectMapper mapper;
 
-    static {
-        CACHE = CacheBuilder
-                .from(PurifierConfig.getPropertyDescriptorCacheSpec())
-                .build(new CacheLoader<Class, BeanInfo>() {
-                    @Override
-                    public BeanInfo load(Class key) throws Exception {
-                        return introspectClass(key);
-                    }
-                });
-        METRICS_SOURCE = new GuavaCachePurifierMetricsSource("squiggly.property.descriptorCache.", CACHE);
+    private final BeanInfoCache cache;
+
+    /**
+     * Construct an introspector that finds properties with {@link Introspector}.
+     */
+    public BeanInfoIntrospector() {
+        this.mapper = null;
+        this.cache = CACHE;
     }
 
-    private static BeanInfo introspectClass(Class beanClass) {
+    /**
+     * Construct an introspector that finds properties the way a mapper serializes them.  The mapper's configuration
+     * is read when a class is first introspected, so configure the mapper first.
+     *
+     * @param mapper the mapper
+     */
+    public BeanInfoIntrospector(ObjectMapper mapper) {
+        this.mapper = checkNotNull(mapper);
+        this.cache = BeanInfoCache.create(METRICS_PREFIX, this::introspectWithMapper);
+    }
+
+    /**
+     * Create the introspector configured by {@link PurifierConfig#getPropertyIntrospector()}.
+     *
+     * @param mapper the mapper the introspected classes are serialized with
+     * @return introspector
+     */
+    public static BeanInfoIntrospector create(ObjectMapper mapper) {
+        String introspector = PurifierConfig.getPropertyIntrospector();
+
+        switch (introspector) {
+            case "beans":
+                return new BeanInfoIntrospector();
+            case "jackson":
+                return new BeanInfoIntrospector(mapper);
+            default:
+                throw new IllegalArgumentException("Unrecognized property introspector " + introspector);
+        }
+    }
+
+    private BeanInfo introspectWithMapper(Class beanClass) {
+        SerializationConfig config = mapper.getSerializationConfig();
+        BeanDescription description = config.introspect(config.constructType(beanClass));
+        AnnotationIntrospector annotationIntrospector = config.getAnnotationIntrospector();
 
         Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
-        Set<String> resolved = Sets.newHashSet();
         Set<String> unwrapped = Sets.newHashSet();
 
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            if (!property.couldSerialize()) {
+                continue;
+            }
+
+            // renamed and with the annotations of mixins and of the other members of the property merged in
+            String propertyName = property.getName();
+            AnnotatedMember accessor = property.getAccessor();
+
+            if (accessor != null && annotationIntrospector.findUnwrappingNameTransformer(accessor) != null) {
+                unwrapped.add(propertyName);
+            }
+
+            Set<String> views = Sets.newHashSet();
+            applyPropertyViews(views, property.getGetter());
+            applyPropertyViews(views, property.getSetter());
+            applyPropertyViews(views, property.getField());
+
+            if (views.isEmpty() && PurifierConfig.isPropertyAddNonAnnotatedFieldsToBaseView()) {
+                views.add(PropertyView.BASE_VIEW);
+            }
+
+            addToViews(viewToPropertyNames, propertyName, views);
+        }
+
+        return newBeanInfo(viewToPropertyNames, unwrapped);
+    }
+
+    private static void applyPropertyViews(Set<String> views, AnnotatedMember member) {
+        // the member's annotations, including the ones of mixins
+        AnnotationMap annotations = member == null ? null : member.getAllAnnotations();
+
+        if (annotations == null) {
+            return;
+        }
+
+        for (Annotation ann : annotations.annotations()) {
+            applyPropertyViews(views, ann);
+        }
+    }
+
+    private static BeanInfo introspectClass(Class beanClass) {
+        if (PurifierConfig.isPropertyUseGeneratedBeanInfo()) {
+            GeneratedBeanInfo generated = findGeneratedBeanInfo(beanClass);
+
+            if (generated != null) {
+                return fromGeneratedBeanInfo(generated);
+            }
+        }
+
+        return introspectWithBeans(beanClass);
+    }
+
+    private static GeneratedBeanInfo findGeneratedBeanInfo(Class beanClass) {
+        ClassLoader classLoader = beanClass.getClassLoader();
+
+        if (classLoader == null) {
+            return null;
+        }
+
+        String generatedName = beanClass.getName() + GeneratedBeanInfo.CLASS_NAME_SUFFIX;
+
+        try {
+            Class<?> generatedClass = Class.forName(generatedName, true, classLoader);
+            return (GeneratedBeanInfo) generatedClass.getDeclaredConstructor().newInstance();
+        } catch (ClassNotFoundException e) {
+            return null;
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new RuntimeException("Unable to load generated bean info " + generatedName, e);
+        }
+    }
+
+    private static BeanInfo fromGeneratedBeanInfo(GeneratedBeanInfo generated) {
+        Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
+
+        for (Map.Entry<String, Set<String>> entry : generated.getPropertyViews().entrySet()) {
+            addToViews(viewToPropertyNames, entry.getKey(), withDefaultView(entry.getValue()));
+        }
+
+        return newBeanInfo(viewToPropertyNames, Sets.newHashSet(generated.getUnwrappedProperties()));
+    }
+
+    // properties whose accessors are inherited as is are taken from the superclass's info, not introspected again
+    private static BeanInfo introspectWithBeans(Class beanClass) {
+        Class<?> superclass = beanClass.getSuperclass();
+        BeanInfo superInfo = superclass == null ? null : CACHE.get(superclass);
+        Map<String, IntrospectedProperty> inherited = superInfo == null ? null : superInfo.getIntrospectedProperties();
+
+        Map<String, IntrospectedProperty> properties = Maps.newLinkedHashMap();
+        List<IntrospectedProperty> added = Lists.newArrayList();
+        boolean replaced = false;
+
         for (PropertyDescriptor propertyDescriptor : getPropertyDescriptors(beanClass)) {
 
             if (propertyDescriptor.getReadMethod() == null) {
                 continue;
             }
 
-            Field field = FieldUtils.getField(propertyDescriptor.getReadMethod().getDeclaringClass(),
-                                              propertyDescriptor.getName(), true);
-            String propertyName = getPropertyName(propertyDescriptor, field);
+            IntrospectedProperty property = inherited == null ? null : inherited.get(propertyDescriptor.getName());
 
+            if (property == null) {
+                property = introspectProperty(propertyDescriptor);
+                added.add(property);
+            } else if (!property.hasAccessorsOf(propertyDescriptor)) {
+                property = introspectProperty(propertyDescriptor);
+                replaced = true;
+            }
 
-            if (isUnwrapped(propertyDescriptor, field)) {
-                unwrapped.add(propertyName);
+            properties.put(propertyDescriptor.getName(), property);
+        }
+
+        if (inherited == null || replaced || properties.size() != inherited.size() + added.size()) {
+            return newBeanInfo(properties.values(), properties);
+        }
+
+        if (added.isEmpty()) {
+            // nothing of its own, same info as the superclass
+            return superInfo;
+        }
+
+        return extend(superInfo, added, properties);
+    }
+
+    private static IntrospectedProperty introspectProperty(PropertyDescriptor propertyDescriptor) {
+        Field field = FieldUtils.getField(propertyDescriptor.getReadMethod().getDeclaringClass(),
+                                          propertyDescriptor.getName(), true);
+        String propertyName = getPropertyName(propertyDescriptor, field);
+
+        return new IntrospectedProperty(propertyDescriptor, propertyName,
+                                        introspectPropertyViews(propertyDescriptor, field),
+                                        isUnwrapped(propertyDescriptor, field));
+    }
+
+    private static BeanInfo newBeanInfo(Collection<IntrospectedProperty> properties,
+                                        Map<String, IntrospectedProperty> introspectedProperties) {
+        Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
+        Set<String> unwrapped = Sets.newHashSet();
+
+        for (IntrospectedProperty property : properties) {
+            if (property.isUnwrapped()) {
+                unwrapped.add(property.getName());
             }
 
-            Set<String> views = introspectPropertyViews(propertyDescriptor, field);
+            addToViews(viewToPropertyNames, property.getName(), withDefaultView(property.getViews()));
+        }
 
-            for (String view : views) {
-                Set<String> fieldNames = viewToPropertyNames.get(view);
+        viewToPropertyNames = makeUnmodifiable(expand(viewToPropertyNames));
+        return new BeanInfo(viewToPropertyNames, Collections.unmodifiableSet(unwrapped), introspectedProperties);
+    }
 
-                if (fieldNames == null) {
-                    fieldNames = Sets.newHashSet();
-                    viewToPropertyNames.put(view, fieldNames);
-                }
+    // the superclass's info with properties added, its views are already expanded so only the additions are
+    private static BeanInfo extend(BeanInfo superInfo, List<IntrospectedProperty> added,
+                                   Map<String, IntrospectedProperty> introspectedProperties) {
+        Map<String, Set<String>> addedViewToPropertyNames = Maps.newHashMap();
+        Set<String> unwrapped = Sets.newHashSet(superInfo.getUnwrappedProperties());
 
-                fieldNames.add(propertyName);
+        for (IntrospectedProperty property : added) {
+            if (property.isUnwrapped()) {
+                unwrapped.add(property.getName());
             }
+
+            addToViews(addedViewToPropertyNames, property.getName(), withDefaultView(property.getViews()));
+        }
+
+        Map<String, Set<String>> superViewToPropertyNames = superInfo.getViewNameToPropertiesNames();
+        Set<String> addedBaseProps = addedViewToPropertyNames.get(PropertyView.BASE_VIEW);
+        Set<String> baseProps = Sets.newHashSet(superInfo.getPropertyNamesForView(PropertyView.BASE_VIEW));
+
+        if (addedBaseProps != null) {
+            baseProps.addAll(addedBaseProps);
         }
 
+        Map<String, Set<String>> viewToPropertyNames = Maps.newHashMap();
+
+        for (String viewName : Sets.union(superViewToPropertyNames.keySet(), addedViewToPropertyNames.keySet())) {
+            Set<String> superProps = superViewToPropertyNames.get(viewName);
+            Set<String> propNames = superProps == null ? Sets.newHashSet() : Sets.newHashSet(superProps);
+            Set<String> addedProps = addedViewToPropertyNames.get(viewName);
+
+            if (addedProps != null) {
+                propNames.addAll(addedProps);
+            }
+
+            // same as expand, the base properties of the superclass are already in its views
+            if (!PropertyView.BASE_VIEW.equals(viewName) && (PurifierConfig.isFilterImplicitlyIncludeBaseFieldsInView()
+                    || PropertyView.FULL_VIEW.equals(viewName))) {
+                if (superProps == null) {
+                    propNames.addAll(baseProps);
+                } else if (addedBaseProps != null) {
+                    propNames.addAll(addedBaseProps);
+                }
+            }
+
+            viewToPropertyNames.put(viewName, propNames);
+        }
 
+        return new BeanInfo(makeUnmodifiable(viewToPropertyNames), Collections.unmodifiableSet(unwrapped),
+                            introspectedProperties);
+    }
+
+    private static Set<String> withDefaultView(Set<String> views) {
+        if (views.isEmpty() && PurifierConfig.isPropertyAddNonAnnotatedFieldsToBaseView()) {
+            return Collections.singleton(PropertyView.BASE_VIEW);
+        }
+
+        return views;
+    }
+
+    private static void addToViews(Map<String, Set<String>> viewToPropertyNames, String propertyName,
+                                   Set<String> views) {
+        for (String view : views) {
+            Set<String> fieldNames = viewToPropertyNames.get(view);
+
+            if (fieldNames == null) {
+                fieldNames = Sets.newHashSet();
+                viewToPropertyNames.put(view, fieldNames);
+            }
+
+            fieldNames.add(propertyName);
+        }
+    }
+
+    private static BeanInfo newBeanInfo(Map<String, Set<String>> viewToPropertyNames, Set<String> unwrapped) {
         viewToPropertyNames = makeUnmodifiable(expand(viewToPropertyNames));
         unwrapped = Collections.unmodifiableSet(unwrapped);
 
@@ -218,7 +462,7 @@ public class BeanInfoIntrospector {
         return viewToPropNames;
     }
 
-    // grab all the PropertyView (or derived) annotations and return their view names.
+    // grab all the PropertyView (or derived) annotations and return their view names, empty if none.
     private static Set<String> introspectPropertyViews(PropertyDescriptor propertyDescriptor, Field field) {
 
         Set<String> views = Sets.newHashSet();
@@ -235,33 +479,42 @@ public class BeanInfoIntrospector {
             applyPropertyViews(views, field.getAnnotations());
         }
 
-        if (views.isEmpty() && PurifierConfig.isPropertyAddNonAnnotatedFieldsToBaseView()) {
-            return Collections.singleton(PropertyView.BASE_VIEW);
-        }
-
         return views;
     }
 
     private static void applyPropertyViews(Set<String> views, Annotation[] annotations) {
         for (Annotation ann : annotations) {
-            if (ann instanceof PropertyView) {
-                views.addAll(Lists.newArrayList(((PropertyView) ann).value()));
-            }
+            applyPropertyViews(views, ann);
+        }
+    }
 
-            for (Annotation classAnn : ann.annotationType().getAnnotations()) {
-                if (classAnn instanceof PropertyView) {
-                    views.addAll(Lists.newArrayList(((PropertyView) classAnn).value()));
-                }
+    private static void applyPropertyViews(Set<String> views, Annotation ann) {
+        if (ann instanceof PropertyView) {
+            views.addAll(Lists.newArrayList(((PropertyView) ann).value()));
+        }
+
+        for (Annotation classAnn : ann.annotationType().getAnnotations()) {
+            if (classAnn instanceof PropertyView) {
+                views.addAll(Lists.newArrayList(((PropertyView) classAnn).value()));
             }
         }
     }
 
-    public static GuavaCachePurifierMetricsSource getMetricsSource() {
-        return METRICS_SOURCE;
+    public static PurifierMetricsSource getMetricsSource() {
+        return CACHE.getMetricsSource();
+    }
+
+    /**
+     * Get the classes this introspector has introspected and still caches.
+     *
+     * @return classes
+     */
+    public Set<Class> getIntrospectedClasses() {
+        return cache.getClasses();
     }
 
     public BeanInfo introspect(Class beanClass) {
-        return CACHE.getUnchecked(beanClass);
+        return cache.get(beanClass);
     }
 
 }
@@ -0,0 +1,64 @@
+package io.github.walkin.purifier.bean;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bean info cache backed by a {@link ClassValue}: the info is stored with the class itself, so reads take no lock
+ * and no hash lookup in a shared table, and the info goes away when the class is unloaded.  There is no eviction.
+ * <p>
+ * A class may be introspected more than once when threads race on its first lookup, only one result is kept.
+ */
+@ThreadSafe
+final class ClassValueBeanInfoCache implements BeanInfoCache, PurifierMetricsSource {
+
+    private final String metricsPrefix;
+
+    private final AtomicLong loadCount = new AtomicLong();
+
+    private final ClassValue<BeanInfo> infos;
+
+    // a class value can't be iterated, the classes are kept on the side without keeping them from being unloaded
+    private final Set<Class> classes = Collections.newSetFromMap(new MapMaker().weakKeys().<Class, Boolean>makeMap());
+
+    ClassValueBeanInfoCache(String metricsPrefix, Function<Class, BeanInfo> loader) {
+        this.metricsPrefix = metricsPrefix;
+        this.infos = new ClassValue<BeanInfo>() {
+            @Override
+            protected BeanInfo computeValue(Class<?> type) {
+                loadCount.incrementAndGet();
+                classes.add(type);
+                return loader.apply(type);
+            }
+        };
+    }
+
+    @Override
+    public BeanInfo get(Class beanClass) {
+        return infos.get(beanClass);
+    }
+
+    @Override
+    public Set<Class> getClasses() {
+        return ImmutableSet.copyOf(classes);
+    }
+
+    @Override
+    public PurifierMetricsSource getMetricsSource() {
+        return this;
+    }
+
+    @Override
+    public void applyMetrics(Map<String, Object> map) {
+        map.put(metricsPrefix + "loadCount", loadCount.get());
+    }
+
+}
@@ -0,0 +1,36 @@
+package io.github.walkin.purifier.bean;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Property metadata of a bean class generated at compile time by the purifier annotation processor, so that the
+ * class doesn't have to be introspected by reflection.
+ * <p>
+ * The implementation for a class is named after the class's binary name followed by {@link #CLASS_NAME_SUFFIX}, in
+ * the same package, and is loaded by the class's own class loader.  The metadata is raw: the configured defaults,
+ * like {@link io.github.walkin.purifier.config.PurifierConfig#isPropertyAddNonAnnotatedFieldsToBaseView()}, are
+ * applied when it is loaded, like for introspected classes.
+ */
+public interface GeneratedBeanInfo {
+
+    /**
+     * Suffix of the names of the generated classes, eg. <code>com.acme.Order_PurifierBeanInfo</code>.
+     */
+    String CLASS_NAME_SUFFIX = "_PurifierBeanInfo";
+
+    /**
+     * Get the properties of the class, by their serialized names, with the views they are annotated with.
+     *
+     * @return property names to views, empty for properties that aren't annotated
+     */
+    Map<String, Set<String>> getPropertyViews();
+
+    /**
+     * Get the names of the properties annotated with @{@link com.fasterxml.jackson.annotation.JsonUnwrapped}.
+     *
+     * @return property names
+     */
+    Set<String> getUnwrappedProperties();
+
+}
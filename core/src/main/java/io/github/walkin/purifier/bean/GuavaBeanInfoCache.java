@@ -0,0 +1,73 @@
+package io.github.walkin.purifier.bean;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import io.github.walkin.purifier.metric.source.GuavaCachePurifierMetricsSource;
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bean info cache backed by a Guava {@link LoadingCache}.
+ */
+@ThreadSafe
+final class GuavaBeanInfoCache implements BeanInfoCache {
+
+    private final LoadingCache<Class, BeanInfo> cache;
+
+    private final PurifierMetricsSource metricsSource;
+
+    /**
+     * Cache configured by a spec.
+     *
+     * @param metricsPrefix prefix of the cache metrics
+     * @param spec          spec of the cache
+     * @param loader        introspects a class
+     */
+    GuavaBeanInfoCache(String metricsPrefix, CacheBuilderSpec spec, Function<Class, BeanInfo> loader) {
+        this(metricsPrefix, CacheBuilder.from(spec), loader);
+    }
+
+    /**
+     * Bounded cache that doesn't keep classes from being unloaded.
+     *
+     * @param metricsPrefix prefix of the cache metrics
+     * @param maximumSize   maximum number of classes
+     * @param loader        introspects a class
+     */
+    GuavaBeanInfoCache(String metricsPrefix, int maximumSize, Function<Class, BeanInfo> loader) {
+        this(metricsPrefix, CacheBuilder.newBuilder().weakKeys().maximumSize(maximumSize).recordStats(), loader);
+    }
+
+    private GuavaBeanInfoCache(String metricsPrefix, CacheBuilder<Object, Object> builder,
+                               Function<Class, BeanInfo> loader) {
+        this.cache = builder.build(new CacheLoader<Class, BeanInfo>() {
+            @Override
+            public BeanInfo load(Class key) throws Exception {
+                return loader.apply(key);
+            }
+        });
+        this.metricsSource = new GuavaCachePurifierMetricsSource(metricsPrefix, cache);
+    }
+
+    @Override
+    public BeanInfo get(Class beanClass) {
+        return cache.getUnchecked(beanClass);
+    }
+
+    @Override
+    public Set<Class> getClasses() {
+        return ImmutableSet.copyOf(cache.asMap().keySet());
+    }
+
+    @Override
+    public PurifierMetricsSource getMetricsSource() {
+        return metricsSource;
+    }
+
+}
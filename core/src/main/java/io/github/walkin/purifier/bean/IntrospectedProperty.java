@@ -0,0 +1,68 @@
+package io.github.walkin.purifier.bean;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A property as introspected from its accessors, before the configured defaults are applied.  Everything here
+ * follows from the accessors, so a subclass that inherits them inherits the introspected property as is.
+ */
+@ThreadSafe
+final class IntrospectedProperty {
+
+    private final Method readMethod;
+
+    private final Method writeMethod;
+
+    private final String name;
+
+    private final Set<String> views;
+
+    private final boolean unwrapped;
+
+    IntrospectedProperty(PropertyDescriptor descriptor, String name, Set<String> views, boolean unwrapped) {
+        this.readMethod = descriptor.getReadMethod();
+        this.writeMethod = descriptor.getWriteMethod();
+        this.name = name;
+        this.views = Collections.unmodifiableSet(views);
+        this.unwrapped = unwrapped;
+    }
+
+    /**
+     * Determines whether a descriptor has the same accessors, in which case this property stands for it.
+     *
+     * @param descriptor the descriptor
+     * @return true if the same
+     */
+    boolean hasAccessorsOf(PropertyDescriptor descriptor) {
+        return readMethod.equals(descriptor.getReadMethod()) && Objects.equals(writeMethod, descriptor.getWriteMethod());
+    }
+
+    /**
+     * Get the serialized name.
+     *
+     * @return name
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Get the views the property is annotated with.
+     *
+     * @return views, empty if not annotated
+     */
+    Set<String> getViews() {
+        return views;
+    }
+
+    boolean isUnwrapped() {
+        return unwrapped;
+    }
+
+}
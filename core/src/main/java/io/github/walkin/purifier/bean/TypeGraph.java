@@ -0,0 +1,128 @@
+package io.github.walkin.purifier.bean;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.util.ClassUtil;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The bean classes reachable from root types through the properties a mapper serializes, with the bean classes the
+ * values of each property can have.
+ * <p>
+ * Collections, maps, arrays and references are looked through to their contents.  JDK classes, enums and maps
+ * aren't beans and end the walk.  Only declared types are known, subtypes are part of the graph only if they are
+ * roots themselves.
+ */
+@ThreadSafe
+public final class TypeGraph {
+
+    private final Map<Class<?>, Map<String, Set<Class<?>>>> properties;
+
+    private TypeGraph(Map<Class<?>, Map<String, Set<Class<?>>>> properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Walk the properties a mapper serializes, from root types.
+     *
+     * @param mapper    the mapper
+     * @param rootTypes the types of the top-level beans
+     * @return graph
+     */
+    public static TypeGraph of(ObjectMapper mapper, Collection<Class<?>> rootTypes) {
+        SerializationConfig config = mapper.getSerializationConfig();
+        Map<Class<?>, Map<String, Set<Class<?>>>> properties = new LinkedHashMap<>();
+        Deque<JavaType> pending = new ArrayDeque<>();
+
+        for (Class<?> rootType : rootTypes) {
+            addBeanTypes(config.constructType(rootType), pending);
+        }
+
+        while (!pending.isEmpty()) {
+            JavaType type = pending.poll();
+
+            if (properties.containsKey(type.getRawClass())) {
+                continue;
+            }
+
+            BeanDescription description = config.introspect(type);
+            Map<String, Set<Class<?>>> beanProperties = new LinkedHashMap<>();
+
+            for (BeanPropertyDefinition property : description.findProperties()) {
+                if (!property.couldSerialize()) {
+                    continue;
+                }
+
+                Deque<JavaType> valueTypes = new ArrayDeque<>();
+                addBeanTypes(property.getPrimaryType(), valueTypes);
+
+                Set<Class<?>> valueClasses = new LinkedHashSet<>();
+
+                for (JavaType valueType : valueTypes) {
+                    valueClasses.add(valueType.getRawClass());
+                }
+
+                beanProperties.put(property.getName(), Collections.unmodifiableSet(valueClasses));
+                pending.addAll(valueTypes);
+            }
+
+            properties.put(type.getRawClass(), Collections.unmodifiableMap(beanProperties));
+        }
+
+        return new TypeGraph(Collections.unmodifiableMap(properties));
+    }
+
+    // the bean types a value of the given type is made of
+    private static void addBeanTypes(JavaType type, Deque<JavaType> beanTypes) {
+        if (type == null) {
+            return;
+        }
+
+        if (type.isContainerType() || type.isReferenceType()) {
+            addBeanTypes(type.getContentType(), beanTypes);
+            return;
+        }
+
+        Class<?> rawClass = type.getRawClass();
+
+        if (rawClass.isPrimitive() || rawClass == Object.class || ClassUtil.isEnumType(rawClass)
+                || Map.class.isAssignableFrom(rawClass) || ClassUtil.isJDKClass(rawClass)) {
+            return;
+        }
+
+        beanTypes.add(type);
+    }
+
+    /**
+     * Get the bean classes of the graph.
+     *
+     * @return classes, roots first
+     */
+    public Set<Class<?>> getBeanClasses() {
+        return properties.keySet();
+    }
+
+    /**
+     * Get the serialized properties of a bean class.
+     *
+     * @param beanClass the class
+     * @return property names to the bean classes of their values, empty if the class isn't in the graph
+     */
+    public Map<String, Set<Class<?>>> getProperties(Class<?> beanClass) {
+        Map<String, Set<Class<?>>> beanProperties = properties.get(beanClass);
+        return beanProperties == null ? Collections.<String, Set<Class<?>>>emptyMap() : beanProperties;
+    }
+
+}
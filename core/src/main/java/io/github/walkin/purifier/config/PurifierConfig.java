@@ -25,18 +25,76 @@ public class PurifierConfig {
 
     private static final SortedMap<String, String> SOURCE_MAP;
 
+    private static final int filterBudgetMaxDeepWildcards;
+
+    private static final int filterBudgetMaxDepth;
+
+    private static final int filterBudgetMaxLength;
+
+    private static final int filterBudgetMaxRegexes;
+
+    private static final int filterBudgetMaxWildcards;
+
+    private static final String filterBudgetPolicy;
+
+    private static final boolean filterCompilePlans;
+
+    private static final int filterGenerateAccessorsThreshold;
+
     private static final boolean filterImplicitlyIncludeBaseFields;
 
     private static final boolean filterImplicitlyIncludeBaseFieldsInView;
 
+    private static final String filterMatchCacheEngine;
+
+    private static final int filterMatchCacheL1Size;
+
+    private static final int filterMatchCacheL2Size;
+
     private static final CacheBuilderSpec filterPathCacheSpec;
 
     private static final boolean filterPropagateViewToNestedFilters;
 
+    private static final boolean filterPruneSerializers;
+
+    private static final int filterTiersCompileThreshold;
+
+    private static final boolean filterTiersEnabled;
+
+    private static final int filterTiersSpecializeThreshold;
+
+    private static final boolean parserCanonicalize;
+
+    private static final String parserEngine;
+
+    private static final CacheBuilderSpec parserFailureCacheSpec;
+
     private static final CacheBuilderSpec parserNodeCacheSpec;
 
+    private static final int parserNodeStoreBytes;
+
+    private static final String parserRegexEngine;
+
+    private static final String parserRegexFallback;
+
+    private static final String propertyDescriptorCacheEngine;
+
+    private static final int propertyDescriptorCacheMaximumSize;
+
     private static final CacheBuilderSpec propertyDescriptorCacheSpec;
 
+    private static final String propertyIntrospector;
+
+    private static final boolean propertyUseGeneratedBeanInfo;
+
+    private static final int warmUpJitMaxRounds;
+
+    private static final int warmUpJitRoundIterations;
+
+    private static final int warmUpJitStableRounds;
+
+    private static final int warmUpJitTimeoutMillis;
+
     private static boolean propertyAddNonAnnotatedFieldsToBaseView;
 
     static {
@@ -49,23 +107,56 @@ public class PurifierConfig {
         PROPS_MAP = ImmutableSortedMap.copyOf(propsMap);
         SOURCE_MAP = ImmutableSortedMap.copyOf(sourceMap);
 
+        filterBudgetMaxDeepWildcards = getInt(PROPS_MAP, "filter.budget.maxDeepWildcards", -1);
+        filterBudgetMaxDepth = getInt(PROPS_MAP, "filter.budget.maxDepth", -1);
+        filterBudgetMaxLength = getInt(PROPS_MAP, "filter.budget.maxLength", -1);
+        filterBudgetMaxRegexes = getInt(PROPS_MAP, "filter.budget.maxRegexes", -1);
+        filterBudgetMaxWildcards = getInt(PROPS_MAP, "filter.budget.maxWildcards", -1);
+        filterBudgetPolicy = getString(PROPS_MAP, "filter.budget.policy", "reject");
+        filterCompilePlans = getBool(PROPS_MAP, "filter.compilePlans", true);
+        filterGenerateAccessorsThreshold = getInt(PROPS_MAP, "filter.generateAccessors.threshold", 1000);
         filterImplicitlyIncludeBaseFields = getBool(PROPS_MAP, "filter.implicitlyIncludeBaseFields");
         filterImplicitlyIncludeBaseFieldsInView = getBool(PROPS_MAP, "filter.implicitlyIncludeBaseFieldsInView");
+        filterMatchCacheEngine = getString(PROPS_MAP, "filter.matchCache.engine", "tiered");
+        filterMatchCacheL1Size = getInt(PROPS_MAP, "filter.matchCache.l1Size", 256);
+        filterMatchCacheL2Size = getInt(PROPS_MAP, "filter.matchCache.l2Size", 10000);
         filterPathCacheSpec = getCacheSpec(PROPS_MAP, "filter.pathCache.spec");
         filterPropagateViewToNestedFilters = getBool(PROPS_MAP, "filter.propagateViewToNestedFilters");
+        filterPruneSerializers = getBool(PROPS_MAP, "filter.pruneSerializers", false);
+        filterTiersCompileThreshold = getInt(PROPS_MAP, "filter.tiers.compileThreshold", 100);
+        filterTiersEnabled = getBool(PROPS_MAP, "filter.tiers.enabled", true);
+        filterTiersSpecializeThreshold = getInt(PROPS_MAP, "filter.tiers.specializeThreshold", 10000);
+        parserCanonicalize = getBool(PROPS_MAP, "parser.canonicalize", true);
+        parserEngine = getString(PROPS_MAP, "parser.engine", "descent");
+        parserFailureCacheSpec = getCacheSpec(PROPS_MAP, "parser.failureCache.spec", "maximumSize=1000");
         parserNodeCacheSpec = getCacheSpec(PROPS_MAP, "parser.nodeCache.spec");
+        parserNodeStoreBytes = getInt(PROPS_MAP, "parser.nodeStore.bytes", 0);
+        parserRegexEngine = getString(PROPS_MAP, "parser.regex.engine", "linear");
+        parserRegexFallback = getString(PROPS_MAP, "parser.regex.fallback", "jdk");
         propertyAddNonAnnotatedFieldsToBaseView = getBool(PROPS_MAP, "property.addNonAnnotatedFieldsToBaseView");
+        propertyDescriptorCacheEngine = getString(PROPS_MAP, "property.descriptorCache.engine", "guava");
+        propertyDescriptorCacheMaximumSize = getInt(PROPS_MAP, "property.descriptorCache.maximumSize", 10000);
         propertyDescriptorCacheSpec = getCacheSpec(PROPS_MAP, "property.descriptorCache.spec");
+        propertyIntrospector = getString(PROPS_MAP, "property.introspector", "beans");
+        propertyUseGeneratedBeanInfo = getBool(PROPS_MAP, "property.useGeneratedBeanInfo", true);
+        warmUpJitMaxRounds = getInt(PROPS_MAP, "warmUp.jit.maxRounds", 100);
+        warmUpJitRoundIterations = getInt(PROPS_MAP, "warmUp.jit.roundIterations", 100);
+        warmUpJitStableRounds = getInt(PROPS_MAP, "warmUp.jit.stableRounds", 3);
+        warmUpJitTimeoutMillis = getInt(PROPS_MAP, "warmUp.jit.timeoutMillis", 30000);
     }
 
     private PurifierConfig() {
     }
 
     private static CacheBuilderSpec getCacheSpec(Map<String, String> props, String key) {
+        return getCacheSpec(props, key, "");
+    }
+
+    private static CacheBuilderSpec getCacheSpec(Map<String, String> props, String key, String defaultValue) {
         String value = props.get(key);
 
         if (value == null) {
-            value = "";
+            value = defaultValue;
         }
 
         return CacheBuilderSpec.parse(value);
@@ -75,6 +166,16 @@ public class PurifierConfig {
         return "true".equals(props.get(key));
     }
 
+    private static boolean getBool(Map<String, String> props, String key, boolean defaultValue) {
+        String value = props.get(key);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return "true".equals(value);
+    }
+
     private static int getInt(Map<String, String> props, String key) {
         try {
             return Integer.parseInt(props.get(key));
@@ -83,6 +184,24 @@ public class PurifierConfig {
         }
     }
 
+    private static int getInt(Map<String, String> props, String key, int defaultValue) {
+        if (props.get(key) == null) {
+            return defaultValue;
+        }
+
+        return getInt(props, key);
+    }
+
+    private static String getString(Map<String, String> props, String key, String defaultValue) {
+        String value = props.get(key);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return value.trim();
+    }
+
     private static void loadProps(Map<String, String> propsMap, Map<String, String> sourceMap, String file) {
         ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
         URL url = classLoader.getResource(file);
@@ -116,6 +235,90 @@ public class PurifierConfig {
         }
     }
 
+    /**
+     * Get the maximum number of deep wildcards (<code>**</code>) of a filter expression from a request.
+     *
+     * @return budget, negative for no limit
+     * @see io.github.walkin.purifier.parser.FilterCost
+     */
+    public static int getFilterBudgetMaxDeepWildcards() {
+        return filterBudgetMaxDeepWildcards;
+    }
+
+    /**
+     * Get the maximum number of nesting levels, counting both nested lists and dotted paths of a filter expression
+     * from a request.
+     *
+     * @return budget, negative for no limit
+     * @see io.github.walkin.purifier.parser.FilterCost
+     */
+    public static int getFilterBudgetMaxDepth() {
+        return filterBudgetMaxDepth;
+    }
+
+    /**
+     * Get the maximum number of characters of a filter expression from a request.
+     *
+     * @return budget, negative for no limit
+     * @see io.github.walkin.purifier.parser.FilterCost
+     */
+    public static int getFilterBudgetMaxLength() {
+        return filterBudgetMaxLength;
+    }
+
+    /**
+     * Get the maximum number of regex names of a filter expression from a request.
+     *
+     * @return budget, negative for no limit
+     * @see io.github.walkin.purifier.parser.FilterCost
+     */
+    public static int getFilterBudgetMaxRegexes() {
+        return filterBudgetMaxRegexes;
+    }
+
+    /**
+     * Get the maximum number of wildcard characters and <code>*</code> names of a filter expression from a request.
+     *
+     * @return budget, negative for no limit
+     * @see io.github.walkin.purifier.parser.FilterCost
+     */
+    public static int getFilterBudgetMaxWildcards() {
+        return filterBudgetMaxWildcards;
+    }
+
+    /**
+     * Get what to do with a filter expression from a request that is over budget: "reject" to fail the request, or
+     * "degrade" to use the default filter instead, or to not filter at all if there is none.
+     *
+     * @return budget policy
+     * @see io.github.walkin.purifier.web.RequestPurifierContextProvider
+     */
+    public static String getFilterBudgetPolicy() {
+        return filterBudgetPolicy;
+    }
+
+    /**
+     * Determines whether or not filter expressions are compiled into per-class decision tables instead of being
+     * matched against the node tree for every property.
+     *
+     * @return true if compiled, false if not
+     * @see io.github.walkin.purifier.filter.PurifierPropertyFilter
+     */
+    public static boolean isFilterCompilePlans() {
+        return filterCompilePlans;
+    }
+
+    /**
+     * Get the number of times a pruned set of properties is written before its getters are called through generated
+     * accessors instead of reflection.  Requires pruned serializers, a negative value disables it.
+     *
+     * @return threshold
+     * @see #isFilterPruneSerializers()
+     */
+    public static int getFilterGenerateAccessorsThreshold() {
+        return filterGenerateAccessorsThreshold;
+    }
+
     /**
      * Determines whether or not to include base fields for nested objects
      *
@@ -135,6 +338,35 @@ public class PurifierConfig {
         return filterImplicitlyIncludeBaseFieldsInView;
     }
 
+    /**
+     * Get the engine used to cache path matches in the squiggly filter: "tiered" for a per-thread cache in front of a
+     * shared, size-bounded cache, or "guava" for a single Guava cache built from {@link #getFilterPathCacheSpec()}.
+     *
+     * @return engine name
+     * @see io.github.walkin.purifier.filter.PurifierPropertyFilter
+     */
+    public static String getFilterMatchCacheEngine() {
+        return filterMatchCacheEngine;
+    }
+
+    /**
+     * Get the number of per-thread entries of the tiered match cache.
+     *
+     * @return size
+     */
+    public static int getFilterMatchCacheL1Size() {
+        return filterMatchCacheL1Size;
+    }
+
+    /**
+     * Get the maximum number of shared entries of the tiered match cache.
+     *
+     * @return size
+     */
+    public static int getFilterMatchCacheL2Size() {
+        return filterMatchCacheL2Size;
+    }
+
     /**
      * Get the {@link CacheBuilderSpec} of the path cache in the squiggly filter.
      *
@@ -157,6 +389,84 @@ public class PurifierConfig {
         return filterPropagateViewToNestedFilters;
     }
 
+    /**
+     * Determines whether or not bean serializers write a pre-pruned set of properties instead of calling the filter for
+     * each property.  Requires compiled plans.
+     *
+     * @return true if pruned, false if not
+     * @see io.github.walkin.purifier.filter.PurifierBeanSerializerModifier
+     */
+    public static boolean isFilterPruneSerializers() {
+        return filterPruneSerializers;
+    }
+
+    /**
+     * Get the number of top-level beans a filter has to be used for (per bean class) before it is compiled.  A negative
+     * value keeps filters interpreted.
+     *
+     * @return threshold
+     * @see #isFilterTiersEnabled()
+     */
+    public static int getFilterTiersCompileThreshold() {
+        return filterTiersCompileThreshold;
+    }
+
+    /**
+     * Determines whether or not filters start interpreted and are compiled, then specialized, in the background once
+     * they are used enough.  If not, every filter is compiled (and specialized) right away when enabled.
+     *
+     * @return true if tiered, false if not
+     * @see #isFilterCompilePlans()
+     * @see #isFilterPruneSerializers()
+     */
+    public static boolean isFilterTiersEnabled() {
+        return filterTiersEnabled;
+    }
+
+    /**
+     * Get the number of top-level beans a filter has to be used for (per bean class) before its beans are written by
+     * pruned serializers.  Counts from the first use, a negative value keeps filters compiled.
+     *
+     * @return threshold
+     * @see #isFilterTiersEnabled()
+     */
+    public static int getFilterTiersSpecializeThreshold() {
+        return filterTiersSpecializeThreshold;
+    }
+
+    /**
+     * Determines whether or not parsed filter expressions are put in canonical form, so that equivalent expressions
+     * (eg. id,name and name,id) share the same nodes, matchers and compiled plans.
+     *
+     * @return true if canonicalized, false if not
+     * @see io.github.walkin.purifier.parser.PurifierNodes
+     */
+    public static boolean isParserCanonicalize() {
+        return parserCanonicalize;
+    }
+
+    /**
+     * Get the engine that parses filter expressions: "descent" for the hand-written recursive-descent parser, or
+     * "antlr" for the parser generated from the grammar, which is slower and kept as the reference.
+     *
+     * @return engine name
+     * @see io.github.walkin.purifier.parser.PurifierParser
+     */
+    public static String getParserEngine() {
+        return parserEngine;
+    }
+
+    /**
+     * Get the {@link CacheBuilderSpec} of the cache of filter expressions that failed to parse, so that a bad
+     * expression sent again and again is only parsed once.
+     *
+     * @return spec
+     * @see io.github.walkin.purifier.parser.PurifierParser
+     */
+    public static CacheBuilderSpec getParserFailureCacheSpec() {
+        return parserFailureCacheSpec;
+    }
+
     /**
      * Get the {@link CacheBuilderSpec} of the node cache in the squiggly parser.
      *
@@ -167,6 +477,40 @@ public class PurifierConfig {
         return parserNodeCacheSpec;
     }
 
+    /**
+     * Get the size in bytes of the off-heap node store, which keeps parsed expressions compactly encoded outside of
+     * the heap once they are evicted from the node cache.  The node cache can then be kept small, to the hot
+     * expressions only.
+     *
+     * @return bytes, 0 to not store nodes off-heap
+     * @see io.github.walkin.purifier.parser.PurifierParser
+     */
+    public static int getParserNodeStoreBytes() {
+        return parserNodeStoreBytes;
+    }
+
+    /**
+     * Get the engine that matches regex names: "linear" for the engine that runs in time linear in the length of the
+     * name whatever the pattern, or "jdk" for {@link java.util.regex.Pattern}, which can backtrack exponentially.
+     *
+     * @return regex engine
+     * @see io.github.walkin.purifier.name.RegexName
+     */
+    public static String getParserRegexEngine() {
+        return parserRegexEngine;
+    }
+
+    /**
+     * Get what to do with a regex the linear engine doesn't support, eg. one with lookarounds or backreferences:
+     * "jdk" to match it with {@link java.util.regex.Pattern} anyway, or "reject" to fail the filter.
+     *
+     * @return fallback policy
+     * @see #getParserRegexEngine()
+     */
+    public static String getParserRegexFallback() {
+        return parserRegexFallback;
+    }
+
     /**
      * Determines whether or not non-annotated fields are added to the "base" view.
      *
@@ -177,6 +521,29 @@ public class PurifierConfig {
         return propertyAddNonAnnotatedFieldsToBaseView;
     }
 
+    /**
+     * Get the engine of the descriptor cache in the property view introspector: "guava" for a Guava cache configured
+     * by {@link #getPropertyDescriptorCacheSpec()}, "classValue" to store the descriptors with their classes, read
+     * without locking and unloaded with them, or "bounded" for a cache of at most
+     * {@link #getPropertyDescriptorCacheMaximumSize()} classes that doesn't keep them from being unloaded.
+     *
+     * @return engine
+     * @see BeanInfoIntrospector
+     */
+    public static String getPropertyDescriptorCacheEngine() {
+        return propertyDescriptorCacheEngine;
+    }
+
+    /**
+     * Get the maximum number of classes in the descriptor cache, with the "bounded" engine.
+     *
+     * @return maximum size
+     * @see #getPropertyDescriptorCacheEngine()
+     */
+    public static int getPropertyDescriptorCacheMaximumSize() {
+        return propertyDescriptorCacheMaximumSize;
+    }
+
     /**
      * Get the {@link CacheBuilderSpec} of the descriptor cache in the property view introspector.
      *
@@ -187,6 +554,66 @@ public class PurifierConfig {
         return propertyDescriptorCacheSpec;
     }
 
+    /**
+     * Get how bean properties are found: "beans" with {@link java.beans.Introspector}, or "jackson" from the mapper's
+     * own view of the properties, which agrees with it on naming strategies, mixins and records and doesn't scan
+     * annotations by reflection.
+     *
+     * @return introspector
+     * @see BeanInfoIntrospector#create(com.fasterxml.jackson.databind.ObjectMapper)
+     */
+    public static String getPropertyIntrospector() {
+        return propertyIntrospector;
+    }
+
+    /**
+     * Determines whether the bean infos generated at compile time by the annotation processor are used instead of
+     * introspecting classes with {@link java.beans.Introspector}.
+     *
+     * @return true if used, false if not
+     * @see io.github.walkin.purifier.bean.GeneratedBeanInfo
+     */
+    public static boolean isPropertyUseGeneratedBeanInfo() {
+        return propertyUseGeneratedBeanInfo;
+    }
+
+    /**
+     * Get the maximum number of rounds of synthetic serializations the JIT warm-up runs.
+     *
+     * @return rounds
+     * @see io.github.walkin.purifier.Purifier
+     */
+    public static int getWarmUpJitMaxRounds() {
+        return warmUpJitMaxRounds;
+    }
+
+    /**
+     * Get the number of times a round of the JIT warm-up serializes every sample with every filter.
+     *
+     * @return iterations
+     */
+    public static int getWarmUpJitRoundIterations() {
+        return warmUpJitRoundIterations;
+    }
+
+    /**
+     * Get the number of consecutive rounds without any JIT compilation after which the JIT warm-up stops.
+     *
+     * @return rounds
+     */
+    public static int getWarmUpJitStableRounds() {
+        return warmUpJitStableRounds;
+    }
+
+    /**
+     * Get the time after which the JIT warm-up stops, compiled or not.
+     *
+     * @return milliseconds
+     */
+    public static int getWarmUpJitTimeoutMillis() {
+        return warmUpJitTimeoutMillis;
+    }
+
     /**
      * Gets all the config as a map.
      *
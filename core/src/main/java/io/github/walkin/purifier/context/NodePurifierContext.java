@@ -0,0 +1,49 @@
+package io.github.walkin.purifier.context;
+
+import io.github.walkin.purifier.parser.PurifierNode;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.List;
+
+/**
+ * Squiggly context over nodes that were built instead of parsed, see
+ * {@link io.github.walkin.purifier.parser.FilterBuilder}.
+ */
+@ThreadSafe
+public class NodePurifierContext implements PurifierContext {
+
+    private final Class beanClass;
+
+    private final List<PurifierNode> nodes;
+
+    private final String filter;
+
+    /**
+     * Constructor.
+     *
+     * @param beanClass class of the top-level bean being filtered
+     * @param nodes     the nodes
+     * @param filter    the expression of the nodes
+     */
+    public NodePurifierContext(Class beanClass, List<PurifierNode> nodes, String filter) {
+        this.beanClass = beanClass;
+        this.nodes = nodes;
+        this.filter = filter;
+    }
+
+    @Override
+    public Class getBeanClass() {
+        return beanClass;
+    }
+
+    @Override
+    public List<PurifierNode> getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String getFilter() {
+        return filter;
+    }
+
+}
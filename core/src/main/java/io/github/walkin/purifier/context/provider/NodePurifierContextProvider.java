@@ -0,0 +1,54 @@
+package io.github.walkin.purifier.context.provider;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import io.github.walkin.purifier.context.NodePurifierContext;
+import io.github.walkin.purifier.context.PurifierContext;
+import io.github.walkin.purifier.name.AnyDeepName;
+import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierNodes;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.List;
+
+/**
+ * Provider implementation that takes fixed nodes, eg. built with a
+ * {@link io.github.walkin.purifier.parser.FilterBuilder}, so that nothing is ever parsed.
+ */
+@ThreadSafe
+public class NodePurifierContextProvider implements PurifierContextProvider {
+
+    private final List<PurifierNode> nodes;
+
+    // the filter only recognizes ** by its expression
+    private final String filter;
+
+    public NodePurifierContextProvider(List<PurifierNode> nodes) {
+        this.nodes = nodes;
+        this.filter = nodes == null ? null : PurifierNodes.toFilter(nodes);
+    }
+
+    @Override
+    public PurifierContext getContext(Class beanClass) {
+        return new NodePurifierContext(beanClass, nodes, filter);
+    }
+
+    @Override
+    public boolean isFilteringEnabled() {
+        return filter != null && !AnyDeepName.ID.equals(filter);
+    }
+
+    @Override
+    public void serializeAsIncludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider,
+                                         PropertyWriter writer) throws Exception {
+        writer.serializeAsField(pojo, jgen, provider);
+    }
+
+    @Override
+    public void serializeAsExcludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider,
+                                         PropertyWriter writer) throws Exception {
+        writer.serializeAsOmittedField(pojo, jgen, provider);
+    }
+
+}
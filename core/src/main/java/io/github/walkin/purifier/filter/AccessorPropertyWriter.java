@@ -0,0 +1,171 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+import com.google.common.collect.MapMaker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Property writer that reads the property through a generated accessor instead of reflection.
+ * <p>
+ * The accessor is spun by {@link LambdaMetafactory}, which defines a hidden class calling the getter directly, so the
+ * JIT can inline the call like any other.  Only plain getters are supported, other writers are kept as they are.
+ */
+class AccessorPropertyWriter extends BeanPropertyWriter {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final MethodType FUNCTION_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    // writers are shared by the pruned arrays of every plan, so are their accessors.  A value referencing its key would
+    // keep it, so writers without an accessor map to a marker instead of to themselves
+    private static final ConcurrentMap<BeanPropertyWriter, Object> WRITERS = new MapMaker().weakKeys().makeMap();
+
+    private static final Object NO_ACCESSOR = new Object();
+
+    // not serializable, the writer is replaced by a plain one when serialized
+    private final transient Function<Object, Object> accessor;
+
+    private AccessorPropertyWriter(BeanPropertyWriter src, Function<Object, Object> accessor) {
+        super(src);
+        this.accessor = accessor;
+    }
+
+    /**
+     * Replace the writers that can be read through a generated accessor.
+     *
+     * @param writers writers
+     * @return new array of writers, in the same order
+     */
+    static BeanPropertyWriter[] generate(BeanPropertyWriter[] writers) {
+        BeanPropertyWriter[] generated = new BeanPropertyWriter[writers.length];
+
+        for (int i = 0; i < writers.length; i++) {
+            generated[i] = generate(writers[i]);
+        }
+
+        return generated;
+    }
+
+    private static BeanPropertyWriter generate(BeanPropertyWriter writer) {
+        Object generated = WRITERS.get(writer);
+
+        if (generated == null) {
+            Function<Object, Object> accessor = createAccessor(writer);
+            generated = accessor == null ? NO_ACCESSOR : new AccessorPropertyWriter(writer, accessor);
+            Object existing = WRITERS.putIfAbsent(writer, generated);
+
+            if (existing != null) {
+                generated = existing;
+            }
+        }
+
+        return generated == NO_ACCESSOR ? writer : (BeanPropertyWriter) generated;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> createAccessor(BeanPropertyWriter writer) {
+        // subclasses (unwrapping, virtual, view-restricted...) write themselves differently
+        if (writer.getClass() != BeanPropertyWriter.class) {
+            return null;
+        }
+
+        AnnotatedMember member = writer.getMember();
+
+        if (!(member instanceof AnnotatedMethod) || ((AnnotatedMethod) member).getParameterCount() != 0) {
+            return null;
+        }
+
+        Method getter = ((AnnotatedMethod) member).getAnnotated();
+
+        if (Modifier.isStatic(getter.getModifiers())) {
+            return null;
+        }
+
+        try {
+            Class<?> declaringClass = getter.getDeclaringClass();
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(getter);
+            MethodType instantiatedType = MethodType.methodType(handle.type().wrap().returnType(), declaringClass);
+            CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+                                                          FUNCTION_TYPE, handle, instantiatedType);
+            return (Function<Object, Object>) site.getTarget().invokeExact();
+        } catch (Throwable e) {
+            // inaccessible or unusual getters stay with reflection
+            return null;
+        }
+    }
+
+    @Override
+    public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+        final Object value = accessor.apply(bean);
+
+        // the same as jackson does, without reading the value again
+        if (value == null) {
+            if (_suppressableValue != null && prov.includeFilterSuppressNulls(_suppressableValue)) {
+                return;
+            }
+
+            if (_nullSerializer != null) {
+                gen.writeFieldName(_name);
+                _nullSerializer.serialize(null, gen, prov);
+            }
+
+            return;
+        }
+
+        JsonSerializer<Object> ser = _serializer;
+
+        if (ser == null) {
+            Class<?> cls = value.getClass();
+            PropertySerializerMap map = _dynamicSerializers;
+            ser = map.serializerFor(cls);
+
+            if (ser == null) {
+                ser = _findAndAddDynamic(map, cls, prov);
+            }
+        }
+
+        if (_suppressableValue != null) {
+            if (MARKER_FOR_EMPTY == _suppressableValue) {
+                if (ser.isEmpty(prov, value)) {
+                    return;
+                }
+            } else if (_suppressableValue.equals(value)) {
+                return;
+            }
+        }
+
+        if (value == bean && _handleSelfReference(bean, gen, prov, ser)) {
+            return;
+        }
+
+        gen.writeFieldName(_name);
+
+        if (_typeSerializer == null) {
+            ser.serialize(value, gen, prov);
+        } else {
+            ser.serializeWithType(value, gen, prov, _typeSerializer);
+        }
+    }
+
+    // a plain writer, which restores its reflective access when deserialized
+    private Object writeReplace() {
+        return _new(getFullName());
+    }
+
+}
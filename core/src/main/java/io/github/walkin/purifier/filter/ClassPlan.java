@@ -0,0 +1,117 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.google.common.collect.MapMaker;
+import io.github.walkin.purifier.config.PurifierConfig;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Decision table for the properties of one bean class in one {@link PlanState}.
+ */
+@ThreadSafe
+final class ClassPlan {
+
+    private final PlanState state;
+
+    private final Class beanClass;
+
+    private final ConcurrentMap<String, PlanDecision> decisions = new ConcurrentHashMap<>();
+
+    // keyed by the identity of the serializer's writer array
+    private final ConcurrentMap<BeanPropertyWriter[], PrunedWriters> prunedWriters =
+            new MapMaker().weakKeys().makeMap();
+
+    ClassPlan(PlanState state, Class beanClass) {
+        this.state = state;
+        this.beanClass = beanClass;
+    }
+
+    PlanState getState() {
+        return state;
+    }
+
+    Class getBeanClass() {
+        return beanClass;
+    }
+
+    PlanDecision decide(String propertyName) {
+        PlanDecision decision = decisions.get(propertyName);
+
+        if (decision == null) {
+            // compiling is idempotent, so a racing thread just does the same work twice
+            decision = state.getPlan().compile(state, beanClass, propertyName);
+            decisions.putIfAbsent(propertyName, decision);
+        }
+
+        return decision;
+    }
+
+    /**
+     * Get the writers that are included by this plan.
+     *
+     * @param props all the writers of a serializer for the bean class
+     * @return included writers, in the same order
+     */
+    BeanPropertyWriter[] prune(BeanPropertyWriter[] props) {
+        PrunedWriters pruned = prunedWriters.get(props);
+
+        if (pruned == null) {
+            List<BeanPropertyWriter> included = new ArrayList<>(props.length);
+
+            for (BeanPropertyWriter prop : props) {
+                if (prop != null && decide(prop.getName()).isIncluded()) {
+                    included.add(prop);
+                }
+            }
+
+            pruned = new PrunedWriters(included.toArray(new BeanPropertyWriter[0]));
+            PrunedWriters existing = prunedWriters.putIfAbsent(props, pruned);
+
+            if (existing != null) {
+                pruned = existing;
+            }
+        }
+
+        return pruned.use();
+    }
+
+    // the writers of a hot pruned array are swapped in the background for ones reading through generated accessors
+    private static class PrunedWriters {
+
+        private static final int THRESHOLD = PurifierConfig.getFilterGenerateAccessorsThreshold();
+
+        private volatile BeanPropertyWriter[] writers;
+
+        // racy on purpose, losing a few counts only delays the promotion
+        private int uses;
+
+        private volatile boolean promoted;
+
+        PrunedWriters(BeanPropertyWriter[] writers) {
+            this.writers = writers;
+            this.promoted = THRESHOLD < 0;
+        }
+
+        BeanPropertyWriter[] use() {
+            BeanPropertyWriter[] current = writers;
+
+            if (!promoted && ++uses > THRESHOLD) {
+                promoted = true;
+
+                // generated off the request thread, the current writers keep being used until then
+                if (!FilterTiers.submit(() -> writers = AccessorPropertyWriter.generate(current))) {
+                    promoted = false;
+                }
+            }
+
+            return current;
+        }
+
+    }
+
+}
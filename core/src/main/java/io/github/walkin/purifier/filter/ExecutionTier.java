@@ -0,0 +1,25 @@
+package io.github.walkin.purifier.filter;
+
+/**
+ * How a filter expression is executed for a given root class, from the cheapest to set up to the fastest to run.
+ *
+ * @see FilterTiers
+ */
+enum ExecutionTier {
+
+    /**
+     * Every property is matched against the node tree, through the match cache.
+     */
+    INTERPRETED,
+
+    /**
+     * Properties are decided by the compiled {@link FilterPlan}.
+     */
+    COMPILED,
+
+    /**
+     * Bean serializers write the writers pruned by the compiled plan, read through generated accessors once hot.
+     */
+    SPECIALIZED
+
+}
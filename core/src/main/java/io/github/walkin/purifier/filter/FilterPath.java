@@ -0,0 +1,456 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import io.github.walkin.purifier.context.PurifierContext;
+import io.github.walkin.purifier.parser.PurifierNode;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the path structure in the object graph.
+ * <p>
+ * Instead of being rebuilt for every property, the path is kept per thread and updated incrementally from the
+ * generator's {@link JsonStreamContext}: ancestors that are the same as for the previous property (same context, bean
+ * and name) keep their element, their rolling hash and the plan decisions already made for them.  In steady state
+ * updating the path allocates nothing.
+ * <p>
+ * The path is released once its top-level bean has been written, see {@link #release(JsonGenerator, Object)}, so it
+ * doesn't keep the beans and the context of the last write.  Top-level values written without a bean serializer, like
+ * maps, keep theirs until the thread writes again.
+ */
+@NotThreadSafe
+final class FilterPath {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private static final ThreadLocal<FilterPath> PATHS = ThreadLocal.withInitial(FilterPath::new);
+
+    private static final Reference<JsonGenerator> NO_GENERATOR = new WeakReference<>(null);
+
+    private final Probe probe = new Probe();
+
+    private Reference<JsonGenerator> generator = NO_GENERATOR;
+
+    private JsonStreamContext[] contexts = new JsonStreamContext[INITIAL_CAPACITY];
+
+    private Object[] beans = new Object[INITIAL_CAPACITY];
+
+    private String[] names = new String[INITIAL_CAPACITY];
+
+    private Class[] beanClasses = new Class[INITIAL_CAPACITY];
+
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    private PlanDecision[] decisions = new PlanDecision[INITIAL_CAPACITY];
+
+    private int size;
+
+    // number of leading ancestors whose decision is still valid
+    private int decided;
+
+    private Object contextRoot;
+
+    private PurifierContext context;
+
+    private FilterPlan plan;
+
+    private ExecutionTier tier;
+
+    private FilterPath() {
+    }
+
+    /**
+     * Get the path of the current thread, bound to the given generator.
+     *
+     * @param jgen the generator being written to
+     * @return path
+     */
+    static FilterPath get(JsonGenerator jgen) {
+        FilterPath path = PATHS.get();
+
+        if (path.generator.get() != jgen) {
+            path.reset(jgen);
+        }
+
+        return path;
+    }
+
+    /**
+     * Release the path of the current thread if it was written for the given top-level bean.
+     *
+     * @param jgen the generator the bean was written to
+     * @param bean the bean that was written
+     */
+    static void release(JsonGenerator jgen, Object bean) {
+        FilterPath path = PATHS.get();
+
+        if (path.contextRoot == bean && path.generator.get() == jgen) {
+            path.reset(null);
+        }
+    }
+
+    private void reset(JsonGenerator jgen) {
+        generator = jgen == null ? NO_GENERATOR : new WeakReference<>(jgen);
+        // deeper elements of earlier paths are still there past the size, the arrays are short
+        Arrays.fill(contexts, null);
+        Arrays.fill(beans, null);
+        Arrays.fill(beanClasses, null);
+        Arrays.fill(decisions, null);
+        size = 0;
+        decided = 0;
+        contextRoot = null;
+        context = null;
+        plan = null;
+        tier = null;
+        probe.filter = null;
+    }
+
+    /**
+     * Update the path so that its last element is the given property of the bean currently being written.
+     *
+     * @param propertyName  name of the property being written
+     * @param streamContext the generator's current output context
+     */
+    void update(String propertyName, JsonStreamContext streamContext) {
+        int depth = updateAncestors(streamContext);
+        names[depth] = propertyName;
+        hashes[depth] = hash(depth, propertyName);
+        size = depth + 1;
+    }
+
+    /**
+     * Update the path so that it ends with the ancestors of the bean currently being written, before any of its
+     * properties.  The bean itself is only recorded for {@link #getBeanClass(int)} at index {@link #size()}.
+     *
+     * @param streamContext the generator's current output context, the object context of the bean
+     */
+    void enter(JsonStreamContext streamContext) {
+        size = updateAncestors(streamContext);
+    }
+
+    // returns the depth of the bean owning the stream context
+    private int updateAncestors(JsonStreamContext streamContext) {
+        int depth = 0;
+
+        for (JsonStreamContext sc = streamContext.getParent(); sc != null; sc = sc.getParent()) {
+            if (isElement(sc)) {
+                depth++;
+            }
+        }
+
+        ensureCapacity(depth + 1);
+
+        int ancestors = Math.max(size - 1, 0);
+        int dirty = depth;
+        int idx = depth;
+
+        for (JsonStreamContext sc = streamContext.getParent(); sc != null; sc = sc.getParent()) {
+            if (!isElement(sc)) {
+                continue;
+            }
+
+            idx--;
+
+            String name = sc.getCurrentName();
+            Object bean = sc.getCurrentValue();
+
+            if (idx >= ancestors || contexts[idx] != sc || beans[idx] != bean || !name.equals(names[idx])) {
+                contexts[idx] = sc;
+                beans[idx] = bean;
+                names[idx] = name;
+                beanClasses[idx] = bean.getClass();
+                dirty = idx;
+            }
+        }
+
+        for (int i = dirty; i < depth; i++) {
+            hashes[i] = hash(i, names[i]);
+        }
+
+        if (decided > dirty) {
+            decided = dirty;
+        }
+
+        Object bean = streamContext.getCurrentValue();
+        contexts[depth] = streamContext;
+        beans[depth] = bean;
+        beanClasses[depth] = bean.getClass();
+        return depth;
+    }
+
+    private static boolean isElement(JsonStreamContext sc) {
+        return sc.getCurrentName() != null && sc.getCurrentValue() != null;
+    }
+
+    private int hash(int idx, String name) {
+        return idx == 0 ? name.hashCode() : 31 * hashes[idx - 1] + name.hashCode();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= contexts.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, contexts.length * 2);
+        contexts = Arrays.copyOf(contexts, newCapacity);
+        beans = Arrays.copyOf(beans, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        beanClasses = Arrays.copyOf(beanClasses, newCapacity);
+        hashes = Arrays.copyOf(hashes, newCapacity);
+        decisions = Arrays.copyOf(decisions, newCapacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    String getName(int idx) {
+        return names[idx];
+    }
+
+    Class getBeanClass(int idx) {
+        return beanClasses[idx];
+    }
+
+    // we use the last element because that is where the json stream context started
+    Class getBeanClass() {
+        return beanClasses[size - 1];
+    }
+
+    // maps aren't cachable
+    boolean isCachable() {
+        Class beanClass = getBeanClass();
+        return beanClass != null && !Map.class.isAssignableFrom(beanClass);
+    }
+
+    /**
+     * Get the context of the top-level bean, if it was set for the current top-level bean.
+     *
+     * @return context or null
+     */
+    PurifierContext getContext() {
+        return beans[0] == contextRoot ? context : null;
+    }
+
+    void setContext(PurifierContext context, ExecutionTier tier) {
+        this.contextRoot = beans[0];
+        this.context = context;
+        this.tier = tier;
+        this.plan = null;
+        this.decided = 0;
+    }
+
+    /**
+     * Get the tier the current top-level bean is written in, fixed when its context was set.
+     *
+     * @return tier
+     */
+    ExecutionTier getTier() {
+        return tier;
+    }
+
+    FilterPlan getPlan() {
+        return plan;
+    }
+
+    void setPlan(FilterPlan plan) {
+        this.plan = plan;
+        this.decided = 0;
+    }
+
+    /**
+     * Get the plan decision previously made for an ancestor.
+     *
+     * @param idx index of the ancestor
+     * @return decision or null if it has to be made again
+     */
+    PlanDecision getDecision(int idx) {
+        return idx < decided ? decisions[idx] : null;
+    }
+
+    // decisions are always made in order, starting at the root
+    void setDecision(int idx, PlanDecision decision) {
+        decisions[idx] = decision;
+        decided = idx + 1;
+    }
+
+    /**
+     * Get a key for the current path and filter that can be used to look up cached matches.  The returned key is a
+     * view of this path and must not be stored.
+     * <p>
+     * The filter is identified by its nodes rather than its expression, so equivalent expressions share their matches.
+     *
+     * @param filter parsed filter
+     * @return key
+     * @see #newMatchKey(List)
+     */
+    MatchKey getMatchKey(List<PurifierNode> filter) {
+        // the same nodes are looked up for every property of a write, they are only hashed once
+        if (probe.filter != filter) {
+            probe.filter = filter;
+            probe.filterHash = filter.hashCode();
+        }
+
+        return probe;
+    }
+
+    /**
+     * Get an immutable key for the current path and filter.
+     *
+     * @param filter parsed filter
+     * @return key
+     */
+    MatchKey newMatchKey(List<PurifierNode> filter) {
+        int filterHash = probe.filter == filter ? probe.filterHash : filter.hashCode();
+        return new Snapshot(Arrays.copyOf(names, size), getBeanClass(), hashes[size - 1], filter, filterHash);
+    }
+
+    /**
+     * Key of a match: the names along the path, the class of the bean owning the last property and the filter.
+     */
+    abstract static class MatchKey {
+
+        abstract int size();
+
+        abstract String getName(int idx);
+
+        abstract Class getBeanClass();
+
+        abstract int getPathHash();
+
+        abstract List<PurifierNode> getFilter();
+
+        abstract int getFilterHash();
+
+        @Override
+        public final boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof MatchKey))
+                return false;
+
+            MatchKey key = (MatchKey) o;
+            int size = size();
+
+            if (size != key.size() || getPathHash() != key.getPathHash() || getFilterHash() != key.getFilterHash())
+                return false;
+            if (getBeanClass() != key.getBeanClass() || !getFilter().equals(key.getFilter()))
+                return false;
+
+            for (int i = size - 1; i >= 0; i--) {
+                if (!getName(i).equals(key.getName(i))) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public final int hashCode() {
+            int result = getPathHash();
+            Class beanClass = getBeanClass();
+            result = 31 * result + (beanClass != null ? beanClass.hashCode() : 0);
+            result = 31 * result + getFilterHash();
+            return result;
+        }
+
+    }
+
+    private class Probe extends MatchKey {
+
+        private List<PurifierNode> filter;
+
+        private int filterHash;
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        String getName(int idx) {
+            return names[idx];
+        }
+
+        @Override
+        Class getBeanClass() {
+            return FilterPath.this.getBeanClass();
+        }
+
+        @Override
+        int getPathHash() {
+            return hashes[size - 1];
+        }
+
+        @Override
+        List<PurifierNode> getFilter() {
+            return filter;
+        }
+
+        @Override
+        int getFilterHash() {
+            return filterHash;
+        }
+
+    }
+
+    private static class Snapshot extends MatchKey {
+
+        private final String[] names;
+
+        private final Class beanClass;
+
+        private final int pathHash;
+
+        private final List<PurifierNode> filter;
+
+        private final int filterHash;
+
+        Snapshot(String[] names, Class beanClass, int pathHash, List<PurifierNode> filter, int filterHash) {
+            this.names = names;
+            this.beanClass = beanClass;
+            this.pathHash = pathHash;
+            this.filter = filter;
+            this.filterHash = filterHash;
+        }
+
+        @Override
+        int size() {
+            return names.length;
+        }
+
+        @Override
+        String getName(int idx) {
+            return names[idx];
+        }
+
+        @Override
+        Class getBeanClass() {
+            return beanClass;
+        }
+
+        @Override
+        int getPathHash() {
+            return pathHash;
+        }
+
+        @Override
+        List<PurifierNode> getFilter() {
+            return filter;
+        }
+
+        @Override
+        int getFilterHash() {
+            return filterHash;
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+package io.github.walkin.purifier.filter;
+
+import io.github.walkin.purifier.parser.PurifierNode;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compiled form of a filter expression.
+ * <p>
+ * The plan is a state machine whose states are the positions the matcher can be in while walking a path through the
+ * object graph.  Each state keeps a decision table per bean class, so once a property has been seen at a given depth
+ * deciding it again is a single lookup instead of a walk over the node tree.
+ * <p>
+ * A plan is kept by the node list it was compiled from, and keeps the bean classes it decided for, until the parser's
+ * cache evicts the list or its filter is collected.
+ */
+@ThreadSafe
+final class FilterPlan {
+
+    // the node list keeps the plan for as long as the filter is referenced elsewhere
+    private final WeakReference<PurifierPropertyFilter> filter;
+
+    private final ConcurrentMap<StateKey, PlanState> states = new ConcurrentHashMap<>();
+
+    private final PlanState root;
+
+    private final PlanDecision rootDecision;
+
+    private final Set<Class> rootClasses = ConcurrentHashMap.newKeySet();
+
+    FilterPlan(PurifierPropertyFilter filter, List<PurifierNode> nodes) {
+        this.filter = new WeakReference<>(filter);
+        this.root = getState(nodes, null, null);
+        this.rootDecision = PlanDecision.descend(root);
+    }
+
+    /**
+     * Get the state the plan starts in for the top-level bean.
+     *
+     * @return root state
+     */
+    PlanState getRoot() {
+        return root;
+    }
+
+    /**
+     * Get the nodes the plan was compiled from.
+     *
+     * @return nodes
+     */
+    List<PurifierNode> getNodes() {
+        return root.getNodes();
+    }
+
+    /**
+     * Get the decision that leads to the root state, for walks over an empty path.
+     *
+     * @return root decision
+     */
+    PlanDecision getRootDecision() {
+        return rootDecision;
+    }
+
+    /**
+     * Record the class of a top-level bean the plan is used for.
+     *
+     * @param rootClass the class, or null if unknown
+     */
+    void addRootClass(Class rootClass) {
+        if (rootClass != null && !rootClasses.contains(rootClass)) {
+            rootClasses.add(rootClass);
+        }
+    }
+
+    /**
+     * Get the classes of the top-level beans the plan was used for.
+     *
+     * @return classes
+     */
+    Set<Class> getRootClasses() {
+        return rootClasses;
+    }
+
+    /**
+     * Get the (shared) state for the given matcher position.
+     *
+     * @param nodes     the nodes to match against
+     * @param viewNode  the active view node, if any
+     * @param viewStack the views collected so far, if any
+     * @return state
+     */
+    PlanState getState(List<PurifierNode> nodes, PurifierNode viewNode, Set<String> viewStack) {
+        StateKey key = new StateKey(nodes, viewNode, viewStack);
+        PlanState state = states.get(key);
+
+        if (state == null) {
+            state = new PlanState(this, nodes, viewNode, viewStack);
+            PlanState existing = states.putIfAbsent(key, state);
+
+            if (existing != null) {
+                state = existing;
+            }
+        }
+
+        return state;
+    }
+
+    PlanDecision compile(PlanState state, Class beanClass, String propertyName) {
+        PurifierPropertyFilter filter = this.filter.get();
+
+        if (filter == null) {
+            throw new IllegalStateException("The filter of the plan was collected");
+        }
+
+        return filter.decide(state, beanClass, propertyName);
+    }
+
+    // nodes and view nodes are compared by identity, they always come from the same parsed tree
+    private static class StateKey {
+
+        private final List<PurifierNode> nodes;
+
+        private final PurifierNode viewNode;
+
+        private final Set<String> viewStack;
+
+        StateKey(List<PurifierNode> nodes, PurifierNode viewNode, Set<String> viewStack) {
+            this.nodes = nodes;
+            this.viewNode = viewNode;
+            this.viewStack = viewStack;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            StateKey key = (StateKey) o;
+            return nodes == key.nodes && viewNode == key.viewNode && Objects.equals(viewStack, key.viewStack);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(nodes);
+            result = 31 * result + System.identityHashCode(viewNode);
+            result = 31 * result + Objects.hashCode(viewStack);
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,155 @@
+package io.github.walkin.purifier.filter;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierNodeList;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts how often each filter expression is used per root class and promotes it to a faster {@link ExecutionTier}
+ * when it gets hot.
+ * <p>
+ * One-off filters stay interpreted and never pay for compilation, while hot ones are compiled and then specialized.
+ * Promotions run on a background thread, the request that crosses a threshold keeps going in its current tier.
+ */
+@ThreadSafe
+final class FilterTiers {
+
+    private static final int QUEUE_SIZE = 1024;
+
+    // a single daemon thread, promotions that don't fit in the queue are retried by a later request
+    private static final ThreadPoolExecutor PROMOTER = new ThreadPoolExecutor(
+            1, 1, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE),
+            new ThreadFactoryBuilder().setDaemon(true).setNameFormat("purifier-promoter-%d").build());
+
+    static {
+        PROMOTER.allowCoreThreadTimeOut(true);
+    }
+
+    private final PurifierPropertyFilter filter;
+
+    private final ExecutionTier maxTier;
+
+    private final int compileThreshold;
+
+    private final int specializeThreshold;
+
+    FilterTiers(PurifierPropertyFilter filter) {
+        this.filter = filter;
+        this.maxTier = PurifierConfig.isFilterPruneSerializers() ? ExecutionTier.SPECIALIZED : ExecutionTier.COMPILED;
+        this.compileThreshold = PurifierConfig.getFilterTiersCompileThreshold();
+        this.specializeThreshold = PurifierConfig.getFilterTiersSpecializeThreshold();
+    }
+
+    /**
+     * Submit a promotion to the background thread.
+     *
+     * @param promotion promotion
+     * @return true if submitted, false if the queue is full
+     */
+    static boolean submit(Runnable promotion) {
+        try {
+            PROMOTER.execute(promotion);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Record one use of a filter for a top-level bean.
+     *
+     * @param nodes     the parsed filter
+     * @param rootClass class of the top-level bean
+     * @return the tier to execute this use in
+     */
+    ExecutionTier record(List<PurifierNode> nodes, Class rootClass) {
+        return getCounter(nodes, rootClass).record(this, nodes);
+    }
+
+    /**
+     * Put a filter in the fastest tier for a top-level bean class right away, eg. when it is known to be hot.
+     *
+     * @param nodes     the parsed filter
+     * @param rootClass class of the top-level bean
+     */
+    void promote(List<PurifierNode> nodes, Class rootClass) {
+        getCounter(nodes, rootClass).promote(this, nodes, maxTier);
+    }
+
+    // kept by the node list, like the plans, so the counters of evicted filters go with them
+    private Counter getCounter(List<PurifierNode> nodes, Class rootClass) {
+        ConcurrentMap<Class, Counter> classCounters = ((PurifierNodeList) nodes).getDerived(
+                this, key -> new ConcurrentHashMap<Class, Counter>());
+        Counter counter = classCounters.get(rootClass);
+
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = classCounters.putIfAbsent(rootClass, counter);
+
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+
+        return counter;
+    }
+
+    private int getThreshold(ExecutionTier tier) {
+        return tier == ExecutionTier.COMPILED ? compileThreshold : specializeThreshold;
+    }
+
+    // static, the node list keeps the counters for as long as the filter is referenced elsewhere
+    private static class Counter {
+
+        private final AtomicInteger uses = new AtomicInteger();
+
+        private volatile ExecutionTier tier = ExecutionTier.INTERPRETED;
+
+        private volatile boolean promoting;
+
+        ExecutionTier record(FilterTiers tiers, List<PurifierNode> nodes) {
+            ExecutionTier current = tier;
+
+            // hot filters stop counting, so they don't contend on the counter
+            if (current == tiers.maxTier || promoting) {
+                return current;
+            }
+
+            ExecutionTier next = ExecutionTier.values()[current.ordinal() + 1];
+            int threshold = tiers.getThreshold(next);
+
+            if (threshold >= 0 && uses.incrementAndGet() >= threshold) {
+                promoting = true;
+
+                if (!submit(() -> promote(tiers, nodes, next))) {
+                    promoting = false;
+                }
+            }
+
+            return current;
+        }
+
+        private void promote(FilterTiers tiers, List<PurifierNode> nodes, ExecutionTier next) {
+            if (next == ExecutionTier.COMPILED) {
+                // compile the root state now, the rest of the plan fills in on use
+                tiers.filter.getPlan(nodes);
+            }
+
+            tier = next;
+            promoting = false;
+        }
+
+    }
+
+}
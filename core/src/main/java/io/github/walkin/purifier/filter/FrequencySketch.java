@@ -0,0 +1,102 @@
+package io.github.walkin.purifier.filter;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A count-min sketch with 4-bit counters that estimates how often a key has been seen recently.  Counters are halved
+ * once enough increments have been recorded, so old popularity fades away.
+ * <p>
+ * Updates are deliberately unsynchronized: losing an increment under contention only makes the estimate slightly less
+ * accurate.
+ */
+@ThreadSafe
+final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int length = Integer.highestOneBit(Math.max(maximumSize, 16) - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * Math.max(maximumSize, 16);
+    }
+
+    /**
+     * Get the estimated number of times the hash has been seen, at most 15.
+     *
+     * @param hash hash code of the key
+     * @return frequency
+     */
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+
+        for (int row = 0; row < SEEDS.length; row++) {
+            long rowHash = rowHash(hash, row);
+            int count = (int) ((table[index(rowHash)] >>> offset(rowHash)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Record an occurrence of the hash.
+     *
+     * @param hash hash code of the key
+     */
+    void increment(int hash) {
+        boolean added = false;
+
+        for (int row = 0; row < SEEDS.length; row++) {
+            long rowHash = rowHash(hash, row);
+            int index = index(rowHash);
+            int offset = offset(rowHash);
+
+            if (((table[index] >>> offset) & 0xfL) < MAX_COUNT) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        additions = additions / 2;
+    }
+
+    private static long rowHash(int hash, int row) {
+        long rowHash = (hash + SEEDS[row]) * SEEDS[row];
+        return rowHash + (rowHash >>> 32);
+    }
+
+    private int index(long rowHash) {
+        return (int) rowHash & tableMask;
+    }
+
+    // each long holds 16 counters of 4 bits
+    private static int offset(long rowHash) {
+        return (int) (rowHash >>> 60) << 2;
+    }
+
+}
@@ -0,0 +1,40 @@
+package io.github.walkin.purifier.filter;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheBuilderSpec;
+import io.github.walkin.purifier.metric.source.GuavaCachePurifierMetricsSource;
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Match cache backed by a single Guava {@link Cache}.
+ */
+@ThreadSafe
+final class GuavaMatchCache implements MatchCache {
+
+    private final Cache<FilterPath.MatchKey, Boolean> cache;
+
+    private final PurifierMetricsSource metricsSource;
+
+    GuavaMatchCache(String metricsPrefix, CacheBuilderSpec spec) {
+        this.cache = CacheBuilder.from(spec).build();
+        this.metricsSource = new GuavaCachePurifierMetricsSource(metricsPrefix, cache);
+    }
+
+    @Override
+    public Boolean getIfPresent(FilterPath.MatchKey key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(FilterPath.MatchKey key, boolean match) {
+        cache.put(key, match);
+    }
+
+    @Override
+    public PurifierMetricsSource getMetricsSource() {
+        return metricsSource;
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.github.walkin.purifier.filter;
+
+import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
+
+/**
+ * Caches the result of matching a path against a filter expression.
+ * <p>
+ * Lookups are made with keys that are views of a {@link FilterPath}, so implementations must not hold on to the key
+ * passed to {@link #getIfPresent(FilterPath.MatchKey)}.
+ */
+interface MatchCache {
+
+    /**
+     * Create the engine configured by {@link PurifierConfig#getFilterMatchCacheEngine()}.
+     *
+     * @param metricsPrefix prefix of the cache metrics
+     * @return cache
+     */
+    static MatchCache create(String metricsPrefix) {
+        String engine = PurifierConfig.getFilterMatchCacheEngine();
+
+        switch (engine) {
+            case "tiered":
+                return new TieredMatchCache(metricsPrefix, PurifierConfig.getFilterMatchCacheL1Size(),
+                                            PurifierConfig.getFilterMatchCacheL2Size());
+            case "guava":
+                return new GuavaMatchCache(metricsPrefix, PurifierConfig.getFilterPathCacheSpec());
+            default:
+                throw new IllegalArgumentException("Unrecognized match cache engine " + engine);
+        }
+    }
+
+    /**
+     * Get a previously cached match.
+     *
+     * @param key key of the match, possibly a view that must not be stored
+     * @return match or null if not cached
+     */
+    Boolean getIfPresent(FilterPath.MatchKey key);
+
+    /**
+     * Cache a match.
+     *
+     * @param key   immutable key of the match
+     * @param match the match
+     */
+    void put(FilterPath.MatchKey key, boolean match);
+
+    PurifierMetricsSource getMetricsSource();
+
+}
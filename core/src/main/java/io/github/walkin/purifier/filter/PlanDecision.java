@@ -0,0 +1,60 @@
+package io.github.walkin.purifier.filter;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * The outcome of matching one path element in a {@link FilterPlan}.
+ */
+@ThreadSafe
+final class PlanDecision {
+
+    /**
+     * The property is excluded, and so is everything beneath it.
+     */
+    static final PlanDecision EXCLUDE = new PlanDecision(false, true, null);
+
+    /**
+     * The property is included, and so is everything beneath it (eg. **).
+     */
+    static final PlanDecision INCLUDE_ALL = new PlanDecision(true, true, null);
+
+    private final boolean included;
+
+    private final boolean terminal;
+
+    private final PlanState next;
+
+    private PlanDecision(boolean included, boolean terminal, PlanState next) {
+        this.included = included;
+        this.terminal = terminal;
+        this.next = next;
+    }
+
+    /**
+     * The property is included and nested properties continue matching from the given state.
+     *
+     * @param next the state for nested properties
+     * @return decision
+     */
+    static PlanDecision descend(PlanState next) {
+        return new PlanDecision(true, false, next);
+    }
+
+    boolean isIncluded() {
+        return included;
+    }
+
+    /**
+     * Says whether the decision also holds for every nested property.
+     *
+     * @return true if terminal, false if nested properties need to be matched
+     */
+    boolean isTerminal() {
+        return terminal;
+    }
+
+    PlanState getNext() {
+        return next;
+    }
+
+}
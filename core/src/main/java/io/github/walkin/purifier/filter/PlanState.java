@@ -0,0 +1,146 @@
+package io.github.walkin.purifier.filter;
+
+import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierNodeMatcher;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A position in a {@link FilterPlan}: the nodes left to match and the view that is active, if any.
+ */
+@ThreadSafe
+final class PlanState {
+
+    private final FilterPlan plan;
+
+    private final List<PurifierNode> nodes;
+
+    private final PurifierNode viewNode;
+
+    private final Set<String> viewStack;
+
+    private final boolean excludesAll;
+
+    private final boolean includesAll;
+
+    private final ConcurrentMap<Class, ClassPlan> classPlans = new ConcurrentHashMap<>();
+
+    private volatile PurifierNodeMatcher matcher;
+
+    PlanState(FilterPlan plan, List<PurifierNode> nodes, PurifierNode viewNode, Set<String> viewStack) {
+        this.plan = plan;
+        this.nodes = nodes;
+        this.viewNode = viewNode;
+        this.viewStack = viewStack;
+
+        boolean viewMode = viewNode != null && !viewNode.isSquiggly();
+        this.excludesAll = !viewMode && nodes.isEmpty();
+        this.includesAll = !viewMode && !nodes.isEmpty() && isAllAnyDeep(nodes);
+    }
+
+    // ** matches everything with the lowest strength, so it only decides alone
+    private static boolean isAllAnyDeep(List<PurifierNode> nodes) {
+        for (PurifierNode node : nodes) {
+            if (!node.isAnyDeep()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    FilterPlan getPlan() {
+        return plan;
+    }
+
+    List<PurifierNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the matcher of the nodes left to match.
+     *
+     * @return matcher
+     */
+    PurifierNodeMatcher getMatcher() {
+        PurifierNodeMatcher matcher = this.matcher;
+
+        if (matcher == null) {
+            matcher = PurifierNodeMatcher.of(nodes);
+            this.matcher = matcher;
+        }
+
+        return matcher;
+    }
+
+    PurifierNode getViewNode() {
+        return viewNode;
+    }
+
+    Set<String> getViewStack() {
+        return viewStack;
+    }
+
+    /**
+     * Says whether every property in this state is excluded, whatever its bean class or name.
+     *
+     * @return true if everything is excluded
+     */
+    boolean isExcludesAll() {
+        return excludesAll;
+    }
+
+    /**
+     * Says whether every property in this state is included along with everything beneath it.
+     *
+     * @return true if everything is included
+     */
+    boolean isIncludesAll() {
+        return includesAll;
+    }
+
+    /**
+     * Decide what to do with a property of a bean in this state.
+     *
+     * @param beanClass    the class of the bean that owns the property
+     * @param propertyName the name of the property
+     * @return decision
+     */
+    PlanDecision decide(Class beanClass, String propertyName) {
+        if (excludesAll) {
+            return PlanDecision.EXCLUDE;
+        }
+
+        if (includesAll) {
+            return PlanDecision.INCLUDE_ALL;
+        }
+
+        // map keys are unbounded, so they are never put in a decision table
+        if (beanClass == null || Map.class.isAssignableFrom(beanClass)) {
+            return plan.compile(this, beanClass, propertyName);
+        }
+
+        return getClassPlan(beanClass).decide(propertyName);
+    }
+
+    ClassPlan getClassPlan(Class beanClass) {
+        ClassPlan classPlan = classPlans.get(beanClass);
+
+        if (classPlan == null) {
+            classPlan = new ClassPlan(this, beanClass);
+            ClassPlan existing = classPlans.putIfAbsent(beanClass, classPlan);
+
+            if (existing != null) {
+                classPlan = existing;
+            }
+        }
+
+        return classPlan;
+    }
+
+}
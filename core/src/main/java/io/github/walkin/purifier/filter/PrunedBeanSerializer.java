@@ -0,0 +1,141 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.AnyGetterWriter;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.ObjectIdWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+import io.github.walkin.purifier.config.PurifierConfig;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Bean serializer that writes only the properties a {@link PurifierPropertyFilter} includes, without calling the
+ * filter for each of them.
+ * <p>
+ * The writers are pruned once per position in the filter's compiled plan and bean class, then reused.  Anything the
+ * pruning can't handle falls back to regular filtering, and so does everything unless
+ * {@link PurifierConfig#isFilterPruneSerializers()}.
+ * <p>
+ * Once the properties of a top-level bean are written, the serializer releases the filter's path of the thread, which
+ * would otherwise keep the bean until the thread writes again.
+ */
+class PrunedBeanSerializer extends BeanSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    PrunedBeanSerializer(BeanSerializerBase src) {
+        super(src);
+    }
+
+    @Override
+    protected void serializeFieldsFiltered(Object bean, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        try {
+            serializeFieldsPruned(bean, gen, provider);
+        } finally {
+            FilterPath.release(gen, bean);
+        }
+    }
+
+    private void serializeFieldsPruned(Object bean, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        PropertyFilter filter = findPropertyFilter(provider, _propertyFilterId, bean);
+        BeanPropertyWriter[] props = (_filteredProps != null && provider.getActiveView() != null)
+                ? _filteredProps : _props;
+
+        if (!serializeFieldsPruned(this, props, _anyGetterWriter, filter, bean, gen, provider)) {
+            super.serializeFieldsFiltered(bean, gen, provider);
+        }
+    }
+
+    /**
+     * Write the properties of a bean that the filter includes, if it can prune them.
+     *
+     * @param serializer      the bean's serializer
+     * @param props           the writers of the serializer, for the active view
+     * @param anyGetterWriter the any getter writer of the serializer, if any
+     * @param filter          the filter of the bean
+     * @param bean            the bean being written
+     * @param gen             the generator
+     * @param provider        the serializer provider
+     * @return true if written, false if the bean has to be filtered property by property
+     * @throws IOException if writing fails
+     */
+    static boolean serializeFieldsPruned(BeanSerializerBase serializer, BeanPropertyWriter[] props,
+                                         AnyGetterWriter anyGetterWriter, PropertyFilter filter, Object bean,
+                                         JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (!PurifierConfig.isFilterPruneSerializers() || !(filter instanceof PurifierPropertyFilter)
+                || !gen.canOmitFields()) {
+            return false;
+        }
+
+        props = ((PurifierPropertyFilter) filter).prune(props, bean, gen);
+
+        if (props == null) {
+            return false;
+        }
+
+        int i = 0;
+
+        try {
+            for (final int len = props.length; i < len; ++i) {
+                props[i].serializeAsField(bean, gen, provider);
+                PurifierPropertyFilter.restoreCurrentValue(bean, gen, props[i]);
+            }
+
+            if (anyGetterWriter != null) {
+                anyGetterWriter.getAndFilter(bean, gen, provider, filter);
+            }
+        } catch (Exception e) {
+            String name = (i == props.length) ? "[anySetter]" : props[i].getName();
+            serializer.wrapAndThrow(provider, e, bean, name);
+        } catch (StackOverflowError e) {
+            JsonMappingException mapE = new JsonMappingException(gen, "Infinite recursion (StackOverflowError)", e);
+            String name = (i == props.length) ? "[anySetter]" : props[i].getName();
+            mapE.prependPath(bean, name);
+            throw mapE;
+        }
+
+        return true;
+    }
+
+    @Override
+    public JsonSerializer<Object> unwrappingSerializer(NameTransformer unwrapper) {
+        return new PrunedUnwrappingBeanSerializer(this, unwrapper);
+    }
+
+    @Override
+    public BeanSerializerBase withObjectIdWriter(ObjectIdWriter objectIdWriter) {
+        return new PrunedBeanSerializer(super.withObjectIdWriter(objectIdWriter));
+    }
+
+    @Override
+    public BeanSerializerBase withFilterId(Object filterId) {
+        return new PrunedBeanSerializer(super.withFilterId(filterId));
+    }
+
+    @Override
+    protected BeanSerializerBase withByNameInclusion(Set<String> toIgnore, Set<String> toInclude) {
+        return new PrunedBeanSerializer(super.withByNameInclusion(toIgnore, toInclude));
+    }
+
+    @Override
+    protected BeanSerializerBase withProperties(BeanPropertyWriter[] properties,
+                                                BeanPropertyWriter[] filteredProperties) {
+        return new PrunedBeanSerializer(super.withProperties(properties, filteredProperties));
+    }
+
+    @Override
+    public String toString() {
+        return "PrunedBeanSerializer for " + handledType().getName();
+    }
+
+}
@@ -0,0 +1,89 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.ObjectIdWriter;
+import com.fasterxml.jackson.databind.ser.impl.UnwrappingBeanSerializer;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * The {@link PrunedBeanSerializer} of a @JsonUnwrapped property.
+ */
+class PrunedUnwrappingBeanSerializer extends UnwrappingBeanSerializer {
+
+    private static final long serialVersionUID = 1L;
+
+    PrunedUnwrappingBeanSerializer(BeanSerializerBase src, NameTransformer unwrapper) {
+        super(src, unwrapper);
+    }
+
+    private PrunedUnwrappingBeanSerializer(UnwrappingBeanSerializer src, ObjectIdWriter objectIdWriter) {
+        super(src, objectIdWriter);
+    }
+
+    private PrunedUnwrappingBeanSerializer(UnwrappingBeanSerializer src, ObjectIdWriter objectIdWriter,
+                                           Object filterId) {
+        super(src, objectIdWriter, filterId);
+    }
+
+    private PrunedUnwrappingBeanSerializer(UnwrappingBeanSerializer src, Set<String> toIgnore,
+                                           Set<String> toInclude) {
+        super(src, toIgnore, toInclude);
+    }
+
+    private PrunedUnwrappingBeanSerializer(UnwrappingBeanSerializer src, BeanPropertyWriter[] properties,
+                                           BeanPropertyWriter[] filteredProperties) {
+        super(src, properties, filteredProperties);
+    }
+
+    @Override
+    protected void serializeFieldsFiltered(Object bean, JsonGenerator gen, SerializerProvider provider)
+            throws IOException {
+        PropertyFilter filter = findPropertyFilter(provider, _propertyFilterId, bean);
+        BeanPropertyWriter[] props = (_filteredProps != null && provider.getActiveView() != null)
+                ? _filteredProps : _props;
+
+        if (!PrunedBeanSerializer.serializeFieldsPruned(this, props, _anyGetterWriter, filter, bean, gen, provider)) {
+            super.serializeFieldsFiltered(bean, gen, provider);
+        }
+    }
+
+    @Override
+    public JsonSerializer<Object> unwrappingSerializer(NameTransformer unwrapper) {
+        return new PrunedUnwrappingBeanSerializer(this, unwrapper);
+    }
+
+    @Override
+    public BeanSerializerBase withObjectIdWriter(ObjectIdWriter objectIdWriter) {
+        return new PrunedUnwrappingBeanSerializer(this, objectIdWriter);
+    }
+
+    @Override
+    public BeanSerializerBase withFilterId(Object filterId) {
+        return new PrunedUnwrappingBeanSerializer(this, _objectIdWriter, filterId);
+    }
+
+    @Override
+    protected BeanSerializerBase withByNameInclusion(Set<String> toIgnore, Set<String> toInclude) {
+        return new PrunedUnwrappingBeanSerializer(this, toIgnore, toInclude);
+    }
+
+    @Override
+    protected BeanSerializerBase withProperties(BeanPropertyWriter[] properties,
+                                                BeanPropertyWriter[] filteredProperties) {
+        return new PrunedUnwrappingBeanSerializer(this, properties, filteredProperties);
+    }
+
+    @Override
+    public String toString() {
+        return "PrunedUnwrappingBeanSerializer for " + handledType().getName();
+    }
+
+}
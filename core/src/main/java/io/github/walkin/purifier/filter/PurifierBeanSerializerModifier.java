@@ -0,0 +1,35 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.ser.BeanSerializer;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Replaces bean serializers with ones that write a pre-pruned set of properties when the bean is filtered by a
+ * {@link PurifierPropertyFilter}, instead of asking the filter about each property, and that release what the filter
+ * keeps of a top-level bean once it is written.  Registered along with the filter, once per mapper, if
+ * {@link io.github.walkin.purifier.config.PurifierConfig#isFilterPruneSerializers()}.
+ * <p>
+ * The filter still has to be registered as usual: maps and other non-bean values keep being filtered per property.
+ */
+@ThreadSafe
+public class PurifierBeanSerializerModifier extends BeanSerializerModifier {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc,
+                                              JsonSerializer<?> serializer) {
+        // subclasses of BeanSerializer are left alone, they may serialize fields their own way
+        if (serializer.getClass() == BeanSerializer.class) {
+            return new PrunedBeanSerializer((BeanSerializerBase) serializer);
+        }
+
+        return serializer;
+    }
+
+}
@@ -6,22 +6,25 @@ import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
 import com.fasterxml.jackson.databind.ser.PropertyWriter;
 import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
 import io.github.walkin.purifier.bean.BeanInfo;
 import io.github.walkin.purifier.bean.BeanInfoIntrospector;
+import io.github.walkin.purifier.bean.TypeGraph;
 import io.github.walkin.purifier.config.PurifierConfig;
 import io.github.walkin.purifier.context.PurifierContext;
+import io.github.walkin.purifier.context.provider.AbstractPurifierContextProvider;
+import io.github.walkin.purifier.context.provider.NodePurifierContextProvider;
 import io.github.walkin.purifier.context.provider.PurifierContextProvider;
-import io.github.walkin.purifier.metric.source.GuavaCachePurifierMetricsSource;
 import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
 import io.github.walkin.purifier.name.AnyDeepName;
 import io.github.walkin.purifier.name.ExactName;
 import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierNodeList;
+import io.github.walkin.purifier.parser.PurifierNodeMatcher;
 import io.github.walkin.purifier.view.PropertyView;
 import net.jcip.annotations.ThreadSafe;
-import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.*;
 
@@ -70,23 +73,41 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
     /**
      * Cache that stores previous evalulated matches.
      */
-    private static final Cache<Pair<Path, String>, Boolean> MATCH_CACHE;
+    private static final MatchCache MATCH_CACHE;
 
     private static final PurifierMetricsSource METRICS_SOURCE;
 
+    private static final BeanPropertyWriter[] NO_PROPS = new BeanPropertyWriter[0];
+
     private static final List<PurifierNode> BASE_VIEW_NODES = Collections.singletonList(
             new PurifierNode(new ExactName(PropertyView.BASE_VIEW), Collections.<PurifierNode>emptyList(), false, true,
                              false));
 
+    private static final PurifierNodeMatcher BASE_VIEW_MATCHER = PurifierNodeMatcher.of(BASE_VIEW_NODES);
+
+    private static final Set<String> BASE_VIEW_NAMES = Collections.singleton(PropertyView.BASE_VIEW);
+
     static {
-        MATCH_CACHE = CacheBuilder.from(PurifierConfig.getFilterPathCacheSpec()).build();
-        METRICS_SOURCE = new GuavaCachePurifierMetricsSource("squiggly.filter.pathCache.", MATCH_CACHE);
+        MATCH_CACHE = MatchCache.create("squiggly.filter.pathCache.");
+        METRICS_SOURCE = MATCH_CACHE.getMetricsSource();
     }
 
     private final BeanInfoIntrospector beanInfoIntrospector;
 
     private final PurifierContextProvider contextProvider;
 
+    // pruned writers skip the provider's serialization hooks, so only providers that don't customize them are pruned
+    private final boolean prunable;
+
+    /**
+     * Compiled plans.  They are kept by the node lists they were compiled from, see
+     * {@link PurifierNodeList#getDerived(Object, java.util.function.Function)}, and only referenced weakly here.
+     */
+    private final Set<FilterPlan> plans = Collections.newSetFromMap(new MapMaker().weakKeys()
+                                                                               .<FilterPlan, Boolean>makeMap());
+
+    private final FilterTiers tiers;
+
     /**
      * Construct with a specified context provider.
      *
@@ -105,29 +126,101 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
     public PurifierPropertyFilter(PurifierContextProvider contextProvider, BeanInfoIntrospector beanInfoIntrospector) {
         this.contextProvider = contextProvider;
         this.beanInfoIntrospector = beanInfoIntrospector;
+        this.prunable = !overridesSerializationHooks(contextProvider.getClass());
+        this.tiers = PurifierConfig.isFilterCompilePlans() && PurifierConfig.isFilterTiersEnabled()
+                ? new FilterTiers(this) : null;
     }
 
     public static PurifierMetricsSource getMetricsSource() {
         return METRICS_SOURCE;
     }
 
-    // create a path structure representing the object graph
-    private Path getPath(PropertyWriter writer, JsonStreamContext sc) {
-        LinkedList<PathElement> elements = new LinkedList<>();
+    /**
+     * Get the introspector the filter looks up property views with.
+     *
+     * @return introspector
+     */
+    public BeanInfoIntrospector getBeanInfoIntrospector() {
+        return beanInfoIntrospector;
+    }
+
+    /**
+     * Get the filters plans were compiled for, with the classes of the top-level beans each plan was used for.
+     *
+     * @return parsed filters, as returned by the parser, to classes
+     */
+    public Map<List<PurifierNode>, Set<Class>> getPlanRootClasses() {
+        Map<List<PurifierNode>, Set<Class>> rootClasses = new IdentityHashMap<>();
+
+        for (FilterPlan plan : plans) {
+            rootClasses.put(plan.getNodes(), ImmutableSet.copyOf(plan.getRootClasses()));
+        }
 
-        if (sc != null) {
-            elements.add(new PathElement(writer.getName(), sc.getCurrentValue()));
-            sc = sc.getParent();
+        return rootClasses;
+    }
+
+    /**
+     * Compile the plan of a filter ahead of use, with its decisions for the properties reachable from a top-level
+     * bean class, and put the filter in its fastest tier for that class.  Does nothing unless
+     * {@link PurifierConfig#isFilterCompilePlans()}.
+     *
+     * @param nodes     the parsed filter, as returned by the parser so that the plan is the one used afterwards
+     * @param rootClass class of the top-level beans
+     * @param graph     the classes reachable from the root class
+     * @return number of decisions compiled
+     */
+    public int precompile(List<PurifierNode> nodes, Class rootClass, TypeGraph graph) {
+        if (!PurifierConfig.isFilterCompilePlans() || !(nodes instanceof PurifierNodeList)) {
+            return 0;
         }
 
-        while (sc != null) {
-            if (sc.getCurrentName() != null && sc.getCurrentValue() != null) {
-                elements.addFirst(new PathElement(sc.getCurrentName(), sc.getCurrentValue()));
+        FilterPlan plan = getPlan(nodes);
+        plan.addRootClass(rootClass);
+
+        PlanState root = plan.getRoot();
+        int decisionCount = 0;
+
+        if (!root.isExcludesAll() && !root.isIncludesAll()) {
+            Set<ClassPlan> visited = Sets.newIdentityHashSet();
+            Deque<ClassPlan> pending = new ArrayDeque<>();
+            ClassPlan rootPlan = root.getClassPlan(rootClass);
+            visited.add(rootPlan);
+            pending.add(rootPlan);
+
+            while (!pending.isEmpty()) {
+                ClassPlan classPlan = pending.poll();
+
+                for (Map.Entry<String, Set<Class<?>>> property
+                        : graph.getProperties(classPlan.getBeanClass()).entrySet()) {
+                    PlanDecision decision = classPlan.decide(property.getKey());
+                    decisionCount++;
+
+                    if (decision.isTerminal()) {
+                        continue;
+                    }
+
+                    PlanState next = decision.getNext();
+
+                    if (next.isExcludesAll() || next.isIncludesAll()) {
+                        continue;
+                    }
+
+                    for (Class<?> valueClass : property.getValue()) {
+                        ClassPlan valuePlan = next.getClassPlan(valueClass);
+
+                        if (visited.add(valuePlan)) {
+                            pending.add(valuePlan);
+                        }
+                    }
+                }
             }
-            sc = sc.getParent();
         }
 
-        return new Path(elements);
+        if (tiers != null) {
+            tiers.promote(nodes, rootClass);
+        }
+
+        return decisionCount;
     }
 
     private JsonStreamContext getStreamContext(JsonGenerator jgen) {
@@ -155,50 +248,277 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
             return true;
         }
 
-        Path path = getPath(writer, streamContext);
-        PurifierContext context = contextProvider.getContext(path.getFirst().getBeanClass());
-        String filter = context.getFilter();
+        FilterPath path = FilterPath.get(jgen);
+        path.update(writer.getName(), streamContext);
 
+        PurifierContext context = getContext(path);
+        String filter = context.getFilter();
 
         if (AnyDeepName.ID.equals(filter)) {
             return true;
         }
 
+        if (path.getTier() != ExecutionTier.INTERPRETED) {
+            return planMatches(path, getPlan(path, context));
+        }
+
         if (path.isCachable()) {
-            // cache the match result using the path and filter expression
-            Pair<Path, String> pair = Pair.of(path, filter);
-            Boolean match = MATCH_CACHE.getIfPresent(pair);
+            // cache the match result using the path and parsed filter
+            List<PurifierNode> nodes = context.getNodes();
+            Boolean match = MATCH_CACHE.getIfPresent(path.getMatchKey(nodes));
 
             if (match == null) {
                 match = pathMatches(path, context);
+                MATCH_CACHE.put(path.newMatchKey(nodes), match);
             }
 
-            MATCH_CACHE.put(pair, match);
             return match;
         }
 
         return pathMatches(path, context);
     }
 
+    /**
+     * Prune the property writers of the bean currently being written down to the ones the filter includes.
+     * <p>
+     * The result only depends on the position of the bean in the compiled plan, so it is computed once per plan state,
+     * bean class and writer array.  The context provider's serialization hooks are not called for pruned writers, so
+     * nothing is pruned if the provider overrides them.  Only filters in the {@link ExecutionTier#SPECIALIZED} tier are
+     * pruned.
+     *
+     * @param props the writers of the bean's serializer
+     * @param bean  the bean being written
+     * @param jgen  the generator, positioned inside the bean's object
+     * @return the included writers or null if the bean has to be filtered property by property
+     */
+    BeanPropertyWriter[] prune(BeanPropertyWriter[] props, Object bean, JsonGenerator jgen) {
+        if (!prunable) {
+            return null;
+        }
+
+        if (!contextProvider.isFilteringEnabled()) {
+            return props;
+        }
+
+        JsonStreamContext streamContext = getStreamContext(jgen);
+
+        if (streamContext == null || streamContext.getCurrentValue() != bean) {
+            return null;
+        }
+
+        FilterPath path = FilterPath.get(jgen);
+        path.enter(streamContext);
+
+        PurifierContext context = getContext(path);
+
+        if (AnyDeepName.ID.equals(context.getFilter())) {
+            return props;
+        }
+
+        if (path.getTier() != ExecutionTier.SPECIALIZED) {
+            return null;
+        }
+
+        PlanDecision decision = walkPlan(path, getPlan(path, context), path.size());
+
+        if (decision.isTerminal()) {
+            return decision.isIncluded() ? props : NO_PROPS;
+        }
+
+        PlanState state = decision.getNext();
+
+        if (state.isExcludesAll()) {
+            return NO_PROPS;
+        }
+
+        if (state.isIncludesAll()) {
+            return props;
+        }
+
+        return state.getClassPlan(bean.getClass()).prune(props);
+    }
+
+    private PurifierContext getContext(FilterPath path) {
+        PurifierContext context = path.getContext();
+
+        if (context == null) {
+            context = contextProvider.getContext(path.getBeanClass(0));
+            path.setContext(context, getTier(context, path.getBeanClass(0)));
+        }
+
+        return context;
+    }
+
+    private ExecutionTier getTier(PurifierContext context, Class rootClass) {
+        // only the nodes of parsed filters can keep a plan
+        if (!PurifierConfig.isFilterCompilePlans() || !(context.getNodes() instanceof PurifierNodeList)) {
+            return ExecutionTier.INTERPRETED;
+        }
+
+        if (tiers == null) {
+            return ExecutionTier.SPECIALIZED;
+        }
+
+        return tiers.record(context.getNodes(), rootClass);
+    }
+
+    private FilterPlan getPlan(FilterPath path, PurifierContext context) {
+        FilterPlan plan = path.getPlan();
+
+        if (plan == null) {
+            plan = getPlan(context.getNodes());
+            plan.addRootClass(path.getBeanClass(0));
+            path.setPlan(plan);
+        }
+
+        return plan;
+    }
+
+    FilterPlan getPlan(List<PurifierNode> nodes) {
+        return ((PurifierNodeList) nodes).getDerived(this, this::newPlan);
+    }
+
+    private FilterPlan newPlan(List<PurifierNode> nodes) {
+        FilterPlan plan = new FilterPlan(this, nodes);
+        plans.add(plan);
+        return plan;
+    }
+
+    // the base providers only write the included fields and omit the excluded ones, like pruned writers do
+    private static boolean overridesSerializationHooks(Class<?> providerClass) {
+        for (String name : new String[]{"serializeAsIncludedField", "serializeAsExcludedField"}) {
+            try {
+                Class<?> declaringClass = providerClass.getMethod(name, Object.class, JsonGenerator.class,
+                                                                  SerializerProvider.class, PropertyWriter.class)
+                                                       .getDeclaringClass();
+
+                if (declaringClass != AbstractPurifierContextProvider.class
+                        && declaringClass != NodePurifierContextProvider.class) {
+                    return true;
+                }
+            } catch (NoSuchMethodException e) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean planMatches(FilterPath path, FilterPlan plan) {
+        int lastIdx = path.size() - 1;
+        PlanDecision decision = walkPlan(path, plan, lastIdx);
+
+        if (decision.isTerminal()) {
+            return decision.isIncluded();
+        }
+
+        return decision.getNext().decide(path.getBeanClass(lastIdx), path.getName(lastIdx)).isIncluded();
+    }
+
+    // walk the path through the compiled plan, reusing the decisions made for unchanged ancestors
+    // returns the decision for the last of the given number of leading elements, or the first terminal one
+    private PlanDecision walkPlan(FilterPath path, FilterPlan plan, int length) {
+        PlanDecision decision = plan.getRootDecision();
+
+        for (int i = 0; i < length; i++) {
+            PlanDecision next = path.getDecision(i);
+
+            if (next == null) {
+                next = decision.getNext().decide(path.getBeanClass(i), path.getName(i));
+                path.setDecision(i, next);
+            }
+
+            if (next.isTerminal()) {
+                return next;
+            }
+
+            decision = next;
+        }
+
+        return decision;
+    }
+
+    // compile a single step of pathMatches for the plan
+    PlanDecision decide(PlanState state, Class beanClass, String propertyName) {
+        PurifierNode viewNode = state.getViewNode();
+        Set<String> viewStack = state.getViewStack();
+
+        if (viewNode != null && !viewNode.isSquiggly()) {
+            if (beanClass != null && !Map.class.isAssignableFrom(beanClass)) {
+                if (!isInViewStack(beanClass, propertyName, viewStack)) {
+                    return PlanDecision.EXCLUDE;
+                }
+            }
+
+            return PlanDecision.descend(state);
+        }
+
+        List<PurifierNode> nodes = state.getNodes();
+
+        if (nodes.isEmpty()) {
+            return PlanDecision.EXCLUDE;
+        }
+
+        PurifierNodeMatcher matcher = state.getMatcher();
+        PurifierNode match = matcher.findBestMatch(propertyName);
+
+        if (match == null) {
+            Collection<String> views = getViewNames(beanClass, propertyName);
+            match = matcher.findView(views);
+
+            if (match != null) {
+                viewNode = match;
+                viewStack = addToViewStack(viewStack == null ? null : Sets.newHashSet(viewStack), matcher, views);
+            }
+        } else if (match.isAnyShallow()) {
+            viewNode = match;
+        } else if (match.isAnyDeep()) {
+            return PlanDecision.INCLUDE_ALL;
+        }
+
+        if (match == null) {
+            if (isJsonUnwrapped(beanClass, propertyName)) {
+                return PlanDecision.descend(state);
+            }
+
+            return PlanDecision.EXCLUDE;
+        }
+
+        if (match.isNegated()) {
+            return PlanDecision.EXCLUDE;
+        }
+
+        nodes = match.getChildren();
+
+        // only matters for nested properties, which is the only place the next state is used
+        if (nodes.isEmpty() && !match.isEmptyNested() && PurifierConfig.isFilterImplicitlyIncludeBaseFields()) {
+            nodes = BASE_VIEW_NODES;
+        }
+
+        PlanState next = state.getPlan().getState(nodes, viewNode,
+                                                  viewStack == null ? null : ImmutableSet.copyOf(viewStack));
+
+        // decide for the whole subtree up front, so nested properties never look at it again
+        return next.isIncludesAll() ? PlanDecision.INCLUDE_ALL : PlanDecision.descend(next);
+    }
+
     // perform the actual matching
-    private boolean pathMatches(Path path, PurifierContext context) {
+    private boolean pathMatches(FilterPath path, PurifierContext context) {
         List<PurifierNode> nodes = context.getNodes();
+        PurifierNodeMatcher matcher = nodes.isEmpty() ? null : PurifierNodeMatcher.of(nodes);
         Set<String> viewStack = null;
         PurifierNode viewNode = null;
 
-        int pathSize = path.getElements().size();
+        int pathSize = path.size();
         int lastIdx = pathSize - 1;
 
         for (int i = 0; i < pathSize; i++) {
-            PathElement element = path.getElements().get(i);
+            Class beanClass = path.getBeanClass(i);
+            String propertyName = path.getName(i);
 
             if (viewNode != null && !viewNode.isSquiggly()) {
-                Class beanClass = element.getBeanClass();
-
                 if (beanClass != null && !Map.class.isAssignableFrom(beanClass)) {
-                    Set<String> propertyNames = getPropertyNamesFromViewStack(element, viewStack);
-
-                    if (!propertyNames.contains(element.getName())) {
+                    if (!isInViewStack(beanClass, propertyName, viewStack)) {
                         return false;
                     }
                 }
@@ -207,14 +527,15 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
                 return false;
             } else {
 
-                PurifierNode match = findBestSimpleNode(element, nodes);
+                PurifierNode match = matcher.findBestMatch(propertyName);
 
                 if (match == null) {
-                    match = findBestViewNode(element, nodes);
+                    Collection<String> views = getViewNames(beanClass, propertyName);
+                    match = matcher.findView(views);
 
                     if (match != null) {
                         viewNode = match;
-                        viewStack = addToViewStack(viewStack, viewNode);
+                        viewStack = addToViewStack(viewStack, matcher, views);
                     }
                 } else if (match.isAnyShallow()) {
                     viewNode = match;
@@ -223,7 +544,7 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
                 }
 
                 if (match == null) {
-                    if (isJsonUnwrapped(element)) {
+                    if (isJsonUnwrapped(beanClass, propertyName)) {
                         continue;
                     }
 
@@ -235,10 +556,12 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
                 }
 
                 nodes = match.getChildren();
+                matcher = match.getChildMatcher();
 
                 if (i < lastIdx && nodes.isEmpty() && !match.isEmptyNested() &&
                         PurifierConfig.isFilterImplicitlyIncludeBaseFields()) {
                     nodes = BASE_VIEW_NODES;
+                    matcher = BASE_VIEW_MATCHER;
                 }
             }
         }
@@ -246,74 +569,38 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
         return true;
     }
 
-    private boolean isJsonUnwrapped(PathElement element) {
-        BeanInfo info = beanInfoIntrospector.introspect(element.getBeanClass());
-        return info.isUnwrapped(element.getName());
+    private boolean isJsonUnwrapped(Class beanClass, String propertyName) {
+        BeanInfo info = beanInfoIntrospector.introspect(beanClass);
+        return info.isUnwrapped(propertyName);
     }
 
-    private Set<String> getPropertyNamesFromViewStack(PathElement element, Set<String> viewStack) {
-        if (viewStack == null) {
-            return getPropertyNames(element, PropertyView.BASE_VIEW);
-        }
-
-        Set<String> propertyNames = Sets.newHashSet();
-
-        for (String viewName : viewStack) {
-            Set<String> names = getPropertyNames(element, viewName);
+    private boolean isInViewStack(Class beanClass, String propertyName, Set<String> viewStack) {
+        BeanInfo info = beanInfoIntrospector.introspect(beanClass);
+        int propertyIndex = info.getPropertyIndex(propertyName);
 
-            if (names.isEmpty() && PurifierConfig.isFilterImplicitlyIncludeBaseFields()) {
-                names = getPropertyNames(element, PropertyView.BASE_VIEW);
-            }
-
-            propertyNames.addAll(names);
+        if (propertyIndex < 0) {
+            return false;
         }
 
-        return propertyNames;
+        return info.getPropertyBitsForViews(viewStack == null ? BASE_VIEW_NAMES : viewStack).get(propertyIndex);
     }
 
-    private PurifierNode findBestViewNode(PathElement element, List<PurifierNode> nodes) {
-        if (Map.class.isAssignableFrom(element.getBeanClass())) {
-            for (PurifierNode node : nodes) {
-                if (PropertyView.BASE_VIEW.equals(node.getName())) {
-                    return node;
-                }
-            }
-        } else {
-            for (PurifierNode node : nodes) {
-                // handle view
-                Set<String> propertyNames = getPropertyNames(element, node.getName());
-
-                if (propertyNames.contains(element.getName())) {
-                    return node;
-                }
-            }
+    // the views that have the property, they are looked up by name among the few views of the property
+    private Collection<String> getViewNames(Class beanClass, String propertyName) {
+        if (beanClass == null) {
+            return Collections.emptySet();
         }
 
-        return null;
-    }
-
-    private PurifierNode findBestSimpleNode(PathElement element, List<PurifierNode> nodes) {
-        PurifierNode match = null;
-        int lastMatchStrength = -1;
-
-        for (PurifierNode node : nodes) {
-            int matchStrength = node.match(element.getName());
-
-            if (matchStrength < 0) {
-                continue;
-            }
-
-            if (lastMatchStrength < 0 || matchStrength >= lastMatchStrength) {
-                match = node;
-                lastMatchStrength = matchStrength;
-            }
-
+        if (Map.class.isAssignableFrom(beanClass)) {
+            return BASE_VIEW_NAMES;
         }
 
-        return match;
+        BeanInfo info = beanInfoIntrospector.introspect(beanClass);
+        return info.getViewNamesForProperty(propertyName);
     }
 
-    private Set<String> addToViewStack(Set<String> viewStack, PurifierNode viewNode) {
+    // every view of the property that a sibling names, so that the stack doesn't depend on the order of the siblings
+    private Set<String> addToViewStack(Set<String> viewStack, PurifierNodeMatcher matcher, Collection<String> views) {
         if (!PurifierConfig.isFilterPropagateViewToNestedFilters()) {
             return null;
         }
@@ -322,19 +609,13 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
             viewStack = Sets.newHashSet();
         }
 
-        viewStack.add(viewNode.getName());
-
-        return viewStack;
-    }
-
-    private Set<String> getPropertyNames(PathElement element, String viewName) {
-        Class beanClass = element.getBeanClass();
-
-        if (beanClass == null) {
-            return Collections.emptySet();
+        for (String view : views) {
+            if (matcher.hasNamed(view)) {
+                viewStack.add(view);
+            }
         }
 
-        return beanInfoIntrospector.introspect(beanClass).getPropertyNamesForView(viewName);
+        return viewStack;
     }
 
     @Override
@@ -342,112 +623,26 @@ public class PurifierPropertyFilter extends SimpleBeanPropertyFilter {
                                  final PropertyWriter writer) throws Exception {
         if (include(writer, jgen)) {
             contextProvider.serializeAsIncludedField(pojo, jgen, provider, writer);
+            restoreCurrentValue(pojo, jgen, writer);
         } else if (!jgen.canOmitFields()) {
             contextProvider.serializeAsExcludedField(pojo, jgen, provider, writer);
+            restoreCurrentValue(pojo, jgen, writer);
         }
     }
 
-    /*
-            Represents the path structuore in the object graph
-         */
-    private static class Path {
-
-        private final String id;
-
-        private final LinkedList<PathElement> elements;
-
-        public Path(LinkedList<PathElement> elements) {
-            StringBuilder idBuilder = new StringBuilder();
-
-            for (int i = 0; i < elements.size(); i++) {
-                PathElement element = elements.get(i);
-
-                if (i > 0) {
-                    idBuilder.append('.');
-                }
-
-                idBuilder.append(element.getName());
-            }
-
-            id = idBuilder.toString();
-            this.elements = elements;
-        }
-
-        public String getId() {
-            return id;
-        }
-
-        public List<PathElement> getElements() {
-            return elements;
-        }
-
-        public PathElement getFirst() {
-            return elements.getFirst();
-        }
-
-        public PathElement getLast() {
-            return elements.getLast();
-        }
-
-        // we use the last element because that is where the json stream context started
-        public Class getBeanClass() {
-            return getLast().getBeanClass();
-        }
-
-        // maps aren't cachable
-        public boolean isCachable() {
-            Class beanClass = getBeanClass();
-            return beanClass != null && !Map.class.isAssignableFrom(beanClass);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o)
-                return true;
-            if (o == null || getClass() != o.getClass())
-                return false;
-
-            Path path = (Path) o;
-            Class beanClass = getBeanClass();
-            Class oBeanClass = path.getBeanClass();
-
-            if (!id.equals(path.id))
-                return false;
-            if (beanClass != null ? !beanClass.equals(oBeanClass) : oBeanClass != null)
-                return false;
-
-            return true;
-        }
-
-        @Override
-        public int hashCode() {
-            int result = id.hashCode();
-            Class beanClass = getBeanClass();
-            result = 31 * result + (beanClass != null ? beanClass.hashCode() : 0);
-            return result;
-        }
-
-    }
-
-    // represent a specific point in the path.
-    private static class PathElement {
-        private final String name;
-
-        private final Class bean;
-
-        public PathElement(String name, Object bean) {
-            this.name = name;
-            this.bean = bean.getClass();
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public Class getBeanClass() {
-            return bean;
+    /**
+     * Make the bean the current value of its object again after an unwrapped property was written into it.  Jackson
+     * leaves the unwrapped bean as the current value, so the properties written after it would be matched as if they
+     * were the unwrapped bean's.
+     *
+     * @param pojo   the bean being written
+     * @param jgen   the generator being written to
+     * @param writer the writer that was called
+     */
+    static void restoreCurrentValue(Object pojo, JsonGenerator jgen, PropertyWriter writer) {
+        if (writer instanceof BeanPropertyWriter && ((BeanPropertyWriter) writer).isUnwrapping()) {
+            jgen.setCurrentValue(pojo);
         }
-
     }
 
 }
@@ -0,0 +1,176 @@
+package io.github.walkin.purifier.filter;
+
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Match cache with two levels.
+ * <p>
+ * The first level is a small direct-mapped table per thread that is read and written without any synchronization.
+ * The second level is shared between threads: a {@link ConcurrentHashMap}, whose reads never lock, bounded to a
+ * maximum size.  Once it is full, a new match only replaces the oldest one if a {@link FrequencySketch} says it has
+ * been requested more often (TinyLFU admission), so one-off paths can't flush out the hot ones.
+ */
+@ThreadSafe
+final class TieredMatchCache implements MatchCache {
+
+    private final ThreadLocal<Match[]> localMatches;
+
+    private final int localMask;
+
+    private final ConcurrentMap<FilterPath.MatchKey, Match> sharedMatches;
+
+    private final int maximumSize;
+
+    // insertion order of the shared matches, the slot under the cursor holds the oldest one
+    private final AtomicReferenceArray<FilterPath.MatchKey> ring;
+
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final FrequencySketch sketch;
+
+    private final LongAdder localHitCount = new LongAdder();
+
+    private final LongAdder sharedHitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder rejectionCount = new LongAdder();
+
+    private final PurifierMetricsSource metricsSource;
+
+    TieredMatchCache(String metricsPrefix, int localSize, int maximumSize) {
+        int localCapacity = Integer.highestOneBit(Math.max(localSize, 2) - 1) << 1;
+        this.localMatches = ThreadLocal.withInitial(() -> new Match[localCapacity]);
+        this.localMask = localCapacity - 1;
+        this.maximumSize = Math.max(maximumSize, 1);
+        this.sharedMatches = new ConcurrentHashMap<>(Math.min(this.maximumSize, 1 << 16));
+        this.ring = new AtomicReferenceArray<>(this.maximumSize);
+        this.sketch = new FrequencySketch(this.maximumSize);
+        this.metricsSource = new MetricsSource(metricsPrefix);
+    }
+
+    @Override
+    public Boolean getIfPresent(FilterPath.MatchKey key) {
+        int hash = key.hashCode();
+        Match[] local = localMatches.get();
+        int idx = spread(hash) & localMask;
+        Match match = local[idx];
+
+        if (match != null && match.hash == hash && match.key.equals(key)) {
+            localHitCount.increment();
+            return match.value;
+        }
+
+        sketch.increment(hash);
+        match = sharedMatches.get(key);
+
+        if (match == null) {
+            missCount.increment();
+            return null;
+        }
+
+        sharedHitCount.increment();
+        local[idx] = match;
+        return match.value;
+    }
+
+    @Override
+    public void put(FilterPath.MatchKey key, boolean value) {
+        Match match = new Match(key, value);
+        localMatches.get()[spread(match.hash) & localMask] = match;
+
+        if (sharedMatches.containsKey(key)) {
+            return;
+        }
+
+        int slot = (int) (cursor.getAndIncrement() % maximumSize);
+        FilterPath.MatchKey victim = ring.get(slot);
+
+        if (victim != null && sketch.frequency(match.hash) <= sketch.frequency(victim.hashCode())) {
+            // the victim gets a second chance, the cursor has moved on to the next oldest
+            rejectionCount.increment();
+            return;
+        }
+
+        // only the thread that added the key claims a slot for it, so each shared match is in the ring once
+        if (sharedMatches.putIfAbsent(key, match) != null) {
+            return;
+        }
+
+        if (!ring.compareAndSet(slot, victim, key)) {
+            // another thread took the slot, give the match back rather than leave it out of the ring
+            sharedMatches.remove(key, match);
+            return;
+        }
+
+        if (victim != null) {
+            sharedMatches.remove(victim);
+            evictionCount.increment();
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public PurifierMetricsSource getMetricsSource() {
+        return metricsSource;
+    }
+
+    private static class Match {
+
+        private final FilterPath.MatchKey key;
+
+        private final int hash;
+
+        private final boolean value;
+
+        Match(FilterPath.MatchKey key, boolean value) {
+            this.key = key;
+            this.hash = key.hashCode();
+            this.value = value;
+        }
+
+    }
+
+    private class MetricsSource implements PurifierMetricsSource {
+
+        private final String prefix;
+
+        MetricsSource(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public void applyMetrics(Map<String, Object> map) {
+            long localHits = localHitCount.sum();
+            long sharedHits = sharedHitCount.sum();
+            long misses = missCount.sum();
+            long requests = localHits + sharedHits + misses;
+
+            map.put(prefix + "evictionCount", evictionCount.sum());
+            map.put(prefix + "hitCount", localHits + sharedHits);
+            map.put(prefix + "hitRate", requests == 0 ? 1.0 : (double) (localHits + sharedHits) / requests);
+            map.put(prefix + "localHitCount", localHits);
+            map.put(prefix + "missCount", misses);
+            map.put(prefix + "missRate", requests == 0 ? 0.0 : (double) misses / requests);
+            map.put(prefix + "rejectionCount", rejectionCount.sum());
+            map.put(prefix + "requestCount", requests);
+            map.put(prefix + "sharedHitCount", sharedHits);
+            map.put(prefix + "size", sharedMatches.size());
+        }
+
+    }
+
+}
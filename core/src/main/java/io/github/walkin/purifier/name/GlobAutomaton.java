@@ -0,0 +1,186 @@
+package io.github.walkin.purifier.name;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bit-parallel matcher for one or more wildcard globs, where <code>*</code> matches any run of characters and
+ * <code>?</code> matches at most one character.
+ * <p>
+ * Each glob gets one bit per position (one per glob character plus an accepting position) and the globs are packed
+ * into 64-bit words without straddling them.  Matching runs all the globs of a word at once with a few shifts and
+ * masks per input character, without backtracking and without allocating.
+ */
+@ThreadSafe
+final class GlobAutomaton {
+
+    /**
+     * Maximum number of characters in a glob, so that its positions fit in a single word.
+     */
+    static final int MAX_GLOB_LENGTH = Long.SIZE - 1;
+
+    private static final int ALPHABET_SIZE = 128;
+
+    private final Word[] words;
+
+    private GlobAutomaton(Word[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Says whether a glob can be handled by the automaton.
+     *
+     * @param glob the glob
+     * @return true if supported
+     */
+    static boolean isSupported(String glob) {
+        if (glob.length() > MAX_GLOB_LENGTH) {
+            return false;
+        }
+
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) >= ALPHABET_SIZE) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Compile globs into an automaton.
+     *
+     * @param globs supported globs
+     * @return automaton
+     * @throws IllegalArgumentException if a glob isn't supported
+     * @see #isSupported(String)
+     */
+    static GlobAutomaton compile(List<String> globs) {
+        List<Word> words = new ArrayList<>();
+        Word word = null;
+
+        for (int i = 0; i < globs.size(); i++) {
+            String glob = globs.get(i);
+
+            if (!isSupported(glob)) {
+                throw new IllegalArgumentException("Unsupported glob " + glob);
+            }
+
+            if (word == null || !word.fits(glob)) {
+                word = new Word();
+                words.add(word);
+            }
+
+            word.add(glob, i);
+        }
+
+        return new GlobAutomaton(words.toArray(new Word[0]));
+    }
+
+    /**
+     * Get the number of words the globs are packed into.
+     *
+     * @return words
+     */
+    int getWordCount() {
+        return words.length;
+    }
+
+    /**
+     * Run the globs of a word over the input.
+     *
+     * @param word  index of the word
+     * @param input the input
+     * @return the accepting bits of the globs that matched
+     * @see #getGlobIndex(int, int)
+     */
+    long match(int word, String input) {
+        return words[word].match(input);
+    }
+
+    /**
+     * Get the index (in the list given to {@link #compile(List)}) of the glob accepting at the given bit.
+     *
+     * @param word index of the word
+     * @param bit  accepting bit
+     * @return glob index
+     */
+    int getGlobIndex(int word, int bit) {
+        return words[word].globIndexes[bit];
+    }
+
+    private static class Word {
+
+        private final long[] charMasks = new long[ALPHABET_SIZE];
+
+        // positions that consume any one character and move on
+        private long optionalMask;
+
+        // positions that consume any one character and stay
+        private long starMask;
+
+        private long startBits;
+
+        private long acceptBits;
+
+        private final int[] globIndexes = new int[Long.SIZE];
+
+        private int used;
+
+        boolean fits(String glob) {
+            return used + glob.length() + 1 <= Long.SIZE;
+        }
+
+        void add(String glob, int globIndex) {
+            int start = used;
+            startBits |= 1L << start;
+
+            for (int i = 0; i < glob.length(); i++) {
+                long bit = 1L << (start + i);
+                char c = glob.charAt(i);
+
+                if (c == '*') {
+                    starMask |= bit;
+                } else if (c == '?') {
+                    optionalMask |= bit;
+                } else {
+                    charMasks[c] |= bit;
+                }
+            }
+
+            int accept = start + glob.length();
+            acceptBits |= 1L << accept;
+            globIndexes[accept] = globIndex;
+            used = accept + 1;
+        }
+
+        long match(String input) {
+            long nullable = optionalMask | starMask;
+            long state = closure(startBits, nullable);
+
+            for (int i = 0, len = input.length(); i < len && state != 0; i++) {
+                char c = input.charAt(i);
+                long consuming = (c < ALPHABET_SIZE ? charMasks[c] : 0L) | optionalMask;
+                state = closure(((state & consuming) << 1) | (state & starMask), nullable);
+            }
+
+            return state & acceptBits;
+        }
+
+        // positions that can be skipped without consuming anything (? and *) pass their state on
+        private static long closure(long state, long nullable) {
+            long next = state | ((state & nullable) << 1);
+
+            while (next != state) {
+                state = next;
+                next = state | ((state & nullable) << 1);
+            }
+
+            return state;
+        }
+
+    }
+
+}
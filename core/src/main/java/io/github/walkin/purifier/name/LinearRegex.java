@@ -0,0 +1,812 @@
+package io.github.walkin.purifier.name;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Regex matcher that runs in time linear in the input, whatever the pattern, for the subset of the
+ * {@link java.util.regex.Pattern} syntax that filter expressions use.
+ * <p>
+ * The pattern is compiled into its position (Glushkov) automaton, which is simulated one input character at a time
+ * with a bit set of active positions, so there is no backtracking.  Matching has the semantics of
+ * {@link java.util.regex.Matcher#matches()}, with {@link java.util.regex.Pattern#CASE_INSENSITIVE} optionally.
+ * <p>
+ * Supported: literals, <code>.</code>, character classes with ranges and negation, the <code>\d \w \s</code> escapes
+ * and their negations, escaped literals, groups, alternation, the greedy and lazy <code>* + ? {n} {n,} {n,m}</code>
+ * quantifiers, and <code>^</code>/<code>$</code> at the start/end of a top-level alternative.  Anything else
+ * (backreferences, lookarounds, possessive quantifiers, inline flags...) is unsupported.
+ */
+@ThreadSafe
+final class LinearRegex {
+
+    /**
+     * Maximum number of positions, after counted repetitions are expanded.
+     */
+    static final int MAX_POSITIONS = 512;
+
+    private static final int ASCII_SIZE = 128;
+
+    private final CharPredicate[] predicates;
+
+    private final int words;
+
+    private final long[] first;
+
+    private final long[] last;
+
+    private final long[][] follow;
+
+    private final long[][] asciiMasks;
+
+    private final boolean nullable;
+
+    private LinearRegex(CharPredicate[] predicates, BitSet first, BitSet last, List<BitSet> follow,
+                        boolean nullable) {
+        this.predicates = predicates;
+        this.words = Math.max(1, (predicates.length + Long.SIZE - 1) / Long.SIZE);
+        this.first = toWords(first, words);
+        this.last = toWords(last, words);
+        this.follow = new long[predicates.length][];
+
+        for (int i = 0; i < predicates.length; i++) {
+            this.follow[i] = toWords(follow.get(i), words);
+        }
+
+        this.asciiMasks = new long[ASCII_SIZE][words];
+
+        for (int c = 0; c < ASCII_SIZE; c++) {
+            for (int p = 0; p < predicates.length; p++) {
+                if (predicates[p].test(c)) {
+                    asciiMasks[c][p / Long.SIZE] |= 1L << p;
+                }
+            }
+        }
+
+        this.nullable = nullable;
+    }
+
+    private static long[] toWords(BitSet bits, int words) {
+        long[] array = new long[words];
+        long[] source = bits.toLongArray();
+        System.arraycopy(source, 0, array, 0, Math.min(source.length, words));
+        return array;
+    }
+
+    /**
+     * Compile a pattern.
+     *
+     * @param pattern         the pattern
+     * @param caseInsensitive whether ASCII letters match regardless of case
+     * @return matcher or null if the pattern isn't supported
+     */
+    static LinearRegex compile(String pattern, boolean caseInsensitive) {
+        Node node;
+
+        try {
+            node = new Parser(pattern, caseInsensitive).parse();
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+
+        Builder builder = new Builder();
+        Fragment fragment = builder.build(node);
+
+        if (fragment == null) {
+            return null;
+        }
+
+        return new LinearRegex(builder.predicates.toArray(new CharPredicate[0]), fragment.first, fragment.last,
+                               builder.follow, fragment.nullable);
+    }
+
+    /**
+     * Says whether the whole input matches.
+     *
+     * @param input the input
+     * @return true if it matches
+     */
+    boolean matches(String input) {
+        int length = input.length();
+
+        if (length == 0) {
+            return nullable;
+        }
+
+        long[] state = first.clone();
+        long[] next = new long[words];
+
+        for (int i = 0; i < length; ) {
+            int c = input.codePointAt(i);
+            i += Character.charCount(c);
+
+            if (!accept(state, c)) {
+                return false;
+            }
+
+            if (i == length) {
+                break;
+            }
+
+            advance(state, next);
+            long[] swap = state;
+            state = next;
+            next = swap;
+        }
+
+        return intersects(state, last);
+    }
+
+    // keeps the positions that accept the character, says whether any is left
+    private boolean accept(long[] state, int c) {
+        long any = 0;
+
+        if (c < ASCII_SIZE) {
+            long[] mask = asciiMasks[c];
+
+            for (int w = 0; w < words; w++) {
+                state[w] &= mask[w];
+                any |= state[w];
+            }
+        } else {
+            for (int w = 0; w < words; w++) {
+                long bits = state[w];
+
+                for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+                    int p = w * Long.SIZE + Long.numberOfTrailingZeros(remaining);
+
+                    if (!predicates[p].test(c)) {
+                        bits &= ~(1L << p);
+                    }
+                }
+
+                state[w] = bits;
+                any |= bits;
+            }
+        }
+
+        return any != 0;
+    }
+
+    private void advance(long[] state, long[] next) {
+        for (int w = 0; w < words; w++) {
+            next[w] = 0;
+        }
+
+        for (int w = 0; w < words; w++) {
+            for (long remaining = state[w]; remaining != 0; remaining &= remaining - 1) {
+                long[] positions = follow[w * Long.SIZE + Long.numberOfTrailingZeros(remaining)];
+
+                for (int v = 0; v < words; v++) {
+                    next[v] |= positions[v];
+                }
+            }
+        }
+    }
+
+    private static boolean intersects(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & b[w]) != 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private interface Node {
+    }
+
+    private static class CharNode implements Node {
+
+        private final CharPredicate predicate;
+
+        CharNode(CharPredicate predicate) {
+            this.predicate = predicate;
+        }
+
+    }
+
+    private static class ConcatNode implements Node {
+
+        private final List<Node> nodes;
+
+        ConcatNode(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+    }
+
+    private static class AltNode implements Node {
+
+        private final List<Node> nodes;
+
+        AltNode(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+    }
+
+    private static class RepeatNode implements Node {
+
+        private final Node node;
+
+        private final int min;
+
+        // -1 for unbounded
+        private final int max;
+
+        RepeatNode(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+
+    }
+
+    private interface CharPredicate {
+
+        boolean test(int c);
+
+    }
+
+    private static class Range implements CharPredicate {
+
+        private final int low;
+
+        private final int high;
+
+        Range(int low, int high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public boolean test(int c) {
+            return c >= low && c <= high;
+        }
+
+    }
+
+    // a set of ranges and nested sets, case folding is applied before negation like the jdk does
+    private static class CharSet implements CharPredicate {
+
+        private final List<CharPredicate> items;
+
+        private final boolean negated;
+
+        private final boolean caseInsensitive;
+
+        CharSet(List<CharPredicate> items, boolean negated, boolean caseInsensitive) {
+            this.items = items;
+            this.negated = negated;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        @Override
+        public boolean test(int c) {
+            boolean in = contains(c) || (caseInsensitive && isAsciiLetter(c) && contains(c ^ 0x20));
+            return in != negated;
+        }
+
+        private boolean contains(int c) {
+            for (CharPredicate item : items) {
+                if (item.test(c)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private static boolean isAsciiLetter(int c) {
+            return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+        }
+
+    }
+
+    private static CharSet single(int c, boolean caseInsensitive) {
+        List<CharPredicate> items = new ArrayList<>(1);
+        items.add(new Range(c, c));
+        return new CharSet(items, false, caseInsensitive);
+    }
+
+    // what . matches without DOTALL and UNIX_LINES: anything but line terminators
+    private static final CharPredicate DOT = new CharSet(ranges('\n', '\n', '\r', '\r', '\u0085', '\u0085',
+                                                                '\u2028', '\u2029'), true, false);
+
+    private static final List<CharPredicate> DIGITS = ranges('0', '9');
+
+    private static final List<CharPredicate> WORDS = ranges('a', 'z', 'A', 'Z', '_', '_', '0', '9');
+
+    private static final List<CharPredicate> SPACES = ranges(' ', ' ', '\t', '\r');
+
+    private static List<CharPredicate> ranges(int... bounds) {
+        List<CharPredicate> ranges = new ArrayList<>(bounds.length / 2);
+
+        for (int i = 0; i < bounds.length; i += 2) {
+            ranges.add(new Range(bounds[i], bounds[i + 1]));
+        }
+
+        return ranges;
+    }
+
+    // throws UnsupportedOperationException for anything outside of the subset, syntax errors included
+    private static class Parser {
+
+        private final String pattern;
+
+        private final boolean caseInsensitive;
+
+        private int pos;
+
+        private int depth;
+
+        Parser(String pattern, boolean caseInsensitive) {
+            this.pattern = pattern;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        Node parse() {
+            Node node = parseAlt();
+
+            if (pos < pattern.length()) {
+                throw unsupported();
+            }
+
+            return node;
+        }
+
+        private UnsupportedOperationException unsupported() {
+            return new UnsupportedOperationException();
+        }
+
+        private boolean atEnd() {
+            return pos >= pattern.length();
+        }
+
+        private char peek() {
+            return pattern.charAt(pos);
+        }
+
+        private Node parseAlt() {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(parseConcat());
+
+            while (!atEnd() && peek() == '|') {
+                pos++;
+                nodes.add(parseConcat());
+            }
+
+            return nodes.size() == 1 ? nodes.get(0) : new AltNode(nodes);
+        }
+
+        private Node parseConcat() {
+            List<Node> nodes = new ArrayList<>();
+
+            while (!atEnd() && peek() != '|' && peek() != ')') {
+                char c = peek();
+
+                if (c == '^' || c == '$') {
+                    parseAnchor(c, nodes.isEmpty());
+                    continue;
+                }
+
+                nodes.add(parseRepeat());
+            }
+
+            return new ConcatNode(nodes);
+        }
+
+        // with matches(), anchors at the edges of a top-level alternative match the empty string
+        private void parseAnchor(char c, boolean atStart) {
+            pos++;
+
+            boolean atEdge = (c == '^') ? atStart : (atEnd() || peek() == '|');
+
+            if (depth > 0 || !atEdge || (!atEnd() && isQuantifier(peek()))) {
+                throw unsupported();
+            }
+        }
+
+        private boolean isQuantifier(char c) {
+            return c == '*' || c == '+' || c == '?' || c == '{';
+        }
+
+        private Node parseRepeat() {
+            Node node = parseAtom();
+
+            if (atEnd() || !isQuantifier(peek())) {
+                return node;
+            }
+
+            char c = peek();
+            pos++;
+            int min;
+            int max;
+
+            if (c == '*') {
+                min = 0;
+                max = -1;
+            } else if (c == '+') {
+                min = 1;
+                max = -1;
+            } else if (c == '?') {
+                min = 0;
+                max = 1;
+            } else {
+                min = parseNumber();
+                max = min;
+
+                if (!atEnd() && peek() == ',') {
+                    pos++;
+                    max = (!atEnd() && peek() == '}') ? -1 : parseNumber();
+                }
+
+                if (atEnd() || peek() != '}' || (max != -1 && max < min)) {
+                    throw unsupported();
+                }
+
+                pos++;
+            }
+
+            // lazy quantifiers accept the same strings, possessive ones don't
+            if (!atEnd() && peek() == '?') {
+                pos++;
+            }
+
+            if (!atEnd() && (isQuantifier(peek()))) {
+                throw unsupported();
+            }
+
+            return new RepeatNode(node, min, max);
+        }
+
+        private int parseNumber() {
+            int start = pos;
+
+            while (!atEnd() && peek() >= '0' && peek() <= '9' && pos - start < 4) {
+                pos++;
+            }
+
+            if (pos == start || (!atEnd() && peek() >= '0' && peek() <= '9')) {
+                throw unsupported();
+            }
+
+            return Integer.parseInt(pattern.substring(start, pos));
+        }
+
+        private Node parseAtom() {
+            char c = peek();
+
+            switch (c) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return new CharNode(parseClass());
+                case '.':
+                    pos++;
+                    return new CharNode(DOT);
+                case '\\':
+                    pos++;
+                    return new CharNode(parseEscape(false));
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw unsupported();
+                default:
+                    int codePoint = pattern.codePointAt(pos);
+                    pos += Character.charCount(codePoint);
+                    return new CharNode(single(codePoint, caseInsensitive));
+            }
+        }
+
+        private Node parseGroup() {
+            pos++;
+
+            if (!atEnd() && peek() == '?') {
+                if (pos + 1 < pattern.length() && pattern.charAt(pos + 1) == ':') {
+                    pos += 2;
+                } else {
+                    throw unsupported();
+                }
+            }
+
+            depth++;
+            Node node = parseAlt();
+            depth--;
+
+            if (atEnd() || peek() != ')') {
+                throw unsupported();
+            }
+
+            pos++;
+            return node;
+        }
+
+        // the character after a backslash, class escapes are only returned if allowed
+        private CharPredicate parseEscape(boolean literalOnly) {
+            if (atEnd()) {
+                throw unsupported();
+            }
+
+            char c = peek();
+            pos++;
+
+            switch (c) {
+                case 'd':
+                case 'D':
+                case 'w':
+                case 'W':
+                case 's':
+                case 'S':
+                    if (literalOnly) {
+                        throw unsupported();
+                    }
+
+                    List<CharPredicate> ranges = (c == 'd' || c == 'D') ? DIGITS : (c == 'w' || c == 'W') ? WORDS
+                            : SPACES;
+                    return new CharSet(ranges, Character.isUpperCase(c), false);
+                case 't':
+                    return single('\t', false);
+                case 'n':
+                    return single('\n', false);
+                case 'r':
+                    return single('\r', false);
+                case 'f':
+                    return single('\f', false);
+                case 'a':
+                    return single('\u0007', false);
+                case 'e':
+                    return single('\u001B', false);
+                default:
+                    // escaped letters and digits have special meanings that aren't supported
+                    if (c >= ASCII_SIZE || Character.isLetterOrDigit(c)) {
+                        throw unsupported();
+                    }
+
+                    pos--;
+                    int codePoint = pattern.codePointAt(pos);
+                    pos += Character.charCount(codePoint);
+                    return single(codePoint, caseInsensitive);
+            }
+        }
+
+        private CharPredicate parseClass() {
+            pos++;
+            boolean negated = false;
+
+            if (!atEnd() && peek() == '^') {
+                negated = true;
+                pos++;
+            }
+
+            // a leading ] and nested classes are treated differently by the jdk
+            if (!atEnd() && peek() == ']') {
+                throw unsupported();
+            }
+
+            List<CharPredicate> items = new ArrayList<>();
+
+            while (true) {
+                if (atEnd()) {
+                    throw unsupported();
+                }
+
+                char c = peek();
+
+                if (c == ']') {
+                    pos++;
+                    break;
+                }
+
+                if (c == '[' || (c == '&' && pos + 1 < pattern.length() && pattern.charAt(pos + 1) == '&')) {
+                    throw unsupported();
+                }
+
+                int low;
+
+                if (c == '\\') {
+                    pos++;
+                    CharPredicate escape = parseEscape(false);
+
+                    if (!(escape instanceof CharSet) || !isSingle((CharSet) escape)) {
+                        // a class escape can't start a range
+                        if (pos + 1 < pattern.length() && peek() == '-' && pattern.charAt(pos + 1) != ']') {
+                            throw unsupported();
+                        }
+
+                        items.add(escape);
+                        continue;
+                    }
+
+                    low = ((Range) ((CharSet) escape).items.get(0)).low;
+                } else {
+                    low = pattern.codePointAt(pos);
+                    pos += Character.charCount(low);
+                }
+
+                if (pos + 1 < pattern.length() && peek() == '-' && pattern.charAt(pos + 1) != ']') {
+                    pos++;
+                    int high = parseClassChar();
+
+                    if (high < low) {
+                        throw unsupported();
+                    }
+
+                    items.add(new Range(low, high));
+                } else {
+                    items.add(new Range(low, low));
+                }
+            }
+
+            return new CharSet(items, negated, caseInsensitive);
+        }
+
+        private boolean isSingle(CharSet set) {
+            return !set.negated && set.items.size() == 1 && set.items.get(0) instanceof Range &&
+                    ((Range) set.items.get(0)).low == ((Range) set.items.get(0)).high;
+        }
+
+        private int parseClassChar() {
+            char c = peek();
+
+            if (c == '[') {
+                throw unsupported();
+            }
+
+            if (c == '\\') {
+                pos++;
+                CharSet escape = (CharSet) parseEscape(true);
+                return ((Range) escape.items.get(0)).low;
+            }
+
+            int codePoint = pattern.codePointAt(pos);
+            pos += Character.charCount(codePoint);
+            return codePoint;
+        }
+
+    }
+
+    // first and last positions of a sub-expression, and whether it matches the empty string
+    private static class Fragment {
+
+        private final BitSet first;
+
+        private final BitSet last;
+
+        private final boolean nullable;
+
+        Fragment(BitSet first, BitSet last, boolean nullable) {
+            this.first = first;
+            this.last = last;
+            this.nullable = nullable;
+        }
+
+    }
+
+    private static class Builder {
+
+        private final List<CharPredicate> predicates = new ArrayList<>();
+
+        private final List<BitSet> follow = new ArrayList<>();
+
+        // returns null if there are too many positions
+        Fragment build(Node node) {
+            if (node instanceof CharNode) {
+                if (predicates.size() == MAX_POSITIONS) {
+                    return null;
+                }
+
+                int position = predicates.size();
+                predicates.add(((CharNode) node).predicate);
+                follow.add(new BitSet());
+
+                BitSet bits = new BitSet();
+                bits.set(position);
+                return new Fragment(bits, (BitSet) bits.clone(), false);
+            }
+
+            if (node instanceof ConcatNode) {
+                Fragment result = empty();
+
+                for (Node child : ((ConcatNode) node).nodes) {
+                    Fragment fragment = build(child);
+
+                    if (fragment == null) {
+                        return null;
+                    }
+
+                    result = concat(result, fragment);
+                }
+
+                return result;
+            }
+
+            if (node instanceof AltNode) {
+                BitSet first = new BitSet();
+                BitSet last = new BitSet();
+                boolean nullable = false;
+
+                for (Node child : ((AltNode) node).nodes) {
+                    Fragment fragment = build(child);
+
+                    if (fragment == null) {
+                        return null;
+                    }
+
+                    first.or(fragment.first);
+                    last.or(fragment.last);
+                    nullable |= fragment.nullable;
+                }
+
+                return new Fragment(first, last, nullable);
+            }
+
+            return buildRepeat((RepeatNode) node);
+        }
+
+        // x{n,m} is expanded to n copies of x followed by m-n optional copies, x{n,} ends with x+ instead
+        private Fragment buildRepeat(RepeatNode repeat) {
+            Fragment result = empty();
+            int copies = repeat.max == -1 ? Math.max(repeat.min, 1) : repeat.max;
+
+            for (int i = 0; i < copies; i++) {
+                Fragment fragment = build(repeat.node);
+
+                if (fragment == null) {
+                    return null;
+                }
+
+                if (repeat.max == -1 && i == copies - 1) {
+                    fragment = loop(fragment);
+                }
+
+                if (i >= repeat.min) {
+                    fragment = new Fragment(fragment.first, fragment.last, true);
+                }
+
+                result = concat(result, fragment);
+            }
+
+            return result;
+        }
+
+        private Fragment empty() {
+            return new Fragment(new BitSet(), new BitSet(), true);
+        }
+
+        private Fragment loop(Fragment fragment) {
+            for (int p = fragment.last.nextSetBit(0); p >= 0; p = fragment.last.nextSetBit(p + 1)) {
+                follow.get(p).or(fragment.first);
+            }
+
+            return fragment;
+        }
+
+        private Fragment concat(Fragment left, Fragment right) {
+            for (int p = left.last.nextSetBit(0); p >= 0; p = left.last.nextSetBit(p + 1)) {
+                follow.get(p).or(right.first);
+            }
+
+            BitSet first = (BitSet) left.first.clone();
+
+            if (left.nullable) {
+                first.or(right.first);
+            }
+
+            BitSet last = (BitSet) right.last.clone();
+
+            if (right.nullable) {
+                last.or(left.last);
+            }
+
+            return new Fragment(first, last, left.nullable && right.nullable);
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package io.github.walkin.purifier.name;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the best match for a name among a list of sibling names in a single pass.
+ * <p>
+ * The best match is the one with the highest {@link SquigglyName#match(String)} strength, the last one winning ties.
+ * Exact names are looked up in a hash index and wildcard names are all run together through one
+ * {@link GlobAutomaton}, the other names are matched one by one.
+ */
+@ThreadSafe
+public final class NameMatcher {
+
+    // the last index of each exact name
+    private final Map<String, Integer> exactIndexes;
+
+    private final GlobAutomaton globs;
+
+    private final int[] globIndexes;
+
+    private final int[] globStrengths;
+
+    private final int[] otherIndexes;
+
+    private final SquigglyName[] otherNames;
+
+    /**
+     * Constructor.
+     *
+     * @param names the sibling names, in order
+     */
+    public NameMatcher(List<? extends SquigglyName> names) {
+        List<Integer> exact = new ArrayList<>();
+        List<Integer> glob = new ArrayList<>();
+        List<String> globPatterns = new ArrayList<>();
+        List<Integer> other = new ArrayList<>();
+
+        for (int i = 0; i < names.size(); i++) {
+            SquigglyName name = names.get(i);
+
+            if (name instanceof ExactName) {
+                exact.add(i);
+            } else if (name instanceof WildcardName && ((WildcardName) name).isGlobSupported()) {
+                glob.add(i);
+                globPatterns.add(name.getName());
+            } else {
+                other.add(i);
+            }
+        }
+
+        this.exactIndexes = new HashMap<>();
+
+        for (int i : exact) {
+            exactIndexes.put(names.get(i).getName(), i);
+        }
+
+        this.globs = glob.isEmpty() ? null : GlobAutomaton.compile(globPatterns);
+        this.globIndexes = toArray(glob);
+        this.globStrengths = new int[globIndexes.length];
+
+        for (int i = 0; i < globIndexes.length; i++) {
+            globStrengths[i] = ((WildcardName) names.get(globIndexes[i])).getMatchStrength();
+        }
+
+        this.otherIndexes = toArray(other);
+        this.otherNames = new SquigglyName[otherIndexes.length];
+
+        for (int i = 0; i < otherIndexes.length; i++) {
+            otherNames[i] = names.get(otherIndexes[i]);
+        }
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] array = new int[list.size()];
+
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+
+        return array;
+    }
+
+    /**
+     * Find the best match for a name.
+     *
+     * @param name the name
+     * @return index of the best matching sibling or -1 if none matches
+     */
+    public int match(String name) {
+        // an exact match beats everything else, so the last one is the best
+        Integer exactIndex = exactIndexes.get(name);
+
+        if (exactIndex != null) {
+            return exactIndex;
+        }
+
+        int bestIndex = -1;
+        int bestStrength = -1;
+
+        if (globs != null) {
+            for (int word = 0, words = globs.getWordCount(); word < words; word++) {
+                long accepted = globs.match(word, name);
+
+                while (accepted != 0) {
+                    int glob = globs.getGlobIndex(word, Long.numberOfTrailingZeros(accepted));
+                    accepted &= accepted - 1;
+
+                    if (isBetter(globStrengths[glob], globIndexes[glob], bestStrength, bestIndex)) {
+                        bestIndex = globIndexes[glob];
+                        bestStrength = globStrengths[glob];
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < otherNames.length; i++) {
+            int strength = otherNames[i].match(name);
+
+            if (strength >= 0 && isBetter(strength, otherIndexes[i], bestStrength, bestIndex)) {
+                bestIndex = otherIndexes[i];
+                bestStrength = strength;
+            }
+        }
+
+        return bestIndex;
+    }
+
+    private static boolean isBetter(int strength, int index, int bestStrength, int bestIndex) {
+        return strength > bestStrength || (strength == bestStrength && index > bestIndex);
+    }
+
+}
@@ -1,38 +1,93 @@
 package io.github.walkin.purifier.name;
 
+import com.google.common.collect.ImmutableSet;
+import io.github.walkin.purifier.config.PurifierConfig;
+
 import java.util.Set;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * Name that matches a regex.  Patterns are matched by the linear engine when it supports them, so that a filter can't
+ * make matching backtrack exponentially, see {@link PurifierConfig#getParserRegexEngine()}.
+ */
 public class RegexName implements SquigglyName {
 
     private final String name;
 
     private final String rawName;
 
+    private final Set<String> flags;
+
+    private final LinearRegex linear;
+
+    // null when the linear engine matches the name
     private final Pattern pattern;
 
+    // matchers are reset for each name instead of being allocated
+    private final ThreadLocal<Matcher> matchers;
+
     public RegexName(String name, Set<String> flags) {
         this.name = name;
         this.rawName = name;
-        this.pattern = buildPattern(name, flags);
+        this.flags = flags == null ? ImmutableSet.<String>of() : ImmutableSet.copyOf(flags);
+
+        int flagMask = buildFlagMask(name, this.flags);
+        this.linear = buildLinear(name, flagMask);
+
+        if (linear == null) {
+            Pattern jdkPattern = Pattern.compile(name, flagMask);
+            this.pattern = jdkPattern;
+            this.matchers = ThreadLocal.withInitial(() -> jdkPattern.matcher(""));
+        } else {
+            this.pattern = null;
+            this.matchers = null;
+        }
     }
 
-    private Pattern buildPattern(String name, Set<String> flags) {
+    private static int buildFlagMask(String name, Set<String> flags) {
         int flagMask = 0;
 
-        if (flags != null && !flags.isEmpty()) {
-            for (String flag : flags) {
-                switch (flag) {
-                    case "i":
-                        flagMask |= Pattern.CASE_INSENSITIVE;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unrecognized flag " + flag + " for pattern " + name);
-                }
+        for (String flag : flags) {
+            switch (flag) {
+                case "i":
+                    flagMask |= Pattern.CASE_INSENSITIVE;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unrecognized flag " + flag + " for pattern " + name);
             }
         }
 
-        return Pattern.compile(name, flagMask);
+        return flagMask;
+    }
+
+    private static LinearRegex buildLinear(String name, int flagMask) {
+        String engine = PurifierConfig.getParserRegexEngine();
+
+        if ("jdk".equals(engine)) {
+            return null;
+        }
+
+        if (!"linear".equals(engine)) {
+            throw new IllegalArgumentException("Unrecognized regex engine " + engine);
+        }
+
+        LinearRegex linear = LinearRegex.compile(name, (flagMask & Pattern.CASE_INSENSITIVE) != 0);
+
+        if (linear != null) {
+            return linear;
+        }
+
+        String fallback = PurifierConfig.getParserRegexFallback();
+
+        switch (fallback) {
+            case "jdk":
+                return null;
+            case "reject":
+                throw new IllegalArgumentException("Pattern " + name + " isn't supported by the linear regex engine");
+            default:
+                throw new IllegalArgumentException("Unrecognized regex fallback " + fallback);
+        }
     }
 
     @Override
@@ -45,13 +100,40 @@ public class RegexName implements SquigglyName {
         return rawName;
     }
 
+    /**
+     * Get the flags of the pattern, eg. i for case insensitive.
+     *
+     * @return flags
+     */
+    public Set<String> getFlags() {
+        return flags;
+    }
+
     @Override
     public int match(String name) {
-        if (pattern.matcher(name).matches()) {
+        boolean matches = linear == null ? matchers.get().reset(name).matches() : linear.matches(name);
+
+        if (matches) {
             return rawName.length() + 2;
         }
 
         return -1;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        RegexName that = (RegexName) o;
+        return name.equals(that.name) && flags.equals(that.flags);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + flags.hashCode();
+    }
+
 }
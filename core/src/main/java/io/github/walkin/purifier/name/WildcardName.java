@@ -2,6 +2,7 @@ package io.github.walkin.purifier.name;
 
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.Collections;
 import java.util.regex.Pattern;
 
 public class WildcardName implements SquigglyName {
@@ -10,17 +11,27 @@ public class WildcardName implements SquigglyName {
 
     private final String rawName;
 
+    private final GlobAutomaton automaton;
+
     private final Pattern pattern;
 
     public WildcardName(String name) {
         this.name = name;
         this.rawName = StringUtils.remove(this.name, '*');
-        this.pattern = buildPattern();
+
+        // globs are matched without regex, the pattern is only needed for very long ones
+        if (GlobAutomaton.isSupported(name)) {
+            this.automaton = GlobAutomaton.compile(Collections.singletonList(name));
+            this.pattern = null;
+        } else {
+            this.automaton = null;
+            this.pattern = buildPattern();
+        }
     }
 
     private Pattern buildPattern() {
-        String[] search = {"*", "?"};
-        String[] replace = {".*", ".?"};
+        String[] search = {"*", "?", "$"};
+        String[] replace = {".*", ".?", "\\$"};
 
         return Pattern.compile("^" + StringUtils.replaceEach(name, search, replace) + "$");
     }
@@ -37,11 +48,44 @@ public class WildcardName implements SquigglyName {
 
     @Override
     public int match(String name) {
-        if (pattern.matcher(name).matches()) {
-            return rawName.length() + 2;
+        if (matches(name)) {
+            return getMatchStrength();
         }
 
         return -1;
     }
 
+    private boolean matches(String name) {
+        if (automaton != null) {
+            return automaton.match(0, name) != 0;
+        }
+
+        return pattern.matcher(name).matches();
+    }
+
+    // the same strength for any name that matches
+    int getMatchStrength() {
+        return rawName.length() + 2;
+    }
+
+    boolean isGlobSupported() {
+        return automaton != null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        WildcardName that = (WildcardName) o;
+        return name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
 }
@@ -0,0 +1,188 @@
+package io.github.walkin.purifier.parser;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.Arrays;
+
+/**
+ * Splits a filter expression into the tokens of the SquigglyExpression grammar, the way the generated ANTLR lexer
+ * does: longest match first, and the literals of the parser rules before the lexer rules on ties.  In particular a
+ * lone <code>i</code> is the regex flag token, not an identifier, and <code>**</code> is always the deep wildcard.
+ * <p>
+ * Every character belongs to some token, characters outside of the grammar's are {@link #REGEX_CHAR}s.
+ */
+@NotThreadSafe
+final class ExpressionLexer {
+
+    static final int EOF = 0;
+    static final int COMMA = 1;
+    static final int LPAREN = 2;
+    static final int RPAREN = 3;
+    static final int PIPE = 4;
+    static final int DASH = 5;
+    static final int DOT = 6;
+    static final int TILDE = 7;
+    static final int SLASH = 8;
+    static final int FLAG_I = 9;
+    static final int QUESTION = 10;
+    static final int LBRACE = 11;
+    static final int RBRACE = 12;
+    static final int LSQUIGGLY = 13;
+    static final int RSQUIGGLY = 14;
+    static final int IDENTIFIER = 15;
+    static final int WILDCARD_SHALLOW = 16;
+    static final int WILDCARD_DEEP = 17;
+    static final int REGEX_CHAR = 18;
+
+    private final String input;
+
+    private int[] types;
+
+    private int[] starts;
+
+    private int count;
+
+    /**
+     * Tokenize an expression.
+     *
+     * @param input the expression
+     */
+    ExpressionLexer(String input) {
+        this.input = input;
+        this.types = new int[Math.max(8, input.length() / 2)];
+        this.starts = new int[types.length];
+
+        int pos = 0;
+        int length = input.length();
+
+        while (pos < length) {
+            char c = input.charAt(pos);
+            int start = pos++;
+            int type;
+
+            if (isFieldChar(c)) {
+                while (pos < length && isFieldChar(input.charAt(pos))) {
+                    pos++;
+                }
+
+                type = (pos - start == 1 && c == 'i') ? FLAG_I : IDENTIFIER;
+            } else if (c == '*') {
+                if (pos < length && input.charAt(pos) == '*') {
+                    pos++;
+                    type = WILDCARD_DEEP;
+                } else {
+                    type = WILDCARD_SHALLOW;
+                }
+            } else {
+                type = getPunctuationType(c);
+            }
+
+            add(type, start);
+        }
+
+        add(EOF, length);
+    }
+
+    private static boolean isFieldChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '$' || c == '_';
+    }
+
+    private static int getPunctuationType(char c) {
+        switch (c) {
+            case ',':
+                return COMMA;
+            case '(':
+                return LPAREN;
+            case ')':
+                return RPAREN;
+            case '|':
+                return PIPE;
+            case '-':
+                return DASH;
+            case '.':
+                return DOT;
+            case '~':
+                return TILDE;
+            case '/':
+                return SLASH;
+            case '?':
+                return QUESTION;
+            case '[':
+                return LBRACE;
+            case ']':
+                return RBRACE;
+            case '{':
+                return LSQUIGGLY;
+            case '}':
+                return RSQUIGGLY;
+            default:
+                return REGEX_CHAR;
+        }
+    }
+
+    private void add(int type, int start) {
+        if (count == types.length) {
+            types = Arrays.copyOf(types, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+        }
+
+        types[count] = type;
+        starts[count] = start;
+        count++;
+    }
+
+    /**
+     * Get the type of a token.
+     *
+     * @param index token index, the last token is {@link #EOF}
+     * @return type
+     */
+    int getType(int index) {
+        return types[Math.min(index, count - 1)];
+    }
+
+    /**
+     * Get the offset of the first character of a token.
+     *
+     * @param index token index
+     * @return offset
+     */
+    int getStart(int index) {
+        return starts[Math.min(index, count - 1)];
+    }
+
+    /**
+     * Get the text between the start of a token and the start of another.
+     *
+     * @param from index of the first token
+     * @param to   index of the token after the last one
+     * @return text
+     */
+    String getText(int from, int to) {
+        return input.substring(getStart(from), getStart(to));
+    }
+
+    /**
+     * Create the exception for an unexpected token, with the same message format as the ANTLR error listener.
+     *
+     * @param index index of the token
+     * @return exception to throw
+     */
+    ParseCancellationException newError(int index) {
+        int start = getStart(index);
+        int lineStart = input.lastIndexOf('\n', start - 1) + 1;
+        int line = 1;
+
+        for (int i = 0; i < lineStart; i++) {
+            if (input.charAt(i) == '\n') {
+                line++;
+            }
+        }
+
+        String text = getType(index) == EOF ? "<EOF>" : getText(index, index + 1);
+        return new ParseCancellationException("line " + line + ":" + (start - lineStart) + " mismatched input '" +
+                                                      text + "'");
+    }
+
+}
@@ -0,0 +1,239 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.collect.ImmutableList;
+import io.github.walkin.purifier.name.AnyDeepName;
+import io.github.walkin.purifier.name.AnyShallowName;
+import io.github.walkin.purifier.name.ExactName;
+import io.github.walkin.purifier.name.SquigglyName;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Builds the nodes of a filter expression directly, without writing the expression and parsing it back.  The nodes
+ * are the same as the {@link PurifierParser}'s for the equivalent expression, for example:
+ * <pre>
+ * new FilterBuilder()
+ *         .field("id")
+ *         .path("owner", "name")
+ *         .nested("assignee", assignee -&gt; assignee.field("id").field(new WildcardName("*Name")))
+ *         .exclude("secret")
+ *         .build();
+ * </pre>
+ * builds <code>id,owner.name,assignee{id,*Name},-secret</code>.  Strings are exact names, other names are passed as
+ * {@link SquigglyName}s.  A view is referenced by its name, like in expressions.
+ */
+@NotThreadSafe
+public class FilterBuilder {
+
+    private static final PurifierParser PARSER = new PurifierParser();
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Add a field.
+     *
+     * @param name exact name of the field
+     * @return this builder
+     */
+    public FilterBuilder field(String name) {
+        return field(new ExactName(name));
+    }
+
+    /**
+     * Add a field, eg. a wildcard or regex name.
+     *
+     * @param name name of the field
+     * @return this builder
+     */
+    public FilterBuilder field(SquigglyName name) {
+        return add(new Entry(EntryType.FIELD, ImmutableList.of(name), null));
+    }
+
+    /**
+     * Add a view.  Same as adding a field with the view's name.
+     *
+     * @param viewName name of the view
+     * @return this builder
+     */
+    public FilterBuilder view(String viewName) {
+        return field(viewName);
+    }
+
+    /**
+     * Add a dotted path, eg. <code>owner.name</code>.
+     *
+     * @param names exact names of the path
+     * @return this builder
+     */
+    public FilterBuilder path(String... names) {
+        return path(toNames(names));
+    }
+
+    /**
+     * Add a dotted path.
+     *
+     * @param names names of the path
+     * @return this builder
+     */
+    public FilterBuilder path(SquigglyName... names) {
+        return add(new Entry(EntryType.FIELD, toPath(names), null));
+    }
+
+    /**
+     * Add a field with a nested filter, eg. <code>assignee{id}</code>.  An empty nested filter is the same as
+     * {@link #empty(String)}.
+     *
+     * @param name   exact name of the field
+     * @param nested builds the nested filter
+     * @return this builder
+     */
+    public FilterBuilder nested(String name, Consumer<FilterBuilder> nested) {
+        return nested(new ExactName(name), nested);
+    }
+
+    /**
+     * Add a field with a nested filter.
+     *
+     * @param name   name of the field
+     * @param nested builds the nested filter
+     * @return this builder
+     */
+    public FilterBuilder nested(SquigglyName name, Consumer<FilterBuilder> nested) {
+        FilterBuilder builder = new FilterBuilder();
+        nested.accept(builder);
+        return add(new Entry(EntryType.FIELD, ImmutableList.of(name), builder));
+    }
+
+    /**
+     * Add a field with an empty nested filter, eg. <code>assignee{}</code>.
+     *
+     * @param name exact name of the field
+     * @return this builder
+     */
+    public FilterBuilder empty(String name) {
+        return empty(new ExactName(name));
+    }
+
+    /**
+     * Add a field with an empty nested filter.
+     *
+     * @param name name of the field
+     * @return this builder
+     */
+    public FilterBuilder empty(SquigglyName name) {
+        return add(new Entry(EntryType.FIELD, ImmutableList.of(name), new FilterBuilder()));
+    }
+
+    /**
+     * Exclude a field or a dotted path, eg. <code>-secret</code> or <code>-owner.secret</code>.
+     *
+     * @param names exact names of the path
+     * @return this builder
+     */
+    public FilterBuilder exclude(String... names) {
+        return exclude(toNames(names));
+    }
+
+    /**
+     * Exclude a field or a dotted path.
+     *
+     * @param names names of the path
+     * @return this builder
+     */
+    public FilterBuilder exclude(SquigglyName... names) {
+        return add(new Entry(EntryType.EXCLUDE, toPath(names), null));
+    }
+
+    /**
+     * Add <code>*</code>.
+     *
+     * @return this builder
+     */
+    public FilterBuilder anyShallow() {
+        return field(AnyShallowName.get());
+    }
+
+    /**
+     * Add <code>**</code>.
+     *
+     * @return this builder
+     */
+    public FilterBuilder anyDeep() {
+        return add(new Entry(EntryType.ANY_DEEP, ImmutableList.of(AnyDeepName.get()), null));
+    }
+
+    /**
+     * Build the nodes.
+     *
+     * @return nodes, canonical like the parser's if {@link io.github.walkin.purifier.config.PurifierConfig#isParserCanonicalize()}
+     */
+    public List<PurifierNode> build() {
+        return PARSER.build(this);
+    }
+
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    private FilterBuilder add(Entry entry) {
+        entries.add(entry);
+        return this;
+    }
+
+    private static SquigglyName[] toNames(String[] names) {
+        SquigglyName[] squigglyNames = new SquigglyName[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+            squigglyNames[i] = new ExactName(names[i]);
+        }
+
+        return squigglyNames;
+    }
+
+    private static List<SquigglyName> toPath(SquigglyName[] names) {
+        if (names.length == 0) {
+            throw new IllegalArgumentException("Path is empty");
+        }
+
+        return ImmutableList.copyOf(names);
+    }
+
+    enum EntryType {
+        FIELD,
+        EXCLUDE,
+        ANY_DEEP
+    }
+
+    // a path of names, followed by a nested filter for fields, which is empty for fields like a{}
+    static class Entry {
+
+        private final EntryType type;
+
+        private final List<SquigglyName> path;
+
+        private final FilterBuilder nested;
+
+        Entry(EntryType type, List<SquigglyName> path, FilterBuilder nested) {
+            this.type = type;
+            this.path = path;
+            this.nested = nested;
+        }
+
+        EntryType getType() {
+            return type;
+        }
+
+        List<SquigglyName> getPath() {
+            return path;
+        }
+
+        FilterBuilder getNested() {
+            return nested;
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+package io.github.walkin.purifier.parser;
+
+import io.github.walkin.purifier.config.PurifierConfig;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.Arrays;
+
+/**
+ * What a filter expression costs to parse and match, estimated from its tokens without parsing it, so that it is
+ * cheap enough to check every expression a client sends before it reaches the parser.
+ * <p>
+ * The budgets are configured in {@link PurifierConfig}, see {@link PurifierConfig#getFilterBudgetMaxLength()} and
+ * the like.
+ */
+@ThreadSafe
+public final class FilterCost {
+
+    private final int length;
+
+    private final int depth;
+
+    private final int wildcards;
+
+    private final int deepWildcards;
+
+    private final int regexes;
+
+    private FilterCost(int length, int depth, int wildcards, int deepWildcards, int regexes) {
+        this.length = length;
+        this.depth = depth;
+        this.wildcards = wildcards;
+        this.deepWildcards = deepWildcards;
+        this.regexes = regexes;
+    }
+
+    /**
+     * Estimate the cost of a filter expression.  Invalid expressions get an estimate too, they fail later when parsed.
+     * Expressions over the length budget aren't read at all, only their length is known.
+     *
+     * @param filter the filter expression
+     * @return cost
+     */
+    public static FilterCost of(String filter) {
+        if (exceeds(filter.length(), PurifierConfig.getFilterBudgetMaxLength())) {
+            return new FilterCost(filter.length(), 0, 0, 0, 0);
+        }
+
+        ExpressionLexer lexer = new ExpressionLexer(filter);
+        int wildcards = 0;
+        int deepWildcards = 0;
+        int regexes = 0;
+        int depth = 0;
+        int nesting = 0;
+        int dots = 0;
+
+        // levels each open nested list added, a dotted path before it counts as well
+        int[] opened = new int[8];
+        int openCount = 0;
+
+        for (int i = 0; lexer.getType(i) != ExpressionLexer.EOF; i++) {
+            int type = lexer.getType(i);
+
+            switch (type) {
+                case ExpressionLexer.TILDE:
+                case ExpressionLexer.SLASH:
+                    // the pattern is opaque, skip to the closing delimiter
+                    regexes++;
+                    i++;
+
+                    while (lexer.getType(i) != type && lexer.getType(i) != ExpressionLexer.EOF) {
+                        i++;
+                    }
+
+                    break;
+                case ExpressionLexer.LSQUIGGLY:
+                case ExpressionLexer.LBRACE:
+                    if (openCount == opened.length) {
+                        opened = Arrays.copyOf(opened, openCount * 2);
+                    }
+
+                    opened[openCount++] = dots + 1;
+                    nesting += dots + 1;
+                    dots = 0;
+                    break;
+                case ExpressionLexer.RSQUIGGLY:
+                case ExpressionLexer.RBRACE:
+                    if (openCount > 0) {
+                        nesting -= opened[--openCount];
+                    }
+
+                    dots = 0;
+                    break;
+                case ExpressionLexer.COMMA:
+                    dots = 0;
+                    break;
+                case ExpressionLexer.DOT:
+                    dots++;
+                    break;
+                case ExpressionLexer.WILDCARD_SHALLOW:
+                case ExpressionLexer.QUESTION:
+                    wildcards++;
+                    break;
+                case ExpressionLexer.WILDCARD_DEEP:
+                    deepWildcards++;
+                    break;
+                default:
+                    break;
+            }
+
+            depth = Math.max(depth, nesting + dots + 1);
+        }
+
+        return new FilterCost(filter.length(), depth, wildcards, deepWildcards, regexes);
+    }
+
+    /**
+     * Determines whether any budget is configured, if none is there is no need to estimate costs.
+     *
+     * @return true if there is a budget
+     */
+    public static boolean isBudgeted() {
+        return PurifierConfig.getFilterBudgetMaxLength() >= 0
+                || PurifierConfig.getFilterBudgetMaxDepth() >= 0
+                || PurifierConfig.getFilterBudgetMaxWildcards() >= 0
+                || PurifierConfig.getFilterBudgetMaxDeepWildcards() >= 0
+                || PurifierConfig.getFilterBudgetMaxRegexes() >= 0;
+    }
+
+    /**
+     * Get the number of characters.
+     *
+     * @return length
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the number of nesting levels, counting both nested lists and dotted paths.
+     *
+     * @return depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the number of wildcard characters, including <code>*</code> names.
+     *
+     * @return wildcards
+     */
+    public int getWildcards() {
+        return wildcards;
+    }
+
+    /**
+     * Get the number of deep wildcards (<code>**</code>).
+     *
+     * @return deep wildcards
+     */
+    public int getDeepWildcards() {
+        return deepWildcards;
+    }
+
+    /**
+     * Get the number of regex names.
+     *
+     * @return regexes
+     */
+    public int getRegexes() {
+        return regexes;
+    }
+
+    /**
+     * Get the first configured budget this cost is over.
+     *
+     * @return description of the budget, eg. "maximum depth of 5", or null if within all budgets
+     */
+    public String getExceededBudget() {
+        if (exceeds(length, PurifierConfig.getFilterBudgetMaxLength())) {
+            return "maximum length of " + PurifierConfig.getFilterBudgetMaxLength();
+        }
+
+        if (exceeds(depth, PurifierConfig.getFilterBudgetMaxDepth())) {
+            return "maximum depth of " + PurifierConfig.getFilterBudgetMaxDepth();
+        }
+
+        if (exceeds(wildcards, PurifierConfig.getFilterBudgetMaxWildcards())) {
+            return "maximum of " + PurifierConfig.getFilterBudgetMaxWildcards() + " wildcards";
+        }
+
+        if (exceeds(deepWildcards, PurifierConfig.getFilterBudgetMaxDeepWildcards())) {
+            return "maximum of " + PurifierConfig.getFilterBudgetMaxDeepWildcards() + " deep wildcards";
+        }
+
+        if (exceeds(regexes, PurifierConfig.getFilterBudgetMaxRegexes())) {
+            return "maximum of " + PurifierConfig.getFilterBudgetMaxRegexes() + " regexes";
+        }
+
+        return null;
+    }
+
+    private static boolean exceeds(int value, int budget) {
+        return budget >= 0 && value > budget;
+    }
+
+    @Override
+    public String toString() {
+        return "FilterCost{length=" + length + ", depth=" + depth + ", wildcards=" + wildcards + ", deepWildcards="
+                + deepWildcards + ", regexes=" + regexes + "}";
+    }
+
+}
@@ -0,0 +1,238 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.hash.Hashing;
+import net.jcip.annotations.ThreadSafe;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Filter expressions registered once, at startup or at runtime, and referenced afterwards instead of being sent in
+ * full: <code>@id</code> for an expression registered under an id, or <code>@h:hash</code> for one registered under
+ * its content hash.  The hash is the hex SHA-256 of the canonical expression, see {@link PurifierNodes#toFilter(List)},
+ * and any unique prefix of at least {@value #MIN_HASH_PREFIX} characters references it.
+ * <p>
+ * Registered expressions are parsed when registered, so invalid ones fail then, and their nodes are pinned: the
+ * {@link PurifierParser} resolves references, and the registered expressions themselves, without the node cache.
+ * Registrations are permanent, an id can't be registered again with another expression.
+ */
+@ThreadSafe
+public final class FilterRegistry {
+
+    /**
+     * Start of a reference to a registered expression.
+     */
+    public static final String REFERENCE_PREFIX = "@";
+
+    /**
+     * Start of a reference to an expression registered under its content hash.
+     */
+    public static final String HASH_REFERENCE_PREFIX = "@h:";
+
+    /**
+     * Minimum length of a hash prefix in a reference.
+     */
+    public static final int MIN_HASH_PREFIX = 6;
+
+    private static final Map<String, Registration> IDS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentNavigableMap<String, Registration> HASHES = new ConcurrentSkipListMap<>();
+
+    // registered expressions, as written when registered, to their nodes
+    private static final Map<String, List<PurifierNode>> PINNED = new ConcurrentHashMap<>();
+
+    private FilterRegistry() {
+    }
+
+    /**
+     * Register a filter expression under its content hash.  Equivalent expressions, eg. id,name and name,id, get the
+     * same hash, whether or not the parser canonicalizes.
+     *
+     * @param filter the filter expression
+     * @return reference to use instead of the expression, eg. <code>@h:3fa9c1...</code>
+     * @throws IllegalArgumentException if the expression is empty or invalid
+     */
+    public static String register(String filter) {
+        Registration registration = newRegistration(filter);
+        String hash = Hashing.sha256()
+                .hashString(PurifierNodes.toFilter(PurifierNodes.canonicalize(registration.nodes)),
+                            StandardCharsets.UTF_8)
+                .toString();
+
+        HASHES.putIfAbsent(hash, registration);
+        pin(registration);
+        return HASH_REFERENCE_PREFIX + hash;
+    }
+
+    /**
+     * Register a filter expression under an id.  Registering the same expression again under the same id is a no-op.
+     *
+     * @param id     letters, digits and <code>_ $ . -</code>
+     * @param filter the filter expression
+     * @return reference to use instead of the expression, <code>@id</code>
+     * @throws IllegalArgumentException if the id or the expression is invalid
+     * @throws IllegalStateException    if the id is registered with another expression
+     */
+    public static String register(String id, String filter) {
+        checkId(id);
+        Registration registration = newRegistration(filter);
+        Registration existing = IDS.putIfAbsent(id, registration);
+
+        if (existing != null && !existing.filter.equals(registration.filter)) {
+            throw new IllegalStateException("Filter id " + id + " is already registered with " + existing.filter);
+        }
+
+        pin(registration);
+        return REFERENCE_PREFIX + id;
+    }
+
+    /**
+     * Get the expression a reference stands for.
+     *
+     * @param reference the reference
+     * @return registered expression or null if the reference isn't registered
+     * @throws IllegalArgumentException if a hash prefix is ambiguous or too short
+     */
+    public static String getFilter(String reference) {
+        Registration registration = find(reference);
+        return registration == null ? null : registration.filter;
+    }
+
+    /**
+     * Determines whether a filter expression is registered, as is and not as a reference.
+     *
+     * @param filter trimmed filter expression
+     * @return true if registered
+     */
+    public static boolean isRegistered(String filter) {
+        return PINNED.containsKey(filter);
+    }
+
+    /**
+     * Determines whether a filter expression is a reference, registered or not.
+     *
+     * @param filter trimmed filter expression
+     * @return true if it is a reference
+     */
+    public static boolean isReference(String filter) {
+        return filter.startsWith(REFERENCE_PREFIX);
+    }
+
+    /**
+     * Get the nodes of a referenced expression.
+     *
+     * @param reference the reference
+     * @return nodes
+     * @throws IllegalArgumentException if the reference isn't registered, or is ambiguous
+     */
+    static List<PurifierNode> resolve(String reference) {
+        Registration registration = find(reference);
+
+        if (registration == null) {
+            throw new IllegalArgumentException("Unknown filter reference " + reference);
+        }
+
+        return registration.nodes;
+    }
+
+    /**
+     * Get the nodes of an expression if it is registered.
+     *
+     * @param filter trimmed filter expression
+     * @return nodes or null if not registered
+     */
+    static List<PurifierNode> getPinnedNodes(String filter) {
+        return PINNED.get(filter);
+    }
+
+    private static Registration find(String reference) {
+        if (reference.startsWith(HASH_REFERENCE_PREFIX)) {
+            return findHash(reference.substring(HASH_REFERENCE_PREFIX.length()));
+        }
+
+        if (reference.startsWith(REFERENCE_PREFIX)) {
+            return IDS.get(reference.substring(REFERENCE_PREFIX.length()));
+        }
+
+        return null;
+    }
+
+    private static Registration findHash(String hash) {
+        String prefix = hash.toLowerCase(Locale.ROOT);
+
+        if (prefix.length() < MIN_HASH_PREFIX) {
+            throw new IllegalArgumentException("Filter hash " + prefix + " is shorter than " + MIN_HASH_PREFIX
+                                                       + " characters");
+        }
+
+        Map.Entry<String, Registration> entry = HASHES.ceilingEntry(prefix);
+
+        if (entry == null || !entry.getKey().startsWith(prefix)) {
+            return null;
+        }
+
+        Map.Entry<String, Registration> next = HASHES.higherEntry(entry.getKey());
+
+        if (next != null && next.getKey().startsWith(prefix)) {
+            throw new IllegalArgumentException("Filter hash " + prefix + " is ambiguous");
+        }
+
+        return entry.getValue();
+    }
+
+    private static void checkId(String id) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Filter id is empty");
+        }
+
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '$' && c != '.' && c != '-') {
+                throw new IllegalArgumentException("Invalid filter id " + id);
+            }
+        }
+    }
+
+    private static Registration newRegistration(String filter) {
+        String trimmed = filter == null ? "" : filter.trim();
+
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException("Filter is empty");
+        }
+
+        if (isReference(trimmed)) {
+            throw new IllegalArgumentException("Filter " + trimmed + " is a reference");
+        }
+
+        try {
+            return new Registration(trimmed, new PurifierParser().parse(trimmed));
+        } catch (ParseCancellationException e) {
+            throw new IllegalArgumentException("Invalid filter " + trimmed, e);
+        }
+    }
+
+    private static void pin(Registration registration) {
+        PINNED.putIfAbsent(registration.filter, registration.nodes);
+    }
+
+    private static class Registration {
+
+        private final String filter;
+
+        private final List<PurifierNode> nodes;
+
+        Registration(String filter, List<PurifierNode> nodes) {
+            this.filter = filter;
+            this.nodes = nodes;
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import io.github.walkin.purifier.name.AnyDeepName;
+import io.github.walkin.purifier.name.AnyShallowName;
+import io.github.walkin.purifier.name.ExactName;
+import io.github.walkin.purifier.name.RegexName;
+import io.github.walkin.purifier.name.SquigglyName;
+import io.github.walkin.purifier.name.WildcardName;
+import net.jcip.annotations.ThreadSafe;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Compact binary encoding of node trees.
+ * <p>
+ * A node is a byte of flags and name kind, the name unless it is <code>*</code> or <code>**</code>, the regex flags
+ * for regex names, then its children.  Counts are varints and strings are UTF-8 prefixed by their length in bytes, so
+ * a node of a short exact name takes a few bytes, against the hundred or so of its objects on the heap.  Unlike
+ * modified UTF-8, names of any length can be encoded.
+ */
+@ThreadSafe
+final class NodeCodec {
+
+    private static final int NEGATED = 1;
+    private static final int SQUIGGLY = 1 << 1;
+    private static final int EMPTY_NESTED = 1 << 2;
+
+    private static final int KIND_SHIFT = 3;
+    private static final int EXACT = 0;
+    private static final int WILDCARD = 1;
+    private static final int REGEX = 2;
+    private static final int ANY_SHALLOW = 3;
+    private static final int ANY_DEEP = 4;
+
+    private NodeCodec() {
+    }
+
+    /**
+     * Encode nodes.
+     *
+     * @param nodes nodes
+     * @return bytes
+     */
+    static byte[] encode(List<PurifierNode> nodes) {
+        ByteArrayDataOutput output = ByteStreams.newDataOutput();
+        writeNodes(output, nodes);
+        return output.toByteArray();
+    }
+
+    /**
+     * Decode nodes.  Names are created again, so regex and wildcard patterns are compiled again.
+     *
+     * @param bytes encoded nodes
+     * @return nodes
+     */
+    static List<PurifierNode> decode(byte[] bytes) {
+        return readNodes(ByteStreams.newDataInput(bytes));
+    }
+
+    private static void writeNodes(ByteArrayDataOutput output, List<PurifierNode> nodes) {
+        writeVarint(output, nodes.size());
+
+        for (PurifierNode node : nodes) {
+            writeNode(output, node);
+        }
+    }
+
+    private static void writeNode(ByteArrayDataOutput output, PurifierNode node) {
+        SquigglyName name = node.getSquigglyName();
+        int kind = getKind(name);
+        int flags = kind << KIND_SHIFT;
+
+        if (node.isNegated()) {
+            flags |= NEGATED;
+        }
+
+        if (node.isSquiggly()) {
+            flags |= SQUIGGLY;
+        }
+
+        if (node.isEmptyNested()) {
+            flags |= EMPTY_NESTED;
+        }
+
+        output.writeByte(flags);
+
+        if (kind == EXACT || kind == WILDCARD || kind == REGEX) {
+            writeString(output, name.getName());
+        }
+
+        if (kind == REGEX) {
+            Set<String> regexFlags = ((RegexName) name).getFlags();
+            writeVarint(output, regexFlags.size());
+
+            for (String regexFlag : regexFlags) {
+                writeString(output, regexFlag);
+            }
+        }
+
+        writeNodes(output, node.getChildren());
+    }
+
+    private static int getKind(SquigglyName name) {
+        if (name instanceof ExactName) {
+            return EXACT;
+        }
+
+        if (name instanceof WildcardName) {
+            return WILDCARD;
+        }
+
+        if (name instanceof RegexName) {
+            return REGEX;
+        }
+
+        if (name instanceof AnyShallowName) {
+            return ANY_SHALLOW;
+        }
+
+        if (name instanceof AnyDeepName) {
+            return ANY_DEEP;
+        }
+
+        throw new IllegalArgumentException("Unsupported name type " + name.getClass().getName());
+    }
+
+    private static List<PurifierNode> readNodes(ByteArrayDataInput input) {
+        int count = readVarint(input);
+        List<PurifierNode> nodes = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            nodes.add(readNode(input));
+        }
+
+        return nodes;
+    }
+
+    private static PurifierNode readNode(ByteArrayDataInput input) {
+        int flags = input.readUnsignedByte();
+        SquigglyName name;
+
+        switch (flags >>> KIND_SHIFT) {
+            case EXACT:
+                name = new ExactName(readString(input));
+                break;
+            case WILDCARD:
+                name = new WildcardName(readString(input));
+                break;
+            case REGEX:
+                String pattern = readString(input);
+                int flagCount = readVarint(input);
+                Set<String> regexFlags = new HashSet<>(flagCount);
+
+                for (int i = 0; i < flagCount; i++) {
+                    regexFlags.add(readString(input));
+                }
+
+                name = new RegexName(pattern, regexFlags);
+                break;
+            case ANY_SHALLOW:
+                name = AnyShallowName.get();
+                break;
+            case ANY_DEEP:
+                name = AnyDeepName.get();
+                break;
+            default:
+                throw new IllegalStateException("Corrupt node encoding, flags " + flags);
+        }
+
+        List<PurifierNode> children = readNodes(input);
+        return new PurifierNode(name, children, (flags & NEGATED) != 0, (flags & SQUIGGLY) != 0,
+                                (flags & EMPTY_NESTED) != 0);
+    }
+
+    private static void writeString(ByteArrayDataOutput output, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(output, bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(ByteArrayDataInput input) {
+        byte[] bytes = new byte[readVarint(input)];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(ByteArrayDataOutput output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        output.writeByte(value);
+    }
+
+    private static int readVarint(ByteArrayDataInput input) {
+        int value = 0;
+
+        for (int shift = 0; ; shift += 7) {
+            int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+}
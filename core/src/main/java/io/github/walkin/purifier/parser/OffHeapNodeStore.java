@@ -0,0 +1,209 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
+import net.jcip.annotations.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Second level of the parser's node cache, holding encoded node trees (see {@link NodeCodec}) in a direct buffer of
+ * a fixed number of bytes, so that a large number of distinct expressions costs neither old gen nor GC time.
+ * <p>
+ * The buffer is a ring: records are appended, and the oldest ones are overwritten when it is full.  A record is the
+ * UTF-8 expression, to tell hash collisions apart, followed by the encoded nodes.  On the heap there is only an index
+ * from the 64-bit hash of the expression to the position of its record.  Entries are decoded on demand, and the
+ * decoded nodes are expected to be kept by the on-heap cache while they are hot.
+ */
+@ThreadSafe
+final class OffHeapNodeStore implements PurifierMetricsSource {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final ByteBuffer buffer;
+
+    // hash of an expression to the offset (high int) and length (low int) of its record
+    private final Map<Long, Long> index = new ConcurrentHashMap<>();
+
+    // records in write order, as hash and position pairs, the oldest first
+    private final ArrayDeque<long[]> records = new ArrayDeque<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private long evictionCount;
+
+    private int head;
+
+    private int usedBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity size of the buffer in bytes
+     */
+    OffHeapNodeStore(int capacity) {
+        this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * Get the nodes of an expression.
+     *
+     * @param filter the expression
+     * @return decoded nodes, not canonical, or null if not stored
+     */
+    List<PurifierNode> get(String filter) {
+        long hash = hash(filter);
+        byte[] key = filter.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = null;
+
+        lock.readLock().lock();
+
+        try {
+            Long position = index.get(hash);
+
+            if (position != null) {
+                encoded = read(position, key);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (encoded == null) {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return NodeCodec.decode(encoded);
+    }
+
+    // copies the encoded nodes out of the record, so that they are decoded without holding the lock
+    private byte[] read(long position, byte[] key) {
+        ByteBuffer record = buffer.duplicate();
+        record.position((int) (position >>> 32));
+
+        int keyLength = record.getInt();
+
+        if (keyLength != key.length) {
+            return null;
+        }
+
+        byte[] recordKey = new byte[keyLength];
+        record.get(recordKey);
+
+        if (!Arrays.equals(recordKey, key)) {
+            return null;
+        }
+
+        byte[] encoded = new byte[record.getInt()];
+        record.get(encoded);
+        return encoded;
+    }
+
+    /**
+     * Store the nodes of an expression.  Nodes that don't fit in the buffer are not stored.
+     *
+     * @param filter the expression
+     * @param nodes  the nodes
+     */
+    void put(String filter, List<PurifierNode> nodes) {
+        long hash = hash(filter);
+        byte[] key = filter.getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = NodeCodec.encode(nodes);
+        int length = Integer.BYTES + key.length + Integer.BYTES + encoded.length;
+
+        if (length > buffer.capacity()) {
+            return;
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            if (head + length > buffer.capacity()) {
+                // the end of the buffer is too small, the records left there are dropped before wrapping around
+                while (!records.isEmpty() && offset(records.peekFirst()) >= head) {
+                    evict(records.pollFirst());
+                }
+
+                head = 0;
+            }
+
+            while (!records.isEmpty() && overlaps(records.peekFirst(), head, length)) {
+                evict(records.pollFirst());
+            }
+
+            ByteBuffer record = buffer.duplicate();
+            record.position(head);
+            record.putInt(key.length);
+            record.put(key);
+            record.putInt(encoded.length);
+            record.put(encoded);
+
+            long position = ((long) head << 32) | length;
+            Long previous = index.put(hash, position);
+
+            if (previous != null) {
+                // the previous record of the hash is unreachable, it is evicted when overwritten
+                usedBytes -= (int) (long) previous;
+            }
+
+            records.addLast(new long[]{hash, position});
+            usedBytes += length;
+            head += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void evict(long[] record) {
+        if (index.remove(record[0], record[1])) {
+            usedBytes -= (int) record[1];
+            evictionCount++;
+        }
+    }
+
+    private static int offset(long[] record) {
+        return (int) (record[1] >>> 32);
+    }
+
+    private static boolean overlaps(long[] record, int start, int length) {
+        int offset = offset(record);
+        return offset < start + length && offset + (int) record[1] > start;
+    }
+
+    private static long hash(String filter) {
+        return HASH_FUNCTION.hashString(filter, StandardCharsets.UTF_8).asLong();
+    }
+
+    @Override
+    public void applyMetrics(Map<String, Object> map) {
+        lock.readLock().lock();
+
+        try {
+            String prefix = "squiggly.parser.nodeStore.";
+            map.put(prefix + "capacity", buffer.capacity());
+            map.put(prefix + "entryCount", index.size());
+            map.put(prefix + "evictionCount", evictionCount);
+            map.put(prefix + "hitCount", hitCount.get());
+            map.put(prefix + "missCount", missCount.get());
+            map.put(prefix + "usedBytes", usedBytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+}
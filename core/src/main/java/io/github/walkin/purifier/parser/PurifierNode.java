@@ -24,6 +24,10 @@ public class PurifierNode {
 
     private final boolean emptyNested;
 
+    private final int hash;
+
+    private volatile PurifierNodeMatcher childMatcher;
+
     /**
      * Constructor.
      *
@@ -41,6 +45,17 @@ public class PurifierNode {
         this.children = ImmutableList.copyOf(children);
         this.squiggly = squiggly;
         this.emptyNested = emptyNested;
+        this.hash = computeHash();
+    }
+
+    // nodes are immutable and compared structurally, so the hash is computed once
+    private int computeHash() {
+        int result = name.hashCode();
+        result = 31 * result + this.children.hashCode();
+        result = 31 * result + (squiggly ? 1 : 0);
+        result = 31 * result + (negated ? 1 : 0);
+        result = 31 * result + (emptyNested ? 1 : 0);
+        return result;
     }
 
     /**
@@ -62,6 +77,10 @@ public class PurifierNode {
         return name.getName();
     }
 
+    SquigglyName getSquigglyName() {
+        return name;
+    }
+
     /**
      * Get the node's children.
      *
@@ -71,6 +90,22 @@ public class PurifierNode {
         return children;
     }
 
+    /**
+     * Get the matcher of the node's children.
+     *
+     * @return child matcher
+     */
+    public PurifierNodeMatcher getChildMatcher() {
+        PurifierNodeMatcher matcher = childMatcher;
+
+        if (matcher == null) {
+            matcher = new PurifierNodeMatcher(children);
+            childMatcher = matcher;
+        }
+
+        return matcher;
+    }
+
     /**
      * A node is considered squiggly if it is comes right before a nested expression.
      * <p>For example, given the filter expression:</p>
@@ -119,4 +154,26 @@ public class PurifierNode {
         return negated;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+
+        PurifierNode that = (PurifierNode) o;
+        return hash == that.hash && squiggly == that.squiggly && negated == that.negated &&
+                emptyNested == that.emptyNested && name.equals(that.name) && children.equals(that.children);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return PurifierNodes.toFilter(this);
+    }
+
 }
@@ -0,0 +1,98 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.MapMaker;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The top-level nodes of a parsed filter expression, as returned by {@link PurifierParser}.
+ * <p>
+ * Besides the nodes, the list keeps what is derived from them, like their matcher.  Derived values may reference the
+ * list, they are dropped along with it once the parser's cache has evicted it, or along with their owner.
+ */
+@ThreadSafe
+public final class PurifierNodeList extends AbstractList<PurifierNode> implements RandomAccess {
+
+    private final List<PurifierNode> nodes;
+
+    // the nodes are immutable, so the hash is computed once
+    private final int hash;
+
+    // by owner, compared by identity and referenced weakly
+    private final ConcurrentMap<Object, Object> derived = new MapMaker().weakKeys().makeMap();
+
+    private volatile PurifierNodeMatcher matcher;
+
+    PurifierNodeList(List<PurifierNode> nodes) {
+        this.nodes = ImmutableList.copyOf(nodes);
+        this.hash = this.nodes.hashCode();
+    }
+
+    @Override
+    public PurifierNode get(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Get the matcher of the nodes.
+     *
+     * @return matcher
+     */
+    public PurifierNodeMatcher getMatcher() {
+        PurifierNodeMatcher matcher = this.matcher;
+
+        if (matcher == null) {
+            matcher = new PurifierNodeMatcher(this);
+            this.matcher = matcher;
+        }
+
+        return matcher;
+    }
+
+    /**
+     * Get what an owner derived from the nodes, deriving it on first use.  The value is kept for as long as both the
+     * list and its owner are, so it must not reference its owner.
+     *
+     * @param owner   the owner of the value
+     * @param factory derives the value from the nodes
+     * @param <T>     type of the value
+     * @return value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getDerived(Object owner, Function<? super PurifierNodeList, ? extends T> factory) {
+        Object value = derived.get(owner);
+
+        if (value == null) {
+            value = derived.computeIfAbsent(owner, key -> factory.apply(this));
+        }
+
+        return (T) value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o instanceof PurifierNodeList && hash != ((PurifierNodeList) o).hash)
+            return false;
+
+        return nodes.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+}
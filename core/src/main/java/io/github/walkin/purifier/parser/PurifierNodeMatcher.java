@@ -0,0 +1,105 @@
+package io.github.walkin.purifier.parser;
+
+import io.github.walkin.purifier.name.NameMatcher;
+import io.github.walkin.purifier.name.SquigglyName;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the sibling node that best matches a property name, matching all the siblings in one pass.  Exact names are
+ * resolved through a hash index, so wide filters don't make lookups slower.
+ *
+ * @see NameMatcher
+ */
+@ThreadSafe
+public final class PurifierNodeMatcher {
+
+    private final List<PurifierNode> nodes;
+
+    private final NameMatcher nameMatcher;
+
+    // index of the first node with a given name, views are looked up this way
+    private final Map<String, Integer> firstIndexes;
+
+    PurifierNodeMatcher(List<PurifierNode> nodes) {
+        List<SquigglyName> names = new ArrayList<>(nodes.size());
+        Map<String, Integer> firstIndexes = new HashMap<>();
+
+        for (int i = 0; i < nodes.size(); i++) {
+            PurifierNode node = nodes.get(i);
+            names.add(node.getSquigglyName());
+            firstIndexes.putIfAbsent(node.getName(), i);
+        }
+
+        this.nodes = nodes;
+        this.nameMatcher = new NameMatcher(names);
+        this.firstIndexes = firstIndexes;
+    }
+
+    /**
+     * Get the matcher of a list of sibling nodes.  Matchers are kept by the lists of parsed expressions and by the
+     * parents of child nodes, see {@link PurifierNodeList#getMatcher()} and {@link PurifierNode#getChildMatcher()},
+     * other lists get a new matcher every time.
+     *
+     * @param nodes sibling nodes
+     * @return matcher
+     */
+    public static PurifierNodeMatcher of(List<PurifierNode> nodes) {
+        if (nodes instanceof PurifierNodeList) {
+            return ((PurifierNodeList) nodes).getMatcher();
+        }
+
+        return new PurifierNodeMatcher(nodes);
+    }
+
+    /**
+     * Find the node that best matches a property name: the strongest match, the last one winning ties.
+     *
+     * @param propertyName the property name
+     * @return node or null if none matches
+     * @see PurifierNode#match(String)
+     */
+    public PurifierNode findBestMatch(String propertyName) {
+        int idx = nameMatcher.match(propertyName);
+        return idx < 0 ? null : nodes.get(idx);
+    }
+
+    /**
+     * Find the node naming one of the given views.  If siblings name several of the views, the one with the lowest
+     * view name is taken, so that the result doesn't depend on the order of the siblings.
+     *
+     * @param views view names
+     * @return node or null if no node names any of the views
+     */
+    public PurifierNode findView(Collection<String> views) {
+        String found = null;
+        int foundIdx = -1;
+
+        for (String view : views) {
+            Integer idx = firstIndexes.get(view);
+
+            if (idx != null && (found == null || view.compareTo(found) < 0)) {
+                found = view;
+                foundIdx = idx;
+            }
+        }
+
+        return found == null ? null : nodes.get(foundIdx);
+    }
+
+    /**
+     * Determines whether a sibling node has the given name.
+     *
+     * @param name name
+     * @return true if a node has the name
+     */
+    public boolean hasNamed(String name) {
+        return firstIndexes.containsKey(name);
+    }
+
+}
@@ -0,0 +1,157 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import io.github.walkin.purifier.name.ExactName;
+import io.github.walkin.purifier.name.RegexName;
+import io.github.walkin.purifier.name.SquigglyName;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Canonical form of parsed filter expressions.
+ * <p>
+ * Sibling nodes with exact names are put before the others, sorted by name, and repeated siblings are dropped.  The
+ * other siblings keep their relative order, it decides between wildcards of equal strength.  Views don't depend on the
+ * order of siblings, see {@link PurifierNodeMatcher#findView(java.util.Collection)}.
+ * <p>
+ * Canonical nodes, node lists and names are hash-consed: equal ones are the same instance, so equivalent expressions
+ * share their matchers and compiled plans, which are kept per node list.
+ */
+@ThreadSafe
+public final class PurifierNodes {
+
+    private static final Interner<SquigglyName> NAMES = Interners.newWeakInterner();
+
+    private static final Interner<PurifierNode> NODES = Interners.newWeakInterner();
+
+    private static final Interner<List<PurifierNode>> NODE_LISTS = Interners.newWeakInterner();
+
+    private static final Interner<PurifierNodeList> TOP_LEVEL_NODE_LISTS = Interners.newWeakInterner();
+
+    private static final Comparator<PurifierNode> EXACT_FIRST = (node1, node2) -> {
+        boolean exact1 = node1.getSquigglyName() instanceof ExactName;
+        boolean exact2 = node2.getSquigglyName() instanceof ExactName;
+
+        if (exact1 && exact2) {
+            return node1.getName().compareTo(node2.getName());
+        }
+
+        return Boolean.compare(exact2, exact1);
+    };
+
+    private PurifierNodes() {
+    }
+
+    /**
+     * Get the canonical, hash-consed form of parsed nodes.
+     *
+     * @param nodes nodes
+     * @return canonical nodes
+     */
+    static PurifierNodeList canonicalize(List<PurifierNode> nodes) {
+        return TOP_LEVEL_NODE_LISTS.intern(new PurifierNodeList(canonicalizeSiblings(nodes)));
+    }
+
+    private static List<PurifierNode> canonicalizeSiblings(List<PurifierNode> nodes) {
+        if (nodes.isEmpty()) {
+            return ImmutableList.of();
+        }
+
+        // canonical nodes are interned, equal siblings are the same instance
+        Set<PurifierNode> uniqueNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<PurifierNode> canonicalNodes = new ArrayList<>(nodes.size());
+
+        for (PurifierNode node : nodes) {
+            PurifierNode canonicalNode = canonicalize(node);
+
+            if (uniqueNodes.add(canonicalNode)) {
+                canonicalNodes.add(canonicalNode);
+            }
+        }
+
+        // stable, so non-exact names, and exact ones with the same name, keep their order
+        canonicalNodes.sort(EXACT_FIRST);
+        return NODE_LISTS.intern(ImmutableList.copyOf(canonicalNodes));
+    }
+
+    private static PurifierNode canonicalize(PurifierNode node) {
+        SquigglyName name = NAMES.intern(node.getSquigglyName());
+        List<PurifierNode> children = canonicalizeSiblings(node.getChildren());
+
+        // {} only matters without children, merged paths may have both
+        return NODES.intern(new PurifierNode(name, children, node.isNegated(), node.isSquiggly(),
+                                             node.isEmptyNested() && children.isEmpty()));
+    }
+
+    /**
+     * Render nodes as a filter expression.  For canonical nodes the result is their canonical expression, which is the
+     * same for all the expressions they were parsed from, and different for expressions that aren't equivalent.  It
+     * isn't always an expression the parser accepts: a negated name merged with a nested one renders as -name{...}.
+     *
+     * @param nodes nodes
+     * @return filter expression
+     */
+    public static String toFilter(List<PurifierNode> nodes) {
+        StringBuilder builder = new StringBuilder();
+        appendNodes(builder, nodes);
+        return builder.toString();
+    }
+
+    /**
+     * Render a node as a filter expression.
+     *
+     * @param node node
+     * @return filter expression
+     * @see #toFilter(List)
+     */
+    public static String toFilter(PurifierNode node) {
+        StringBuilder builder = new StringBuilder();
+        appendNode(builder, node);
+        return builder.toString();
+    }
+
+    private static void appendNodes(StringBuilder builder, List<PurifierNode> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+
+            appendNode(builder, nodes.get(i));
+        }
+    }
+
+    private static void appendNode(StringBuilder builder, PurifierNode node) {
+        if (node.isNegated()) {
+            builder.append('-');
+        }
+
+        SquigglyName name = node.getSquigglyName();
+
+        if (name instanceof RegexName) {
+            builder.append('~').append(name.getName()).append('~');
+
+            for (String flag : ((RegexName) name).getFlags()) {
+                builder.append(flag);
+            }
+        } else {
+            builder.append(name.getName());
+        }
+
+        if (node.isEmptyNested()) {
+            builder.append("{}");
+        } else if (!node.getChildren().isEmpty()) {
+            builder.append('{');
+            appendNodes(builder, node.getChildren());
+            builder.append('}');
+        }
+    }
+
+}
@@ -5,7 +5,9 @@ import com.github.bohnman.squiggly.parser.antlr4.SquigglyExpressionLexer;
 import com.github.bohnman.squiggly.parser.antlr4.SquigglyExpressionParser;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
 import io.github.walkin.purifier.config.PurifierConfig;
+import io.github.walkin.purifier.metric.source.CompositePurifierMetricsSource;
 import io.github.walkin.purifier.metric.source.GuavaCachePurifierMetricsSource;
 import io.github.walkin.purifier.metric.source.PurifierMetricsSource;
 import io.github.walkin.purifier.name.*;
@@ -14,6 +16,7 @@ import io.github.walkin.purifier.view.PropertyView;
 import net.jcip.annotations.ThreadSafe;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.apache.commons.lang3.StringUtils;
 
 import java.util.*;
@@ -25,14 +28,82 @@ import java.util.*;
 @ThreadSafe
 public class PurifierParser {
 
-    // Caches parsed filter expressions
+    // Caches parsed filter expressions, by canonical expression when canonicalizing
     private static final Cache<String, List<PurifierNode>> CACHE;
 
+    // Maps filter expressions, as written, to their canonical expression, null if not canonicalizing
+    private static final Cache<String, String> CANONICAL_FILTERS;
+
+    // Keeps parsed filter expressions off-heap, null if disabled
+    private static final OffHeapNodeStore NODE_STORE;
+
+    // Caches why filter expressions failed to parse
+    private static final Cache<String, ParseFailure> FAILURE_CACHE;
+
     private static final PurifierMetricsSource METRICS_SOURCE;
 
+    private static final boolean USE_ANTLR;
+
     static {
         CACHE = CacheBuilder.from(PurifierConfig.getParserNodeCacheSpec()).build();
-        METRICS_SOURCE = new GuavaCachePurifierMetricsSource("squiggly.parser.nodeCache.", CACHE);
+        FAILURE_CACHE = CacheBuilder.from(PurifierConfig.getParserFailureCacheSpec()).build();
+        PurifierMetricsSource cacheMetricsSource = new CompositePurifierMetricsSource(
+                new GuavaCachePurifierMetricsSource("squiggly.parser.nodeCache.", CACHE),
+                new GuavaCachePurifierMetricsSource("squiggly.parser.failureCache.", FAILURE_CACHE));
+
+        if (PurifierConfig.isParserCanonicalize()) {
+            CANONICAL_FILTERS = CacheBuilder.from(PurifierConfig.getParserNodeCacheSpec()).build();
+            cacheMetricsSource = new CompositePurifierMetricsSource(cacheMetricsSource,
+                    new GuavaCachePurifierMetricsSource("squiggly.parser.canonicalFilterCache.", CANONICAL_FILTERS));
+        } else {
+            CANONICAL_FILTERS = null;
+        }
+
+        int nodeStoreBytes = PurifierConfig.getParserNodeStoreBytes();
+
+        if (nodeStoreBytes > 0) {
+            NODE_STORE = new OffHeapNodeStore(nodeStoreBytes);
+            METRICS_SOURCE = new CompositePurifierMetricsSource(cacheMetricsSource, NODE_STORE);
+        } else {
+            NODE_STORE = null;
+            METRICS_SOURCE = cacheMetricsSource;
+        }
+
+        String engine = PurifierConfig.getParserEngine();
+
+        switch (engine) {
+            case "descent":
+                USE_ANTLR = false;
+                break;
+            case "antlr":
+                USE_ANTLR = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unrecognized parser engine " + engine);
+        }
+    }
+
+    /**
+     * Get the expressions in the node cache, as they were written, with their nodes.
+     *
+     * @return a copy of the cache's entries
+     */
+    public static Map<String, List<PurifierNode>> getCachedNodes() {
+        if (CANONICAL_FILTERS == null) {
+            return ImmutableMap.copyOf(CACHE.asMap());
+        }
+
+        ImmutableMap.Builder<String, List<PurifierNode>> cachedNodes = ImmutableMap.builder();
+
+        for (Map.Entry<String, String> entry : CANONICAL_FILTERS.asMap().entrySet()) {
+            List<PurifierNode> nodes = CACHE.getIfPresent(entry.getValue());
+
+            if (nodes != null) {
+                cachedNodes.put(entry.getKey(), nodes);
+            }
+        }
+
+        return cachedNodes.build();
     }
 
     public static PurifierMetricsSource getMetricsSource() {
@@ -40,7 +111,10 @@ public class PurifierParser {
     }
 
     /**
-     * Parse a filter expression.
+     * Parse a filter expression.  An expression that failed to parse fails again with an exception of the same type
+     * and message, without being parsed again, as long as it stays in the failure cache.
+     * <p>
+     * The expression may be a reference to a registered expression, see {@link FilterRegistry}.
      *
      * @param filter the filter expression
      * @return compiled nodes
@@ -52,24 +126,212 @@ public class PurifierParser {
             return Collections.emptyList();
         }
 
-        // get it from the cache if we can
-        List<PurifierNode> cachedNodes = CACHE.getIfPresent(filter);
+        if (FilterRegistry.isReference(filter)) {
+            return FilterRegistry.resolve(filter);
+        }
+
+        List<PurifierNode> pinnedNodes = FilterRegistry.getPinnedNodes(filter);
+
+        if (pinnedNodes != null) {
+            return pinnedNodes;
+        }
+
+        // get it from the cache if we can, equivalent expressions share the entry of their canonical expression
+        String cacheKey = CANONICAL_FILTERS == null ? filter : CANONICAL_FILTERS.getIfPresent(filter);
+
+        if (cacheKey != null) {
+            List<PurifierNode> cachedNodes = CACHE.getIfPresent(cacheKey);
+
+            if (cachedNodes != null) {
+                return cachedNodes;
+            }
+
+            if (NODE_STORE != null) {
+                List<PurifierNode> storedNodes = NODE_STORE.get(cacheKey);
+
+                if (storedNodes != null) {
+                    storedNodes = finish(storedNodes);
+                    CACHE.put(cacheKey, storedNodes);
+                    return storedNodes;
+                }
+            }
+        }
+
+        // invalid expressions have no canonical form, so failures are cached as written
+        ParseFailure failure = FAILURE_CACHE.getIfPresent(filter);
+
+        if (failure != null) {
+            throw failure.newException();
+        }
+
+        List<PurifierNode> nodes;
+
+        try {
+            nodes = USE_ANTLR ? parseWithAntlr(filter) : parseWithDescent(filter);
+        } catch (ParseCancellationException | IllegalArgumentException e) {
+            FAILURE_CACHE.put(filter, new ParseFailure(e));
+            throw e;
+        }
+
+        nodes = finish(nodes);
+
+        if (CANONICAL_FILTERS != null) {
+            cacheKey = PurifierNodes.toFilter(nodes);
+            CANONICAL_FILTERS.put(filter, cacheKey);
+        } else {
+            cacheKey = filter;
+        }
+
+        List<PurifierNode> cachedNodes = CACHE.asMap().putIfAbsent(cacheKey, nodes);
 
         if (cachedNodes != null) {
             return cachedNodes;
         }
 
+        if (NODE_STORE != null) {
+            NODE_STORE.put(cacheKey, nodes);
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Parse a filter expression like {@link #parse(String)}, but without the caches and the off-heap store, eg. for
+     * expressions used for a short while that shouldn't take the place of the others.  References and registered
+     * expressions are resolved as usual.
+     *
+     * @param filter the filter expression
+     * @return compiled nodes
+     */
+    public List<PurifierNode> parseUncached(String filter) {
+        filter = StringUtils.trim(filter);
 
+        if (StringUtils.isEmpty(filter)) {
+            return Collections.emptyList();
+        }
+
+        if (FilterRegistry.isReference(filter)) {
+            return FilterRegistry.resolve(filter);
+        }
+
+        List<PurifierNode> pinnedNodes = FilterRegistry.getPinnedNodes(filter);
+
+        if (pinnedNodes != null) {
+            return pinnedNodes;
+        }
+
+        return finish(USE_ANTLR ? parseWithAntlr(filter) : parseWithDescent(filter));
+    }
+
+    // equivalent expressions get the very same nodes, so the cache entries only cost their key
+    private List<PurifierNode> finish(List<PurifierNode> nodes) {
+        if (PurifierConfig.isParserCanonicalize()) {
+            return PurifierNodes.canonicalize(nodes);
+        }
+
+        return new PurifierNodeList(nodes);
+    }
+
+    /**
+     * Build the nodes of a {@link FilterBuilder}, the same way the parser builds the nodes of the equivalent
+     * expression, bypassing the cache.
+     *
+     * @param builder the builder
+     * @return nodes
+     */
+    List<PurifierNode> build(FilterBuilder builder) {
+        MutableNode root = new MutableNode(new ExactName("root")).dotPathed(true);
+        addEntries(root, builder);
+        MutableNode analyzedRoot = analyze(root);
+        return finish(analyzedRoot.toSquigglyNode().getChildren());
+    }
+
+    // mirrors DescentParser.parseExpression and parseNegatedExpression
+    private void addEntries(MutableNode parent, FilterBuilder builder) {
+        for (FilterBuilder.Entry entry : builder.getEntries()) {
+            List<SquigglyName> path = entry.getPath();
+
+            switch (entry.getType()) {
+                case ANY_DEEP:
+                    parent.addChild(new MutableNode(AnyDeepName.get()));
+                    break;
+                case EXCLUDE:
+                    addExcludedPath(parent, path);
+                    break;
+                default:
+                    addField(parent, path, entry.getNested());
+                    break;
+            }
+        }
+    }
+
+    private void addField(MutableNode parent, List<SquigglyName> path, FilterBuilder nested) {
+        if (path.size() > 1) {
+            parent.squiggly = true;
+
+            for (int i = 0; i < path.size() - 1; i++) {
+                parent = parent.addChild(new MutableNode(path.get(i)).dotPathed(true));
+                parent.squiggly = true;
+            }
+        }
+
+        SquigglyName name = path.get(path.size() - 1);
+
+        if (nested == null) {
+            parent.addChild(new MutableNode(name));
+        } else if (nested.getEntries().isEmpty()) {
+            parent.addChild(new MutableNode(name)).emptyNested = true;
+        } else {
+            MutableNode node = parent.addChild(new MutableNode(name));
+            node.squiggly = true;
+            addEntries(node, nested);
+        }
+    }
+
+    private void addExcludedPath(MutableNode parent, List<SquigglyName> path) {
+        if (path.size() == 1) {
+            parent.addChild(new MutableNode(path.get(0)).negated(true));
+            return;
+        }
+
+        for (SquigglyName pathName : path) {
+            parent.squiggly = true;
+
+            MutableNode mutableNode = new MutableNode(pathName);
+            mutableNode.negativeParent = true;
+
+            parent = parent.addChild(mutableNode.dotPathed(true));
+        }
+
+        parent.negated(true);
+        parent.negativeParent = false;
+    }
+
+    /**
+     * Parse a trimmed, non-empty filter expression with the parser generated from the grammar, bypassing the cache.
+     * This is the reference the other engine has to agree with.
+     *
+     * @param filter the filter expression
+     * @return compiled nodes
+     */
+    List<PurifierNode> parseWithAntlr(String filter) {
         SquigglyExpressionLexer lexer = ThrowingErrorListener.overwrite(
                 new SquigglyExpressionLexer(new ANTLRInputStream(filter)));
         SquigglyExpressionParser parser = ThrowingErrorListener.overwrite(
                 new SquigglyExpressionParser(new CommonTokenStream(lexer)));
 
         Visitor visitor = new Visitor();
-        List<PurifierNode> nodes = Collections.unmodifiableList(visitor.visit(parser.parse()));
+        return visitor.visit(parser.parse());
+    }
 
-        CACHE.put(filter, nodes);
-        return nodes;
+    /**
+     * Parse a trimmed, non-empty filter expression with the recursive-descent parser, bypassing the cache.
+     *
+     * @param filter the filter expression
+     * @return compiled nodes
+     */
+    List<PurifierNode> parseWithDescent(String filter) {
+        return new DescentParser(filter).parse();
     }
 
     private MutableNode analyze(MutableNode node) {
@@ -217,6 +479,274 @@ public class PurifierParser {
 
     }
 
+    // builds the same nodes as the visitor in a single pass over the tokens, without a parse tree
+    private class DescentParser {
+
+        private final ExpressionLexer lexer;
+
+        private int pos;
+
+        DescentParser(String filter) {
+            this.lexer = new ExpressionLexer(filter);
+        }
+
+        List<PurifierNode> parse() {
+            MutableNode root = new MutableNode(new ExactName("root")).dotPathed(true);
+            parseExpressionList(root);
+            expect(ExpressionLexer.EOF);
+            MutableNode analyzedRoot = analyze(root);
+            return analyzedRoot.toSquigglyNode().getChildren();
+        }
+
+        private int type() {
+            return lexer.getType(pos);
+        }
+
+        private void expect(int type) {
+            if (type() != type) {
+                throw lexer.newError(pos);
+            }
+
+            pos++;
+        }
+
+        private void parseExpressionList(MutableNode parent) {
+            parseExpression(parent);
+
+            while (type() == ExpressionLexer.COMMA) {
+                pos++;
+                parseExpression(parent);
+            }
+        }
+
+        private void parseExpression(MutableNode parent) {
+            if (type() == ExpressionLexer.DASH) {
+                pos++;
+                parseNegatedExpression(parent);
+                return;
+            }
+
+            if (type() == ExpressionLexer.WILDCARD_DEEP) {
+                pos++;
+                parent.addChild(new MutableNode(AnyDeepName.get()));
+                return;
+            }
+
+            List<SquigglyName> names;
+            boolean nestedRequired;
+
+            if (type() == ExpressionLexer.LPAREN) {
+                pos++;
+                names = new ArrayList<>();
+                names.add(parseField());
+
+                while (type() == ExpressionLexer.PIPE || type() == ExpressionLexer.COMMA) {
+                    pos++;
+                    names.add(parseField());
+                }
+
+                expect(ExpressionLexer.RPAREN);
+                nestedRequired = true;
+            } else {
+                SquigglyName name = parseField();
+
+                if (type() == ExpressionLexer.DOT) {
+                    parent.squiggly = true;
+
+                    while (type() == ExpressionLexer.DOT) {
+                        pos++;
+                        SquigglyName next = parseField();
+                        parent = parent.addChild(new MutableNode(name).dotPathed(true));
+                        parent.squiggly = true;
+                        name = next;
+                    }
+                }
+
+                names = Collections.singletonList(name);
+                nestedRequired = false;
+            }
+
+            int close;
+
+            if (type() == ExpressionLexer.LSQUIGGLY) {
+                close = ExpressionLexer.RSQUIGGLY;
+            } else if (type() == ExpressionLexer.LBRACE) {
+                close = ExpressionLexer.RBRACE;
+            } else if (nestedRequired) {
+                throw lexer.newError(pos);
+            } else {
+                parent.addChild(new MutableNode(names.get(0)));
+                return;
+            }
+
+            pos++;
+
+            if (type() == close) {
+                pos++;
+
+                for (SquigglyName name : names) {
+                    parent.addChild(new MutableNode(name)).emptyNested = true;
+                }
+
+                return;
+            }
+
+            // like the visitor, every name gets its own nodes for the nested expression
+            int nestedStart = pos;
+
+            for (SquigglyName name : names) {
+                MutableNode node = parent.addChild(new MutableNode(name));
+                node.squiggly = true;
+                pos = nestedStart;
+                parseExpressionList(node);
+            }
+
+            expect(close);
+        }
+
+        private void parseNegatedExpression(MutableNode parent) {
+            SquigglyName name = parseField();
+
+            if (type() != ExpressionLexer.DOT) {
+                parent.addChild(new MutableNode(name).negated(true));
+                return;
+            }
+
+            List<SquigglyName> names = new ArrayList<>();
+            names.add(name);
+
+            while (type() == ExpressionLexer.DOT) {
+                pos++;
+                names.add(parseField());
+            }
+
+            for (SquigglyName pathName : names) {
+                parent.squiggly = true;
+
+                MutableNode mutableNode = new MutableNode(pathName);
+                mutableNode.negativeParent = true;
+
+                parent = parent.addChild(mutableNode.dotPathed(true));
+            }
+
+            parent.negated(true);
+            parent.negativeParent = false;
+        }
+
+        private SquigglyName parseField() {
+            int type = type();
+
+            if (type == ExpressionLexer.TILDE || type == ExpressionLexer.SLASH) {
+                return parseRegexField(type);
+            }
+
+            int next = lexer.getType(pos + 1);
+
+            if (type == ExpressionLexer.WILDCARD_SHALLOW && next != ExpressionLexer.IDENTIFIER) {
+                pos++;
+                return AnyShallowName.get();
+            }
+
+            if (type != ExpressionLexer.IDENTIFIER &&
+                    (type != ExpressionLexer.QUESTION && type != ExpressionLexer.WILDCARD_SHALLOW ||
+                            next != ExpressionLexer.IDENTIFIER)) {
+                throw lexer.newError(pos);
+            }
+
+            // exact fields and wildcard chars alternate, a wildcard char can't follow another
+            int start = pos;
+            boolean wildcard = false;
+            boolean lastWildcard = false;
+
+            while (true) {
+                type = type();
+
+                if (type == ExpressionLexer.IDENTIFIER) {
+                    pos++;
+
+                    while (type() == ExpressionLexer.IDENTIFIER || type() == ExpressionLexer.DASH) {
+                        pos++;
+                    }
+
+                    lastWildcard = false;
+                } else if ((type == ExpressionLexer.WILDCARD_SHALLOW || type == ExpressionLexer.QUESTION) &&
+                        !lastWildcard) {
+                    pos++;
+                    wildcard = true;
+                    lastWildcard = true;
+                } else {
+                    break;
+                }
+            }
+
+            String text = lexer.getText(start, pos);
+            return wildcard ? new WildcardName(text) : new ExactName(text);
+        }
+
+        private SquigglyName parseRegexField(int delimiter) {
+            pos++;
+            int patternStart = pos;
+
+            while (isRegexPatternToken(type())) {
+                pos++;
+            }
+
+            if (pos == patternStart) {
+                throw lexer.newError(pos);
+            }
+
+            String regexPattern = lexer.getText(patternStart, pos);
+            expect(delimiter);
+
+            Set<String> regexFlags = new HashSet<>();
+
+            while (type() == ExpressionLexer.FLAG_I) {
+                regexFlags.add(lexer.getText(pos, pos + 1));
+                pos++;
+            }
+
+            return new RegexName(regexPattern, regexFlags);
+        }
+
+        private boolean isRegexPatternToken(int type) {
+            switch (type) {
+                case ExpressionLexer.DOT:
+                case ExpressionLexer.PIPE:
+                case ExpressionLexer.COMMA:
+                case ExpressionLexer.LSQUIGGLY:
+                case ExpressionLexer.RSQUIGGLY:
+                case ExpressionLexer.LBRACE:
+                case ExpressionLexer.RBRACE:
+                case ExpressionLexer.DASH:
+                case ExpressionLexer.REGEX_CHAR:
+                case ExpressionLexer.IDENTIFIER:
+                case ExpressionLexer.WILDCARD_SHALLOW:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+    }
+
+    // only the message is kept, each failure gets its own exception rather than sharing a thrown one between threads
+    private static class ParseFailure {
+
+        private final boolean cancelled;
+
+        private final String message;
+
+        ParseFailure(RuntimeException e) {
+            this.cancelled = e instanceof ParseCancellationException;
+            this.message = e.getMessage();
+        }
+
+        RuntimeException newException() {
+            return cancelled ? new ParseCancellationException(message) : new IllegalArgumentException(message);
+        }
+
+    }
+
     private class MutableNode {
         public boolean negativeParent;
 
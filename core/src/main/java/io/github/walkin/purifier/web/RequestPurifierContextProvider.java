@@ -1,15 +1,23 @@
 package io.github.walkin.purifier.web;
 
 import com.google.common.base.MoreObjects;
+import io.github.walkin.purifier.config.PurifierConfig;
 import io.github.walkin.purifier.context.provider.AbstractPurifierContextProvider;
 import io.github.walkin.purifier.name.AnyDeepName;
+import io.github.walkin.purifier.parser.FilterCost;
+import io.github.walkin.purifier.parser.FilterRegistry;
 import io.github.walkin.purifier.parser.PurifierParser;
+import org.apache.commons.lang3.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Custom context provider that gets the filter expression from the request.
+ * <p>
+ * Expressions from the request are checked against the budgets configured in {@link PurifierConfig} before they are
+ * parsed, see {@link #admitFilter(String, PurifierRequest)}.  The request can also reference an expression registered
+ * in the {@link FilterRegistry}, eg. <code>fields=@h:3fa9c1</code>, which is trusted and not checked.
  */
 public class RequestPurifierContextProvider extends AbstractPurifierContextProvider {
 
@@ -40,7 +48,7 @@ public class RequestPurifierContextProvider extends AbstractPurifierContextProvi
         String filter = cache.get(beanClass);
 
         if (filter == null) {
-            filter = MoreObjects.firstNonNull(getFilter(request), defaultFilter);
+            filter = MoreObjects.firstNonNull(getAdmittedFilter(request, cache), defaultFilter);
             filter = customizeFilter(filter, request, beanClass);
             cache.put(beanClass, filter);
         }
@@ -72,7 +80,7 @@ public class RequestPurifierContextProvider extends AbstractPurifierContextProvi
             return false;
         }
 
-        String filter = getFilter(request);
+        String filter = getAdmittedFilter(request, FilterCache.getOrCreate(request));
 
         if (AnyDeepName.ID.equals(filter)) {
             return false;
@@ -101,6 +109,95 @@ public class RequestPurifierContextProvider extends AbstractPurifierContextProvi
         return request.getParameter(filterParam);
     }
 
+    // checked once per request, isFilteringEnabled is called for every property
+    private String getAdmittedFilter(PurifierRequest request, FilterCache cache) {
+        if (!cache.admitted) {
+            cache.admittedFilter = admitFilter(resolveFilter(getFilter(request)), request);
+            cache.admitted = true;
+        }
+
+        return cache.admittedFilter;
+    }
+
+    // references are replaced by the expressions they stand for, so that customizeFilter gets actual expressions
+    private String resolveFilter(String filter) {
+        if (filter == null) {
+            return null;
+        }
+
+        String trimmed = filter.trim();
+
+        if (!FilterRegistry.isReference(trimmed)) {
+            return filter;
+        }
+
+        String registeredFilter = FilterRegistry.getFilter(trimmed);
+
+        if (registeredFilter == null) {
+            throw new IllegalArgumentException("Unknown filter reference " + StringUtils.abbreviate(trimmed, 100));
+        }
+
+        return registeredFilter;
+    }
+
+    /**
+     * Check the filter expression of the request against the configured budgets, before it is parsed.
+     *
+     * @param filter  the filter expression, may be null
+     * @param request the request
+     * @return the filter expression to use instead
+     */
+    protected String admitFilter(String filter, PurifierRequest request) {
+        if (filter == null || !FilterCost.isBudgeted() || FilterRegistry.isRegistered(filter)) {
+            return filter;
+        }
+
+        FilterCost cost = FilterCost.of(filter);
+        String exceededBudget = cost.getExceededBudget();
+
+        if (exceededBudget == null) {
+            return filter;
+        }
+
+        return handleFilterOverBudget(filter, cost, exceededBudget, request);
+    }
+
+    /**
+     * Handle a filter expression that is over budget, according to {@link #getFilterBudgetPolicy()}: reject it with an
+     * {@link IllegalArgumentException}, or degrade it to the default filter, or to no filtering at all if there is no
+     * default filter.  Override to eg. throw an exception the web layer maps to a client error.
+     *
+     * @param filter         the filter expression
+     * @param cost           its cost
+     * @param exceededBudget the budget it is over, see {@link FilterCost#getExceededBudget()}
+     * @param request        the request
+     * @return the filter expression to use instead
+     */
+    protected String handleFilterOverBudget(String filter, FilterCost cost, String exceededBudget,
+                                            PurifierRequest request) {
+        String policy = getFilterBudgetPolicy();
+
+        switch (policy) {
+            case "reject":
+                throw new IllegalArgumentException("Filter exceeds the " + exceededBudget + ": "
+                                                           + StringUtils.abbreviate(filter, 100));
+            case "degrade":
+                return defaultFilter == null ? AnyDeepName.ID : defaultFilter;
+            default:
+                throw new IllegalArgumentException("Unrecognized filter budget policy " + policy);
+        }
+    }
+
+    /**
+     * Get what to do with a filter expression that is over budget, by default
+     * {@link PurifierConfig#getFilterBudgetPolicy()}.
+     *
+     * @return "reject" or "degrade"
+     */
+    protected String getFilterBudgetPolicy() {
+        return PurifierConfig.getFilterBudgetPolicy();
+    }
+
     protected PurifierRequest getRequest() {
         return PurifierRequestHolder.getRequest();
     }
@@ -125,6 +222,10 @@ public class RequestPurifierContextProvider extends AbstractPurifierContextProvi
 
         private final Map<Class, String> map = new HashMap<>();
 
+        private boolean admitted;
+
+        private String admittedFilter;
+
         public static FilterCache getOrCreate(PurifierRequest request) {
             FilterCache cache = (FilterCache) request.getAttribute(REQUEST_KEY);
 
@@ -161,6 +262,8 @@ public class RequestPurifierContextProvider extends AbstractPurifierContextProvi
 
         public void clear() {
             map.clear();
+            admitted = false;
+            admittedFilter = null;
         }
 
     }
@@ -0,0 +1,40 @@
+package io.github.walkin.purifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.walkin.purifier.parser.PurifierParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JitWarmUpTest {
+
+    @Test
+    void syntheticFiltersStayOutOfTheParserCache() {
+        ObjectMapper mapper = Purifier.init(new ObjectMapper(), "warmUpId");
+        PurifierJitWarmUpReport report = Purifier.warmUpJit(mapper, Collections.singleton(Sample.class),
+                                                            Collections.singleton("warmUpId,warmUp("));
+
+        // both names and their negations, w*, the views, * and **, but not the invalid filter
+        assertEquals(9, report.getFilterCount());
+        assertTrue(report.getFailedTypes().isEmpty());
+        assertFalse(PurifierParser.getCachedNodes().containsKey("-warmUpId"));
+        assertFalse(PurifierParser.getCachedNodes().containsKey("w*"));
+    }
+
+    public static class Sample {
+
+        public int getWarmUpId() {
+            return 1;
+        }
+
+        public String getWarmUpName() {
+            return "n";
+        }
+
+    }
+
+}
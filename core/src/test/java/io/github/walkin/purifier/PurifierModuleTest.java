@@ -0,0 +1,126 @@
+package io.github.walkin.purifier;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.walkin.purifier.context.provider.SimplePurifierContextProvider;
+import io.github.walkin.purifier.parser.PurifierParser;
+import org.junit.jupiter.api.Test;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Types in scope are filtered, the others are written whole, nested or not.
+ */
+class PurifierModuleTest {
+
+    @Test
+    void packagesScopeTheirTypesAndSubPackages() throws Exception {
+        ObjectMapper mapper = newMapper(new PurifierModule().scopePackages("io.github.walkin"));
+
+        assertEquals("{\"id\":1}", mapper.writeValueAsString(new Plain()));
+    }
+
+    @Test
+    void packagesDontScopeLongerPackageNames() throws Exception {
+        ObjectMapper mapper = newMapper(new PurifierModule().scopePackages("io.github.walkin.pur"));
+
+        assertEquals("{\"id\":1,\"name\":\"n\"}", mapper.writeValueAsString(new Plain()));
+    }
+
+    @Test
+    void typesScopeTheirSubtypes() throws Exception {
+        ObjectMapper mapper = newMapper(new PurifierModule().scopeTypes(Base.class));
+
+        assertEquals("{\"id\":1}", mapper.writeValueAsString(new Sub()));
+        assertEquals("{\"id\":1,\"name\":\"n\"}", mapper.writeValueAsString(new Plain()));
+    }
+
+    @Test
+    void annotationsScopeTheirTypesAndSubtypes() throws Exception {
+        ObjectMapper mapper = newMapper(new PurifierModule().scopeAnnotations(Collections.singleton(Filtered.class)));
+
+        assertEquals("{\"id\":1}", mapper.writeValueAsString(new AnnotatedSub()));
+        assertEquals("{\"id\":1,\"name\":\"n\"}", mapper.writeValueAsString(new Plain()));
+    }
+
+    @Test
+    void typesOutOfScopeAreWrittenWholeWhenNested() throws Exception {
+        ObjectMapper mapper = newMapper(new PurifierModule().scopeTypes(Base.class), "id,plain{id}");
+
+        assertEquals("{\"id\":1,\"plain\":{\"id\":1,\"name\":\"n\"}}", mapper.writeValueAsString(new Sub()));
+    }
+
+    @Test
+    void modulesNeedAScope() {
+        assertThrows(IllegalStateException.class, () -> newMapper(new PurifierModule()));
+    }
+
+    private static ObjectMapper newMapper(PurifierModule module) {
+        return newMapper(module, "id");
+    }
+
+    private static ObjectMapper newMapper(PurifierModule module, String filter) {
+        return Purifier.init(new ObjectMapper(), new SimplePurifierContextProvider(new PurifierParser(), filter),
+                             module);
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Filtered {
+    }
+
+    @JsonPropertyOrder({"id", "name"})
+    public static class Plain {
+
+        public int getId() {
+            return 1;
+        }
+
+        public String getName() {
+            return "n";
+        }
+
+    }
+
+    @JsonPropertyOrder({"id", "name", "plain"})
+    public static class Base {
+
+        public int getId() {
+            return 1;
+        }
+
+        public String getName() {
+            return "n";
+        }
+
+    }
+
+    public static class Sub extends Base {
+
+        public Plain getPlain() {
+            return new Plain();
+        }
+
+    }
+
+    @Filtered
+    public static class AnnotatedBase {
+
+        public int getId() {
+            return 1;
+        }
+
+        public String getName() {
+            return "n";
+        }
+
+    }
+
+    public static class AnnotatedSub extends AnnotatedBase {
+    }
+
+}
@@ -0,0 +1,121 @@
+package io.github.walkin.purifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.walkin.purifier.bean.TypeGraph;
+import io.github.walkin.purifier.filter.PurifierPropertyFilter;
+import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PurifierSnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void savedSnapshotsAreReadBack() throws Exception {
+        ObjectMapper mapper = Purifier.init(new ObjectMapper(), "snapshotId");
+        List<PurifierNode> nodes = new PurifierParser().parse("snapshotId,snapshotName");
+        PurifierPropertyFilter filter = Purifier.findFilter(mapper);
+        filter.precompile(nodes, Sample.class, TypeGraph.of(mapper, Collections.singleton(Sample.class)));
+        mapper.writeValueAsString(new Sample());
+
+        PurifierSnapshot snapshot = PurifierSnapshot.capture(mapper);
+        Path path = dir.resolve("purifier.snapshot");
+        snapshot.save(path);
+        PurifierSnapshot read = PurifierSnapshot.read(path);
+
+        assertTrue(read.getFilters().contains("snapshotId,snapshotName"));
+        assertEquals(Collections.singleton(Sample.class.getName()),
+                     read.getPlanRootClasses().get("snapshotId,snapshotName"));
+        assertEquals(PurifierSnapshot.fingerprint(Sample.class),
+                     read.getClassFingerprints().get(Sample.class.getName()));
+        assertEquals(snapshot.getFilters(), read.getFilters());
+        assertEquals(snapshot.getClassFingerprints(), read.getClassFingerprints());
+        assertEquals(snapshot.getPlanRootClasses(), read.getPlanRootClasses());
+
+        PurifierWarmUpReport report = read.restore(Purifier.init(new ObjectMapper(), "snapshotId"));
+
+        assertTrue(report.getFailedTypes().isEmpty(), report.getFailedTypes().toString());
+        assertTrue(report.getFailedFilters().isEmpty(), report.getFailedFilters().toString());
+        assertTrue(report.getDecisionCount() > 0);
+    }
+
+    @Test
+    void changedClassesAreNotRestored() throws Exception {
+        Path path = dir.resolve("changed.snapshot");
+        writeSnapshot(path, Sample.class.getName(), PurifierSnapshot.fingerprint(Sample.class) + 1);
+
+        PurifierWarmUpReport report = PurifierSnapshot.read(path).restore(Purifier.init(new ObjectMapper(), "id"));
+
+        assertEquals(Collections.singletonMap(Sample.class, "Changed since the snapshot"), report.getFailedTypes());
+        assertEquals(0, report.getDecisionCount());
+    }
+
+    @Test
+    void classesThatAreGoneAreIgnored() throws Exception {
+        Path path = dir.resolve("gone.snapshot");
+        writeSnapshot(path, "io.github.walkin.purifier.Gone", 1);
+
+        PurifierWarmUpReport report = PurifierSnapshot.read(path).restore(Purifier.init(new ObjectMapper(), "id"));
+
+        assertTrue(report.getFailedTypes().isEmpty());
+        assertEquals(0, report.getDecisionCount());
+    }
+
+    @Test
+    void otherFilesAreRejected() throws Exception {
+        Path path = dir.resolve("other.snapshot");
+
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(42);
+        }
+
+        assertThrows(IOException.class, () -> PurifierSnapshot.read(path));
+    }
+
+    // a snapshot with one filter, planned for one class
+    private static void writeSnapshot(Path path, String className, long fingerprint) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path))))) {
+            out.writeInt(0x50555246);
+            out.writeInt(1);
+            out.writeInt(1);
+            out.writeUTF("snapshotId");
+            out.writeInt(1);
+            out.writeUTF(className);
+            out.writeLong(fingerprint);
+            out.writeInt(1);
+            out.writeUTF("snapshotId");
+            out.writeInt(1);
+            out.writeInt(0);
+        }
+    }
+
+    public static class Sample {
+
+        public int getSnapshotId() {
+            return 1;
+        }
+
+        public String getSnapshotName() {
+            return "n";
+        }
+
+    }
+
+}
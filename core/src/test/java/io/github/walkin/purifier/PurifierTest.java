@@ -0,0 +1,49 @@
+package io.github.walkin.purifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.BasicSerializerFactory;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import io.github.walkin.purifier.filter.PurifierBeanSerializerModifier;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PurifierTest {
+
+    @Test
+    void serializerModifierIsInstalledOnce() throws Exception {
+        ObjectMapper mapper = Purifier.init(new ObjectMapper(), "id");
+        Purifier.init(mapper, "name");
+        mapper.registerModule(new PurifierModule().scopePackages("io.github.walkin.purifier"));
+
+        // the test configuration prunes serializers
+        assertEquals(1, countSerializerModifiers(mapper));
+        assertEquals("{\"name\":\"n\"}", mapper.writeValueAsString(new Bean()));
+    }
+
+    private static int countSerializerModifiers(ObjectMapper mapper) {
+        int count = 0;
+
+        for (BeanSerializerModifier modifier : ((BasicSerializerFactory) mapper.getSerializerFactory())
+                .getFactoryConfig().serializerModifiers()) {
+            if (modifier instanceof PurifierBeanSerializerModifier) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    public static class Bean {
+
+        public int getId() {
+            return 1;
+        }
+
+        public String getName() {
+            return "n";
+        }
+
+    }
+
+}
@@ -0,0 +1,176 @@
+package io.github.walkin.purifier.bean;
+
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import io.github.walkin.purifier.view.PropertyView;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Subclasses introspected incrementally, on top of their superclass's info, have to get the info of a class declaring
+ * all of the properties itself.
+ */
+class BeanInfoIntrospectorTest {
+
+    private static final List<String> VIEWS = Arrays.asList(PropertyView.BASE_VIEW, PropertyView.FULL_VIEW, "summary",
+                                                            "detail", "unknown");
+
+    private static final List<String> PROPERTIES = Arrays.asList("class", "id", "name", "secret", "audit", "extra",
+                                                                 "note", "label", "unknown");
+
+    private final BeanInfoIntrospector introspector = new BeanInfoIntrospector();
+
+    @Test
+    void addedPropertiesExtendTheSuperclassInfo() {
+        assertSameInfo(introspector.introspect(FlatSub.class), introspector.introspect(Sub.class));
+    }
+
+    @Test
+    void overriddenAccessorsAreIntrospectedAgain() {
+        assertSameInfo(introspector.introspect(FlatOverriding.class), introspector.introspect(Overriding.class));
+    }
+
+    @Test
+    void subclassesAddingNothingShareTheSuperclassInfo() {
+        assertSame(introspector.introspect(Base.class), introspector.introspect(Same.class));
+    }
+
+    private static void assertSameInfo(BeanInfo expected, BeanInfo actual) {
+        for (String view : VIEWS) {
+            assertEquals(expected.getPropertyNamesForView(view), actual.getPropertyNamesForView(view), view);
+        }
+
+        for (String property : PROPERTIES) {
+            assertEquals(expected.getViewNamesForProperty(property), actual.getViewNamesForProperty(property),
+                         property);
+            assertEquals(expected.isUnwrapped(property), actual.isUnwrapped(property), property);
+        }
+    }
+
+    public static class Base {
+
+        public int getId() {
+            return 1;
+        }
+
+        @PropertyView("summary")
+        public String getName() {
+            return "n";
+        }
+
+        @PropertyView(PropertyView.FULL_VIEW)
+        public String getSecret() {
+            return "s";
+        }
+
+        @JsonUnwrapped
+        public Object getAudit() {
+            return null;
+        }
+
+    }
+
+    public static class Same extends Base {
+    }
+
+    public static class Sub extends Base {
+
+        public String getExtra() {
+            return "e";
+        }
+
+        @PropertyView("detail")
+        public String getNote() {
+            return "n";
+        }
+
+        @PropertyView("summary")
+        public String getLabel() {
+            return "l";
+        }
+
+    }
+
+    public static class FlatSub {
+
+        public int getId() {
+            return 1;
+        }
+
+        @PropertyView("summary")
+        public String getName() {
+            return "n";
+        }
+
+        @PropertyView(PropertyView.FULL_VIEW)
+        public String getSecret() {
+            return "s";
+        }
+
+        @JsonUnwrapped
+        public Object getAudit() {
+            return null;
+        }
+
+        public String getExtra() {
+            return "e";
+        }
+
+        @PropertyView("detail")
+        public String getNote() {
+            return "n";
+        }
+
+        @PropertyView("summary")
+        public String getLabel() {
+            return "l";
+        }
+
+    }
+
+    public static class Overriding extends Base {
+
+        @PropertyView("detail")
+        public int getId() {
+            return 2;
+        }
+
+        public String getExtra() {
+            return "e";
+        }
+
+    }
+
+    public static class FlatOverriding {
+
+        @PropertyView("detail")
+        public int getId() {
+            return 2;
+        }
+
+        @PropertyView("summary")
+        public String getName() {
+            return "n";
+        }
+
+        @PropertyView(PropertyView.FULL_VIEW)
+        public String getSecret() {
+            return "s";
+        }
+
+        @JsonUnwrapped
+        public Object getAudit() {
+            return null;
+        }
+
+        public String getExtra() {
+            return "e";
+        }
+
+    }
+
+}
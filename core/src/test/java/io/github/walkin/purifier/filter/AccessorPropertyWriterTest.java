@@ -0,0 +1,153 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Writers reading through a generated accessor have to write what the writers they replace write.
+ */
+class AccessorPropertyWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void generatedWritersWriteWhatJacksonWrites() throws Exception {
+        BeanPropertyWriter[] writers = getWriters(Bean.class);
+        BeanPropertyWriter[] generated = AccessorPropertyWriter.generate(writers);
+
+        assertEquals(write(writers, new Bean("n")), write(generated, new Bean("n")));
+        assertEquals(write(writers, new Bean(null)), write(generated, new Bean(null)));
+        assertEquals("{\"id\":1,\"name\":null,\"nonNull\":\"x\",\"raw\":{\"a\":1},\"createdBy\":\"me\"}",
+                     write(generated, new Bean(null)));
+    }
+
+    @Test
+    void onlyPlainGettersAreGenerated() throws Exception {
+        BeanPropertyWriter[] writers = getWriters(Bean.class);
+        BeanPropertyWriter[] generated = AccessorPropertyWriter.generate(writers);
+
+        for (int i = 0; i < writers.length; i++) {
+            if (writers[i].getClass() == BeanPropertyWriter.class) {
+                assertEquals(AccessorPropertyWriter.class, generated[i].getClass(), writers[i].getName());
+            } else {
+                // the unwrapped audit
+                assertSame(writers[i], generated[i], writers[i].getName());
+            }
+        }
+
+        // and shared by every array generated from the same writers
+        assertSame(generated[0], AccessorPropertyWriter.generate(writers)[0]);
+    }
+
+    @Test
+    void generatedWritersAreSerializedAsPlainOnes() throws Exception {
+        BeanPropertyWriter writer = AccessorPropertyWriter.generate(getWriters(Bean.class))[0];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(writer);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(BeanPropertyWriter.class, in.readObject().getClass());
+        }
+    }
+
+    private BeanPropertyWriter[] getWriters(Class<?> beanClass) throws Exception {
+        List<BeanPropertyWriter> writers = new ArrayList<>();
+        Iterator<PropertyWriter> properties = mapper.getSerializerProviderInstance().findValueSerializer(beanClass)
+                .properties();
+
+        while (properties.hasNext()) {
+            writers.add((BeanPropertyWriter) properties.next());
+        }
+
+        return writers.toArray(new BeanPropertyWriter[0]);
+    }
+
+    private String write(BeanPropertyWriter[] writers, Object bean) throws Exception {
+        StringWriter json = new StringWriter();
+        SerializerProvider provider = mapper.getSerializerProviderInstance();
+
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(json)) {
+            gen.writeStartObject();
+
+            for (BeanPropertyWriter writer : writers) {
+                writer.serializeAsField(bean, gen, provider);
+            }
+
+            gen.writeEndObject();
+        }
+
+        return json.toString();
+    }
+
+    @JsonPropertyOrder({"id", "name", "nonNull", "nonEmpty", "raw", "audit"})
+    public static class Bean {
+
+        private final String name;
+
+        Bean(String name) {
+            this.name = name;
+        }
+
+        public int getId() {
+            return 1;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        public String getNonNull() {
+            return name == null ? "x" : null;
+        }
+
+        @JsonInclude(JsonInclude.Include.NON_EMPTY)
+        public List<String> getNonEmpty() {
+            return name == null ? Collections.emptyList() : Collections.singletonList(name);
+        }
+
+        @JsonRawValue
+        public String getRaw() {
+            return "{\"a\":1}";
+        }
+
+        @JsonUnwrapped
+        public Audit getAudit() {
+            return new Audit();
+        }
+
+    }
+
+    public static class Audit {
+
+        public String getCreatedBy() {
+            return "me";
+        }
+
+    }
+
+}
@@ -0,0 +1,268 @@
+package io.github.walkin.purifier.filter;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import io.github.walkin.purifier.Purifier;
+import io.github.walkin.purifier.bean.TypeGraph;
+import io.github.walkin.purifier.context.provider.NodePurifierContextProvider;
+import io.github.walkin.purifier.context.provider.PurifierContextProvider;
+import io.github.walkin.purifier.parser.PurifierNode;
+import io.github.walkin.purifier.parser.PurifierParser;
+import io.github.walkin.purifier.view.PropertyView;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiled plans and pruned serializers have to write exactly what the interpreter writes.  Filters are only promoted
+ * by {@link PurifierPropertyFilter#precompile(List, Class, TypeGraph)} here, the test configuration keeps the others
+ * interpreted.
+ */
+class ExecutionTierParityTest {
+
+    private static final List<String> FILTERS = Arrays.asList(
+            "id",
+            "id,name",
+            "id,user{firstName}",
+            "id,user",
+            "*",
+            "**",
+            "base",
+            "full",
+            "summary",
+            "eco*,*Id,~.*am.*~",
+            "-name,base",
+            "-user",
+            "**,-secret",
+            "users{addr{**},meta{k2{city}}}",
+            "user{},id",
+            "user{*},users{full}",
+            "full{addr},id",
+            "users{meta{**}},user{meta{k1},lastName}",
+            "u*{a*{?ity}},*",
+            "user.addr.city,id",
+            "users{summary}",
+            "users{-addr,-meta}",
+            "createdBy",
+            "audit",
+            "~U.*~i{firstName}",
+            "nothing,id",
+            "users.level,users.firstName");
+
+    private static final Collection<Class<?>> ROOT_TYPES = Arrays.asList(Root.class, User.class, Admin.class);
+
+    private final PurifierParser parser = new PurifierParser();
+
+    @Test
+    void compiledPlansWriteWhatTheInterpreterWrites() throws Exception {
+        for (String filter : FILTERS) {
+            List<PurifierNode> nodes = parser.parse(filter);
+
+            // overriding the hooks keeps the serializers from pruning
+            assertSameOutput(filter, nodes, new NodePurifierContextProvider(nodes) {
+                @Override
+                public void serializeAsIncludedField(Object pojo, JsonGenerator jgen, SerializerProvider provider,
+                                                     PropertyWriter writer) throws Exception {
+                    super.serializeAsIncludedField(pojo, jgen, provider, writer);
+                }
+            });
+        }
+    }
+
+    @Test
+    void prunedSerializersWriteWhatTheInterpreterWrites() throws Exception {
+        for (String filter : FILTERS) {
+            List<PurifierNode> nodes = parser.parse(filter);
+            assertSameOutput(filter, nodes, new NodePurifierContextProvider(nodes));
+        }
+    }
+
+    @Test
+    void unparsedNodesStayInterpreted() throws Exception {
+        List<PurifierNode> nodes = new ArrayList<>(parser.parse("id,user{firstName}"));
+        PurifierPropertyFilter filter = new PurifierPropertyFilter(new NodePurifierContextProvider(nodes));
+        ObjectMapper mapper = Purifier.init(new ObjectMapper(), filter);
+
+        assertEquals("{\"id\":1,\"user\":{\"firstName\":\"f\"}}", mapper.writeValueAsString(new Root()));
+        assertEquals(0, filter.precompile(nodes, Root.class, TypeGraph.of(mapper, ROOT_TYPES)));
+        assertTrue(filter.getPlanRootClasses().isEmpty());
+    }
+
+    @Test
+    void propertiesAfterAnUnwrappedPropertyBelongToTheirBean() throws Exception {
+        ObjectMapper mapper = Purifier.init(new ObjectMapper(), new ArrayList<>(parser.parse("summary")));
+        assertEquals("{\"title\":\"title\"}", mapper.writeValueAsString(new Root()));
+    }
+
+    private static void assertSameOutput(String filter, List<PurifierNode> nodes,
+                                         PurifierContextProvider compiledProvider) throws Exception {
+        // the filter only has plans for the nodes as parsed, a copy is interpreted
+        ObjectMapper interpreted = newMapper(new NodePurifierContextProvider(new ArrayList<>(nodes)), null);
+        ObjectMapper compiled = newMapper(compiledProvider, nodes);
+
+        for (Object value : values()) {
+            String expected = interpreted.writeValueAsString(value);
+
+            // plans fill in on first use, the second write reads them
+            assertEquals(expected, compiled.writeValueAsString(value), filter);
+            assertEquals(expected, compiled.writeValueAsString(value), filter);
+        }
+    }
+
+    private static ObjectMapper newMapper(PurifierContextProvider contextProvider, List<PurifierNode> precompiled) {
+        PurifierPropertyFilter filter = new PurifierPropertyFilter(contextProvider);
+        ObjectMapper mapper = Purifier.init(new ObjectMapper(), filter);
+
+        if (precompiled != null) {
+            TypeGraph graph = TypeGraph.of(mapper, ROOT_TYPES);
+
+            for (Class<?> rootType : ROOT_TYPES) {
+                filter.precompile(precompiled, rootType, graph);
+            }
+        }
+
+        return mapper;
+    }
+
+    private static List<Object> values() {
+        return Arrays.asList(new Root(), new Admin("a"), Arrays.asList(new Root(), new User("u")));
+    }
+
+    // the unwrapped bean is written first, the properties after it are still the root's
+    @JsonPropertyOrder({"audit", "id"})
+    public static class Root {
+
+        public int getId() {
+            return 1;
+        }
+
+        public String getName() {
+            return "n";
+        }
+
+        public String getEcoTime() {
+            return "t";
+        }
+
+        public String getNothing() {
+            return null;
+        }
+
+        public User getUser() {
+            return new User("u");
+        }
+
+        public List<User> getUsers() {
+            return Arrays.asList(new User("u1"), new Admin("a1"));
+        }
+
+        @PropertyView("full")
+        public String getSecret() {
+            return "x";
+        }
+
+        @PropertyView("summary")
+        public String getTitle() {
+            return "title";
+        }
+
+        @JsonUnwrapped
+        public Audit getAudit() {
+            return new Audit();
+        }
+
+    }
+
+    public static class User {
+
+        private final String id;
+
+        User(String id) {
+            this.id = id;
+        }
+
+        public String getUserId() {
+            return id;
+        }
+
+        public String getFirstName() {
+            return "f";
+        }
+
+        public String getLastName() {
+            return "l";
+        }
+
+        public Addr getAddr() {
+            return new Addr();
+        }
+
+        @PropertyView("full")
+        public int getAge() {
+            return 3;
+        }
+
+        public Map<String, Object> getMeta() {
+            Map<String, Object> meta = new LinkedHashMap<>();
+            meta.put("k1", 1);
+            meta.put("k2", new Addr());
+            return meta;
+        }
+
+    }
+
+    public static class Admin extends User {
+
+        Admin(String id) {
+            super(id);
+        }
+
+        @PropertyView("summary")
+        public int getLevel() {
+            return 9;
+        }
+
+    }
+
+    public static class Addr {
+
+        public String getCity() {
+            return "c";
+        }
+
+        public String getZip() {
+            return "z";
+        }
+
+        @PropertyView("full")
+        public String getStreet() {
+            return "s";
+        }
+
+    }
+
+    public static class Audit {
+
+        public String getCreatedBy() {
+            return "me";
+        }
+
+        public String getCreatedAt() {
+            return "now";
+        }
+
+    }
+
+}
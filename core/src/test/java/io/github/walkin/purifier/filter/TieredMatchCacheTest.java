@@ -0,0 +1,114 @@
+package io.github.walkin.purifier.filter;
+
+import io.github.walkin.purifier.parser.PurifierNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Matches are admitted to the shared level only if they are requested more often than the ones they would replace.
+ */
+class TieredMatchCacheTest {
+
+    @Test
+    void matchesAreReadFromTheThreadFirst() throws Exception {
+        TieredMatchCache cache = new TieredMatchCache("test.", 16, 16);
+        cache.put(new Key("a"), true);
+
+        assertEquals(Boolean.TRUE, cache.getIfPresent(new Key("a")));
+        assertEquals(Boolean.TRUE, getOnAnotherThread(cache, new Key("a")));
+        assertNull(getOnAnotherThread(cache, new Key("b")));
+
+        assertEquals(1L, getMetric(cache, "localHitCount"));
+        assertEquals(1L, getMetric(cache, "sharedHitCount"));
+        assertEquals(1L, getMetric(cache, "missCount"));
+    }
+
+    @Test
+    void newMatchesOnlyReplaceLessRequestedOnes() throws Exception {
+        TieredMatchCache cache = new TieredMatchCache("test.", 16, 2);
+        cache.put(new Key("a"), true);
+        cache.put(new Key("b"), false);
+        assertEquals(Boolean.TRUE, getOnAnotherThread(cache, new Key("a")));
+
+        // c was never requested, a was once
+        cache.put(new Key("c"), true);
+
+        assertEquals(1L, getMetric(cache, "rejectionCount"));
+        assertNull(getOnAnotherThread(cache, new Key("c")));
+
+        // c has now been requested three times, b never
+        getOnAnotherThread(cache, new Key("c"));
+        getOnAnotherThread(cache, new Key("c"));
+        cache.put(new Key("c"), true);
+
+        assertEquals(1L, getMetric(cache, "evictionCount"));
+        assertEquals(2, getMetric(cache, "size"));
+        assertNull(getOnAnotherThread(cache, new Key("b")));
+        assertEquals(Boolean.TRUE, getOnAnotherThread(cache, new Key("a")));
+        assertEquals(Boolean.TRUE, getOnAnotherThread(cache, new Key("c")));
+    }
+
+    // each thread has its own first level, a new one only sees the shared matches
+    private static Boolean getOnAnotherThread(TieredMatchCache cache, FilterPath.MatchKey key) throws Exception {
+        AtomicReference<Boolean> value = new AtomicReference<>();
+        Thread thread = new Thread(() -> value.set(cache.getIfPresent(key)));
+        thread.start();
+        thread.join();
+        return value.get();
+    }
+
+    private static Object getMetric(TieredMatchCache cache, String name) {
+        Map<String, Object> metrics = new HashMap<>();
+        cache.getMetricsSource().applyMetrics(metrics);
+        return metrics.get("test." + name);
+    }
+
+    private static class Key extends FilterPath.MatchKey {
+
+        private final String name;
+
+        Key(String name) {
+            this.name = name;
+        }
+
+        @Override
+        int size() {
+            return 1;
+        }
+
+        @Override
+        String getName(int idx) {
+            return name;
+        }
+
+        @Override
+        Class getBeanClass() {
+            return null;
+        }
+
+        @Override
+        int getPathHash() {
+            return name.hashCode();
+        }
+
+        @Override
+        List<PurifierNode> getFilter() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        int getFilterHash() {
+            return 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,144 @@
+package io.github.walkin.purifier.name;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The automaton and the matcher built on it have to agree with matching the names one by one.
+ */
+class GlobAutomatonTest {
+
+    private static final List<SquigglyName> NAMES = Arrays.asList(
+            new ExactName("a"),
+            new ExactName("ab"),
+            new ExactName("b"),
+            new WildcardName("a*"),
+            new WildcardName("*b"),
+            new WildcardName("?b"),
+            new WildcardName("a?*"),
+            new WildcardName("*"),
+            new WildcardName("a*" + "b".repeat(GlobAutomaton.MAX_GLOB_LENGTH)),
+            new RegexName("a.*", null),
+            new RegexName("B+", Collections.singleton("i")),
+            AnyShallowName.get());
+
+    @Test
+    void matchesTheGlobsOneByOne() {
+        List<String> globs = strings("ab*?", 4);
+        GlobAutomaton automaton = GlobAutomaton.compile(globs);
+
+        assertTrue(automaton.getWordCount() > 1);
+
+        for (String input : strings("ab", 5)) {
+            TreeSet<Integer> matched = new TreeSet<>();
+
+            for (int word = 0; word < automaton.getWordCount(); word++) {
+                long accepted = automaton.match(word, input);
+
+                while (accepted != 0) {
+                    matched.add(automaton.getGlobIndex(word, Long.numberOfTrailingZeros(accepted)));
+                    accepted &= accepted - 1;
+                }
+            }
+
+            TreeSet<Integer> expected = new TreeSet<>();
+
+            for (int i = 0; i < globs.size(); i++) {
+                if (globMatches(globs.get(i), 0, input, 0)) {
+                    expected.add(i);
+                }
+            }
+
+            assertEquals(expected, matched, input);
+        }
+    }
+
+    @Test
+    void supportsShortAsciiGlobs() {
+        assertTrue(GlobAutomaton.isSupported("*".repeat(GlobAutomaton.MAX_GLOB_LENGTH)));
+        assertFalse(GlobAutomaton.isSupported("*".repeat(GlobAutomaton.MAX_GLOB_LENGTH + 1)));
+        assertFalse(GlobAutomaton.isSupported("\u00e9*"));
+        assertThrows(IllegalArgumentException.class, () -> GlobAutomaton.compile(Collections.singletonList("\u00e9*")));
+    }
+
+    @Test
+    void matcherPicksWhatMatchingOneByOnePicks() {
+        Random random = new Random(42);
+        List<String> inputs = strings("abB", 4);
+
+        for (int i = 0; i < 500; i++) {
+            List<SquigglyName> names = new ArrayList<>();
+
+            for (int j = random.nextInt(8); j >= 0; j--) {
+                names.add(NAMES.get(random.nextInt(NAMES.size())));
+            }
+
+            NameMatcher matcher = new NameMatcher(names);
+
+            for (String input : inputs) {
+                assertEquals(bestMatch(names, input), matcher.match(input), names + " on " + input);
+            }
+        }
+    }
+
+    // the strongest match, the last one winning ties
+    private static int bestMatch(List<SquigglyName> names, String input) {
+        int bestIndex = -1;
+        int bestStrength = -1;
+
+        for (int i = 0; i < names.size(); i++) {
+            int strength = names.get(i).match(input);
+
+            if (strength >= 0 && strength >= bestStrength) {
+                bestIndex = i;
+                bestStrength = strength;
+            }
+        }
+
+        return bestIndex;
+    }
+
+    private static boolean globMatches(String glob, int g, String input, int i) {
+        if (g == glob.length()) {
+            return i == input.length();
+        }
+
+        switch (glob.charAt(g)) {
+            case '*':
+                return globMatches(glob, g + 1, input, i) || (i < input.length() && globMatches(glob, g, input, i + 1));
+            case '?':
+                return globMatches(glob, g + 1, input, i) || (i < input.length() && globMatches(glob, g + 1, input, i + 1));
+            default:
+                return i < input.length() && input.charAt(i) == glob.charAt(g) && globMatches(glob, g + 1, input, i + 1);
+        }
+    }
+
+    private static List<String> strings(String alphabet, int maxLength) {
+        List<String> strings = new ArrayList<>();
+        strings.add("");
+
+        for (int from = 0; from < strings.size(); from++) {
+            String string = strings.get(from);
+
+            if (string.length() < maxLength) {
+                for (int i = 0; i < alphabet.length(); i++) {
+                    strings.add(string + alphabet.charAt(i));
+                }
+            }
+        }
+
+        return strings;
+    }
+
+}
@@ -0,0 +1,120 @@
+package io.github.walkin.purifier.name;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The linear engine has to match exactly what {@link Pattern} matches for every pattern it accepts.
+ */
+class LinearRegexTest {
+
+    private static final List<String> SUPPORTED = Arrays.asList(
+            "a",
+            "ab",
+            "a|b",
+            "a|",
+            "a*",
+            "a+b?",
+            "(ab)*",
+            "(a|b)+1",
+            "(a|)b",
+            "a{2}",
+            "a{1,2}b",
+            "a{2,}",
+            "a?a?aa",
+            "(a*)*",
+            "(a+)+b",
+            "a*?b",
+            "(a|b)+?1",
+            "a{1,3}?",
+            "[ab]+",
+            "[^a]*",
+            "[a-c1]",
+            "[A-Z]b",
+            "\\d+",
+            "\\D",
+            "\\w*",
+            "\\W",
+            "\\s",
+            "\\S+",
+            ".*",
+            ".+b",
+            "a.b",
+            "\\.",
+            "a\\*",
+            "^a$",
+            "^(a|b)$",
+            "^a|b$",
+            "A",
+            "Ab*");
+
+    private static final List<String> UNSUPPORTED = Arrays.asList(
+            "(a)\\1",
+            "(?=a)a",
+            "(?!a)b",
+            "a*+",
+            "(?i)a");
+
+    private static final String ALPHABET = "aAb1 \n";
+
+    @Test
+    void matchesWhatPatternMatches() {
+        List<String> inputs = inputs(4);
+
+        for (String pattern : SUPPORTED) {
+            for (boolean caseInsensitive : new boolean[]{false, true}) {
+                LinearRegex linear = LinearRegex.compile(pattern, caseInsensitive);
+                Pattern jdk = Pattern.compile(pattern, caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+
+                assertNotNull(linear, pattern);
+
+                for (String input : inputs) {
+                    assertEquals(jdk.matcher(input).matches(), linear.matches(input),
+                                 pattern + (caseInsensitive ? " (i)" : "") + " on " + input);
+                }
+            }
+        }
+    }
+
+    @Test
+    void leavesOtherPatternsToPattern() {
+        for (String pattern : UNSUPPORTED) {
+            assertNull(LinearRegex.compile(pattern, false), pattern);
+        }
+    }
+
+    @Test
+    void doesNotBacktrack() {
+        LinearRegex linear = LinearRegex.compile("(a+)+b", false);
+
+        // takes exponential time with a backtracking engine
+        assertFalse(linear.matches("a".repeat(100000)));
+    }
+
+    private static List<String> inputs(int maxLength) {
+        List<String> inputs = new ArrayList<>();
+        inputs.add("");
+
+        for (int from = 0; from < inputs.size(); from++) {
+            String input = inputs.get(from);
+
+            if (input.length() < maxLength) {
+                for (int i = 0; i < ALPHABET.length(); i++) {
+                    inputs.add(input + ALPHABET.charAt(i));
+                }
+            }
+        }
+
+        return inputs;
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.github.walkin.purifier.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Costs are estimated from the tokens, the test configuration sets a budget of each kind.
+ */
+class FilterCostTest {
+
+    @Test
+    void nestedListsAndDottedPathsAddDepth() {
+        assertEquals(1, FilterCost.of("id,name").getDepth());
+        assertEquals(2, FilterCost.of("owner{id}").getDepth());
+        assertEquals(3, FilterCost.of("owner.addr.city").getDepth());
+        assertEquals(4, FilterCost.of("owner.addr{city{zip}},id").getDepth());
+        assertEquals(2, FilterCost.of("a{b},c{d},e.f").getDepth());
+    }
+
+    @Test
+    void wildcardsAndRegexesAreCounted() {
+        FilterCost cost = FilterCost.of("a*,?b,*,**,~a.*~,/b*/i");
+
+        assertEquals(3, cost.getWildcards());
+        assertEquals(1, cost.getDeepWildcards());
+        assertEquals(2, cost.getRegexes());
+        assertEquals(22, cost.getLength());
+    }
+
+    @Test
+    void theFirstExceededBudgetIsReported() {
+        assertNull(FilterCost.of("id,owner{name},a*").getExceededBudget());
+        assertEquals("maximum depth of 3", FilterCost.of("a.b.c.d,*,*,*,*,*").getExceededBudget());
+        assertEquals("maximum of 4 wildcards", FilterCost.of("*,*,*,*,*").getExceededBudget());
+        assertEquals("maximum of 1 deep wildcards", FilterCost.of("**,a{**}").getExceededBudget());
+        assertEquals("maximum of 1 regexes", FilterCost.of("~a~,~b~").getExceededBudget());
+    }
+
+    @Test
+    void expressionsOverTheLengthBudgetArentRead() {
+        StringBuilder filter = new StringBuilder("a");
+
+        while (filter.length() <= 200) {
+            filter.append(".a");
+        }
+
+        FilterCost cost = FilterCost.of(filter.toString());
+
+        assertEquals(0, cost.getDepth());
+        assertEquals("maximum length of 200", cost.getExceededBudget());
+        assertTrue(FilterCost.isBudgeted());
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.walkin.purifier.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterRegistryTest {
+
+    private final PurifierParser parser = new PurifierParser();
+
+    @Test
+    void idsReferenceTheirExpression() {
+        assertEquals("@registry.id-1", FilterRegistry.register("registry.id-1", " id,title "));
+        assertEquals("@registry.id-1", FilterRegistry.register("registry.id-1", "id,title"));
+
+        assertEquals("id,title", FilterRegistry.getFilter("@registry.id-1"));
+        assertTrue(FilterRegistry.isRegistered("id,title"));
+        assertSame(parser.parse("id,title"), parser.parse("@registry.id-1"));
+        assertNull(FilterRegistry.getFilter("@registry.unknown"));
+        assertThrows(IllegalArgumentException.class, () -> parser.parse("@registry.unknown"));
+    }
+
+    @Test
+    void idsCantBeRegisteredWithAnotherExpression() {
+        FilterRegistry.register("registry.id-2", "id");
+
+        assertThrows(IllegalStateException.class, () -> FilterRegistry.register("registry.id-2", "title"));
+        assertThrows(IllegalArgumentException.class, () -> FilterRegistry.register("registry id", "id"));
+        assertThrows(IllegalArgumentException.class, () -> FilterRegistry.register("registry.id-3", "@registry.id-2"));
+        assertThrows(IllegalArgumentException.class, () -> FilterRegistry.register("registry.id-3", "id,"));
+    }
+
+    @Test
+    void equivalentExpressionsGetTheSameHash() {
+        String reference = FilterRegistry.register("registry{name,id}");
+
+        assertEquals(reference, FilterRegistry.register("registry{id,name}"));
+        assertEquals(reference, FilterRegistry.register("registry.id,registry.name"));
+        assertEquals("registry{name,id}", FilterRegistry.getFilter(reference));
+        assertSame(parser.parse("registry{id,name}"), parser.parse(reference));
+    }
+
+    @Test
+    void hashPrefixesReferenceTheirExpression() {
+        String hash = FilterRegistry.register("registry{prefix}").substring("@h:".length());
+
+        assertEquals("registry{prefix}", FilterRegistry.getFilter("@h:" + hash.substring(0, 12)));
+        assertEquals("registry{prefix}", FilterRegistry.getFilter("@h:" + hash.substring(0, 12).toUpperCase()));
+        assertThrows(IllegalArgumentException.class, () -> FilterRegistry.getFilter("@h:" + hash.substring(0, 5)));
+    }
+
+    @Test
+    void ambiguousHashPrefixesAreRejected() {
+        // the hashes of both expressions start with ee019c
+        assertEquals("@h:ee019c54faf75e4a378d6dff1935dd6eeffb0e1b79da1b82381e07fafc82ea92",
+                     FilterRegistry.register("f3501"));
+        assertEquals("@h:ee019cc049832f8892729cd785ce86ab28307870aa542578093bf68337b105d8",
+                     FilterRegistry.register("f3914"));
+
+        assertThrows(IllegalArgumentException.class, () -> FilterRegistry.getFilter("@h:ee019c"));
+        assertEquals("f3501", FilterRegistry.getFilter("@h:ee019c5"));
+        assertEquals("f3914", FilterRegistry.getFilter("@h:ee019cc"));
+    }
+
+}
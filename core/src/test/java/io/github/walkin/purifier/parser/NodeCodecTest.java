@@ -0,0 +1,51 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.base.Strings;
+import io.github.walkin.purifier.name.ExactName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NodeCodecTest {
+
+    private final PurifierParser parser = new PurifierParser();
+
+    @Test
+    void decodedNodesEqualTheEncodedOnes() {
+        List<String> filters = Arrays.asList(
+                "id",
+                "id,name,-secret",
+                "*,**,a*,?b",
+                "~na.*~i,/x[0-9]+/",
+                "owner{id,addr{city,zip}},users[]",
+                "owner.addr.city,-owner.name",
+                "(owner|users){id},-*",
+                Strings.repeat("long", 100) + "{id}");
+
+        for (String filter : filters) {
+            List<PurifierNode> nodes = parser.parseWithDescent(filter);
+            assertEquals(nodes, NodeCodec.decode(NodeCodec.encode(nodes)), filter);
+        }
+    }
+
+    @Test
+    void namesOfAnyCharactersAreEncoded() {
+        // names from a FilterBuilder aren't limited to what expressions can spell
+        PurifierNode node = new PurifierNode(new ExactName("na\u00efve \u540d\u524d"), Collections.emptyList(), false,
+                                             false, false);
+        List<PurifierNode> nodes = Collections.singletonList(node);
+
+        assertEquals(nodes, NodeCodec.decode(NodeCodec.encode(nodes)));
+    }
+
+    @Test
+    void shortExactNamesTakeAFewBytes() {
+        // count, flags, name length and name, no children
+        assertEquals(6, NodeCodec.encode(parser.parseWithDescent("id")).length);
+    }
+
+}
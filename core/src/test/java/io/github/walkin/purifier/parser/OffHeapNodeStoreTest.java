@@ -0,0 +1,86 @@
+package io.github.walkin.purifier.parser;
+
+import com.google.common.base.Strings;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OffHeapNodeStoreTest {
+
+    // a record of a two-character name takes 16 bytes: two lengths, the name, and the 6 bytes of its node
+    private static final int RECORD_LENGTH = 16;
+
+    private final PurifierParser parser = new PurifierParser();
+
+    @Test
+    void storedNodesAreDecoded() {
+        OffHeapNodeStore store = new OffHeapNodeStore(1024);
+        List<PurifierNode> nodes = parser.parseWithDescent("owner{id,~na.*~i},-secret");
+        store.put("owner{id,~na.*~i},-secret", nodes);
+
+        assertEquals(nodes, store.get("owner{id,~na.*~i},-secret"));
+        assertNull(store.get("owner"));
+        assertEquals(1L, getMetric(store, "hitCount"));
+        assertEquals(1L, getMetric(store, "missCount"));
+    }
+
+    @Test
+    void theOldestRecordsAreOverwrittenWhenTheRingWraps() {
+        // room for two records, the end of the buffer is too small for a third
+        OffHeapNodeStore store = new OffHeapNodeStore(2 * RECORD_LENGTH + 8);
+        put(store, "f0");
+        put(store, "f1");
+        put(store, "f2");
+
+        assertNull(store.get("f0"));
+        assertEquals(parser.parseWithDescent("f1"), store.get("f1"));
+        assertEquals(parser.parseWithDescent("f2"), store.get("f2"));
+        assertEquals(1L, getMetric(store, "evictionCount"));
+        assertEquals(2 * RECORD_LENGTH, getMetric(store, "usedBytes"));
+
+        put(store, "f3");
+
+        assertNull(store.get("f1"));
+        assertEquals(parser.parseWithDescent("f2"), store.get("f2"));
+        assertEquals(parser.parseWithDescent("f3"), store.get("f3"));
+        assertEquals(2L, getMetric(store, "evictionCount"));
+        assertEquals(2, getMetric(store, "entryCount"));
+    }
+
+    @Test
+    void storingAnExpressionAgainReplacesItsRecord() {
+        OffHeapNodeStore store = new OffHeapNodeStore(1024);
+        put(store, "f0");
+        put(store, "f0");
+
+        assertEquals(parser.parseWithDescent("f0"), store.get("f0"));
+        assertEquals(1, getMetric(store, "entryCount"));
+        assertEquals(RECORD_LENGTH, getMetric(store, "usedBytes"));
+    }
+
+    @Test
+    void recordsLargerThanTheBufferArentStored() {
+        OffHeapNodeStore store = new OffHeapNodeStore(64);
+        String filter = Strings.repeat("a", 64);
+        put(store, filter);
+
+        assertNull(store.get(filter));
+        assertEquals(0, getMetric(store, "usedBytes"));
+    }
+
+    private void put(OffHeapNodeStore store, String filter) {
+        store.put(filter, parser.parseWithDescent(filter));
+    }
+
+    private static Object getMetric(OffHeapNodeStore store, String name) {
+        Map<String, Object> metrics = new HashMap<>();
+        store.applyMetrics(metrics);
+        return metrics.get("squiggly.parser.nodeStore." + name);
+    }
+
+}
@@ -0,0 +1,197 @@
+package io.github.walkin.purifier.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The recursive-descent parser has to build the very same nodes as the parser generated from the grammar, and fail
+ * on the same expressions.
+ */
+class ParserParityTest {
+
+    private static final List<String> EXPRESSIONS = Arrays.asList(
+            "id",
+            "id,name",
+            "first-name",
+            "$ref,_id,a1",
+            "*",
+            "**",
+            "a*",
+            "*a",
+            "a*b",
+            "a?",
+            "?a*b?",
+            "-id",
+            "-user.name",
+            "user{}",
+            "user[]",
+            "user{id,name}",
+            "user[id,name]",
+            "user{addr{city,zip},-age}",
+            "user.addr.city",
+            "user.addr{city}",
+            "user.addr[]",
+            "(user,owner){id}",
+            "(user|owner){id}",
+            "(a*,~b.*~){id}",
+            "~na.*~",
+            "~na.*~i",
+            "/na.*/",
+            "/na.*/i",
+            "~a{1,2}[b-d]x|y,-*~",
+            "~a\\.b~",
+            "**,-secret",
+            "users{**},owner{*}",
+            "a,a{b},a{c}",
+            "base,full,summary{id}",
+            // invalid
+            "",
+            ",",
+            "a,",
+            "a{",
+            "a}",
+            "a{b",
+            "a[b}",
+            "a..b",
+            ".a",
+            "a.",
+            "-",
+            "--a",
+            "-a{b}",
+            "()",
+            "(a",
+            "(a,b",
+            "~a",
+            "~a~x",
+            "~a(b)~",
+            "a b",
+            "***",
+            "a{b}{c}");
+
+    private static final String[] TOKENS = {
+            "a", "b1", "$x", "_", "id", "-", "*", "**", "?", ".", ",", "{", "}", "[", "]", "(", ")", "|", "~a.*~",
+            "~x~i", "/b/", "i"};
+
+    private final PurifierParser parser = new PurifierParser();
+
+    @Test
+    void descentParserBuildsTheNodesOfTheGrammar() {
+        for (String expression : EXPRESSIONS) {
+            assertSameResult(expression);
+        }
+    }
+
+    @Test
+    void descentParserAgreesOnRandomTokens() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder expression = new StringBuilder();
+
+            for (int j = random.nextInt(8) + 1; j > 0; j--) {
+                expression.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+
+            assertSameResult(expression.toString());
+        }
+    }
+
+    @Test
+    void descentParserAgreesOnRandomExpressions() {
+        Random random = new Random(7);
+        int parsed = 0;
+
+        for (int i = 0; i < 2000; i++) {
+            if (assertSameResult(randomExpressionList(random, 0))) {
+                parsed++;
+            }
+        }
+
+        // most of them are valid, so that the nodes are compared
+        assertTrue(parsed > 1000, "only " + parsed + " expressions parsed");
+    }
+
+    // true if both parsers parsed the expression, false if both failed
+    @SuppressWarnings("unchecked")
+    private boolean assertSameResult(String expression) {
+        Object antlr = parse(expression, true);
+        Object descent = parse(expression, false);
+
+        if (antlr instanceof RuntimeException || descent instanceof RuntimeException) {
+            assertEquals(antlr instanceof RuntimeException, descent instanceof RuntimeException,
+                         expression + " parsed to " + antlr + " and " + descent);
+            return false;
+        }
+
+        assertEquals(antlr, descent, expression);
+        assertEquals(PurifierNodes.toFilter(PurifierNodes.canonicalize((List<PurifierNode>) antlr)),
+                     PurifierNodes.toFilter(PurifierNodes.canonicalize((List<PurifierNode>) descent)), expression);
+        return true;
+    }
+
+    private Object parse(String expression, boolean antlr) {
+        try {
+            return new ArrayList<>(antlr ? parser.parseWithAntlr(expression) : parser.parseWithDescent(expression));
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static String randomExpressionList(Random random, int depth) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = random.nextInt(3); i >= 0; i--) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+
+            builder.append(randomExpression(random, depth));
+        }
+
+        return builder.toString();
+    }
+
+    private static String randomExpression(Random random, int depth) {
+        switch (random.nextInt(depth < 3 ? 8 : 5)) {
+            case 0:
+                return "-" + randomField(random);
+            case 1:
+                return "**";
+            case 2:
+                return randomField(random) + "." + randomField(random);
+            case 3:
+            case 4:
+                return randomField(random);
+            case 5:
+                return randomField(random) + (random.nextBoolean() ? "{}" : "[]");
+            case 6:
+                return "(" + randomField(random) + (random.nextBoolean() ? "|" : ",") + randomField(random) + "){"
+                        + randomExpressionList(random, depth + 1) + "}";
+            default:
+                return randomField(random) + "{" + randomExpressionList(random, depth + 1) + "}";
+        }
+    }
+
+    private static String randomField(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return "*";
+            case 1:
+                return "a*";
+            case 2:
+                return "?b";
+            case 3:
+                return "~" + (random.nextBoolean() ? "a.*" : "[ab]+") + "~" + (random.nextBoolean() ? "i" : "");
+            default:
+                return new String[]{"a", "b", "id", "name", "first-name"}[random.nextInt(5)];
+        }
+    }
+
+}
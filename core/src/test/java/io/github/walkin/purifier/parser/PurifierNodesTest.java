@@ -0,0 +1,84 @@
+package io.github.walkin.purifier.parser;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.walkin.purifier.Purifier;
+import io.github.walkin.purifier.view.PropertyView;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PurifierNodesTest {
+
+    private final PurifierParser parser = new PurifierParser();
+
+    @Test
+    void canonicalizePutsExactNamesFirst() {
+        assertEquals("id,name,*,a*", canonicalFilter("*,id,a*,name"));
+    }
+
+    @Test
+    void canonicalizeSortsExactNames() {
+        assertEquals("detail,summary", canonicalFilter("summary,detail"));
+        assertEquals("owner{id,name}", canonicalFilter("owner{name,id}"));
+    }
+
+    @Test
+    void canonicalizeDropsRepeatedSiblings() {
+        assertEquals("id,owner{id}", canonicalFilter("id,owner{id},id,owner{id}"));
+    }
+
+    @Test
+    void canonicalizeSharesEquivalentNodes() {
+        assertSame(PurifierNodes.canonicalize(parser.parseWithDescent("*,id")),
+                   PurifierNodes.canonicalize(parser.parseWithDescent("id,*")));
+        assertSame(PurifierNodes.canonicalize(parser.parseWithDescent("name,id")),
+                   PurifierNodes.canonicalize(parser.parseWithDescent("id,name")));
+    }
+
+    @Test
+    void viewsPropagatedToNestedFiltersDontDependOnOrder() throws Exception {
+        for (String filter : new String[]{"summary,detail", "detail,summary"}) {
+            List<PurifierNode> nodes = parser.parseWithDescent(filter);
+
+            assertEquals("{\"owner\":{\"a\":\"A\",\"b\":\"B\"}}", write(nodes), filter);
+            assertEquals("{\"owner\":{\"a\":\"A\",\"b\":\"B\"}}", write(PurifierNodes.canonicalize(nodes)), filter);
+        }
+    }
+
+    private String canonicalFilter(String filter) {
+        return PurifierNodes.toFilter(PurifierNodes.canonicalize(parser.parseWithDescent(filter)));
+    }
+
+    private static String write(List<PurifierNode> nodes) throws Exception {
+        return Purifier.init(new ObjectMapper(), nodes).writeValueAsString(new Issue());
+    }
+
+    public static class Issue {
+
+        @PropertyView({"summary", "detail"})
+        public Owner getOwner() {
+            return new Owner();
+        }
+
+    }
+
+    @JsonPropertyOrder({"a", "b"})
+    public static class Owner {
+
+        @PropertyView("summary")
+        public String getA() {
+            return "A";
+        }
+
+        @PropertyView("detail")
+        public String getB() {
+            return "B";
+        }
+
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.github.walkin.purifier.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PurifierParserTest {
+
+    private final PurifierParser parser = new PurifierParser();
+
+    @Test
+    void equivalentExpressionsShareTheirCacheEntry() {
+        List<PurifierNode> nodes = parser.parse("title,author{name,id}");
+
+        assertSame(nodes, parser.parse("author{id,name},title"));
+        assertSame(nodes, parser.parse(" author.name,title,author.id "));
+
+        Map<String, List<PurifierNode>> cachedNodes = PurifierParser.getCachedNodes();
+        assertSame(nodes, cachedNodes.get("title,author{name,id}"));
+        assertSame(nodes, cachedNodes.get("author{id,name},title"));
+        assertSame(nodes, cachedNodes.get("author.name,title,author.id"));
+    }
+
+    @Test
+    void failuresAreCachedAsWritten() {
+        RuntimeException first = assertThrows(RuntimeException.class, () -> parser.parse("failure{"));
+        long hits = getFailureCacheHits();
+        RuntimeException second = assertThrows(RuntimeException.class, () -> parser.parse(" failure{ "));
+
+        assertEquals(hits + 1, getFailureCacheHits());
+        assertNotSame(first, second);
+        assertSame(first.getClass(), second.getClass());
+        assertEquals(first.getMessage(), second.getMessage());
+    }
+
+    @Test
+    void mergedNodesHaveDistinctCanonicalExpressions() {
+        assertEquals("base,-owner{}", PurifierNodes.toFilter(parser.parse("-owner,owner{}")));
+        assertEquals("base,-owner{id}", PurifierNodes.toFilter(parser.parse("-owner,owner.id")));
+        assertEquals("owner{id}", PurifierNodes.toFilter(parser.parse("owner.id,owner{}")));
+    }
+
+    private static long getFailureCacheHits() {
+        Map<String, Object> metrics = new HashMap<>();
+        PurifierParser.getMetricsSource().applyMetrics(metrics);
+        return (Long) metrics.get("squiggly.parser.failureCache.hitCount");
+    }
+
+}
@@ -0,0 +1,69 @@
+package io.github.walkin.purifier.web;
+
+import io.github.walkin.purifier.parser.FilterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Filters from requests are checked against the budgets of the test configuration.
+ */
+class RequestPurifierContextProviderTest {
+
+    private static final String OVER_BUDGET = "a.b.c.d";
+
+    @Test
+    void filtersWithinBudgetAreAdmitted() {
+        RequestPurifierContextProvider provider = new PolicyContextProvider("reject", "id");
+
+        assertEquals("id,owner{name}", provider.admitFilter("id,owner{name}", null));
+        assertNull(provider.admitFilter(null, null));
+    }
+
+    @Test
+    void rejectFailsFiltersOverBudget() {
+        RequestPurifierContextProvider provider = new PolicyContextProvider("reject", "id");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                                                  () -> provider.admitFilter(OVER_BUDGET, null));
+        assertEquals("Filter exceeds the maximum depth of 3: " + OVER_BUDGET, e.getMessage());
+    }
+
+    @Test
+    void degradeFallsBackToTheDefaultFilter() {
+        assertEquals("id", new PolicyContextProvider("degrade", "id").admitFilter(OVER_BUDGET, null));
+        assertEquals("**", new PolicyContextProvider("degrade", null).admitFilter(OVER_BUDGET, null));
+    }
+
+    @Test
+    void registeredFiltersArentChecked() {
+        FilterRegistry.register("request.overBudget", "x.y.z.w");
+
+        assertEquals("x.y.z.w", new PolicyContextProvider("reject", null).admitFilter("x.y.z.w", null));
+    }
+
+    @Test
+    void unknownPoliciesFail() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new PolicyContextProvider("ignore", null).admitFilter(OVER_BUDGET, null));
+    }
+
+    private static class PolicyContextProvider extends RequestPurifierContextProvider {
+
+        private final String policy;
+
+        PolicyContextProvider(String policy, String defaultFilter) {
+            super("fields", defaultFilter);
+            this.policy = policy;
+        }
+
+        @Override
+        protected String getFilterBudgetPolicy() {
+            return policy;
+        }
+
+    }
+
+}
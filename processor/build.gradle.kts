@@ -0,0 +1,4 @@
+plugins {
+    `java-library`
+//    id("java-conventions")
+}
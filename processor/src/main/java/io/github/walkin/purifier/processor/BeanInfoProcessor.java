@@ -0,0 +1,406 @@
+package io.github.walkin.purifier.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Annotation processor generating the <code>GeneratedBeanInfo</code> of the classes with properties annotated with
+ * <code>@PropertyView</code>, or an annotation annotated with it like <code>@BaseView</code> and <code>@FullView</code>,
+ * or with <code>@JsonUnwrapped</code>, so that the purifier doesn't introspect them at runtime.
+ * <p>
+ * Properties are found the way the purifier's reflective introspection finds them: the public getters of the class
+ * and its superclasses, named by <code>@JsonProperty</code> when present, with the annotations of the getter, the
+ * setter of the same type and the field of the same name.  The processor doesn't depend on the purifier, annotations
+ * are matched by name.
+ * <p>
+ * To use it, add this module to the annotation processor path of the project declaring the beans.
+ */
+@SupportedAnnotationTypes("*")
+public class BeanInfoProcessor extends AbstractProcessor {
+
+    private static final String PROPERTY_VIEW = "io.github.walkin.purifier.view.PropertyView";
+    private static final String JSON_PROPERTY = "com.fasterxml.jackson.annotation.JsonProperty";
+    private static final String JSON_UNWRAPPED = "com.fasterxml.jackson.annotation.JsonUnwrapped";
+
+    // same as GeneratedBeanInfo.CLASS_NAME_SUFFIX
+    private static final String CLASS_NAME_SUFFIX = "_PurifierBeanInfo";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            processElement(element);
+        }
+
+        // other processors may process the same annotations
+        return false;
+    }
+
+    private void processElement(Element element) {
+        if (!(element instanceof TypeElement)) {
+            return;
+        }
+
+        TypeElement type = (TypeElement) element;
+
+        if (isBeanClass(type)) {
+            processType(type);
+        }
+
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            if (!nested.getModifiers().contains(Modifier.PRIVATE)) {
+                processElement(nested);
+            }
+        }
+    }
+
+    // concrete classes the generated class can reference from the same package
+    private static boolean isBeanClass(TypeElement type) {
+        if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return false;
+        }
+
+        return !type.getModifiers().contains(Modifier.PRIVATE)
+                && (type.getNestingKind() == NestingKind.TOP_LEVEL || type.getNestingKind() == NestingKind.MEMBER);
+    }
+
+    private void processType(TypeElement type) {
+        Map<String, Set<String>> propertyViews = new LinkedHashMap<>();
+        Set<String> unwrapped = new LinkedHashSet<>();
+        boolean annotated = false;
+
+        for (ExecutableElement readMethod : getReadMethods(type)) {
+            String beanName = getBeanPropertyName(readMethod);
+            ExecutableElement writeMethod = findWriteMethod(type, beanName, readMethod.getReturnType());
+            VariableElement field = findField((TypeElement) readMethod.getEnclosingElement(), beanName);
+            List<Element> elements = new ArrayList<>();
+            elements.add(readMethod);
+
+            if (writeMethod != null) {
+                elements.add(writeMethod);
+            }
+
+            if (field != null) {
+                elements.add(field);
+            }
+
+            String propertyName = null;
+            Set<String> views = new LinkedHashSet<>();
+            boolean propertyUnwrapped = false;
+
+            for (Element element : elements) {
+                if (propertyName == null) {
+                    propertyName = findJsonPropertyName(element);
+                }
+
+                for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+                    addViews(views, annotation);
+                    propertyUnwrapped |= JSON_UNWRAPPED.equals(getName(annotation));
+                }
+            }
+
+            if (propertyName == null) {
+                propertyName = beanName;
+            }
+
+            annotated |= !views.isEmpty() || propertyUnwrapped;
+
+            if (propertyUnwrapped) {
+                unwrapped.add(propertyName);
+            }
+
+            Set<String> existing = propertyViews.get(propertyName);
+
+            if (existing == null) {
+                propertyViews.put(propertyName, views);
+            } else {
+                existing.addAll(views);
+            }
+        }
+
+        if (annotated) {
+            write(type, propertyViews, unwrapped);
+        }
+    }
+
+    // public getters, like java.beans.Introspector finds them, getClass() included
+    private List<ExecutableElement> getReadMethods(TypeElement type) {
+        Map<String, ExecutableElement> readMethods = new LinkedHashMap<>();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)
+                    || !method.getParameters().isEmpty()) {
+                continue;
+            }
+
+            String name = method.getSimpleName().toString();
+            TypeKind returnKind = method.getReturnType().getKind();
+            boolean getter = name.startsWith("get") && name.length() > 3 && returnKind != TypeKind.VOID;
+            boolean booleanGetter = name.startsWith("is") && name.length() > 2 && returnKind == TypeKind.BOOLEAN;
+
+            if (getter || booleanGetter) {
+                String beanName = getBeanPropertyName(method);
+
+                // isX() wins over getX() for booleans
+                if (booleanGetter || !readMethods.containsKey(beanName)) {
+                    readMethods.put(beanName, method);
+                }
+            }
+        }
+
+        return new ArrayList<>(readMethods.values());
+    }
+
+    private ExecutableElement findWriteMethod(TypeElement type, String beanName, TypeMirror propertyType) {
+        String name = "set" + Character.toUpperCase(beanName.charAt(0)) + beanName.substring(1);
+        TypeMirror erasedType = processingEnv.getTypeUtils().erasure(propertyType);
+
+        for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+            if (method.getSimpleName().contentEquals(name) && method.getModifiers().contains(Modifier.PUBLIC)
+                    && !method.getModifiers().contains(Modifier.STATIC) && method.getParameters().size() == 1) {
+                TypeMirror parameterType = processingEnv.getTypeUtils().erasure(method.getParameters().get(0).asType());
+
+                if (processingEnv.getTypeUtils().isSameType(parameterType, erasedType)) {
+                    return method;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    // the field of any visibility in the getter's class or its superclasses, like FieldUtils.getField(..., true)
+    private static VariableElement findField(TypeElement type, String name) {
+        TypeElement current = type;
+
+        while (current != null) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                if (field.getSimpleName().contentEquals(name)) {
+                    return field;
+                }
+            }
+
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED
+                    ? (TypeElement) ((DeclaredType) superclass).asElement()
+                    : null;
+        }
+
+        return null;
+    }
+
+    private static String getBeanPropertyName(ExecutableElement readMethod) {
+        String name = readMethod.getSimpleName().toString();
+        return decapitalize(name.substring(name.startsWith("is") ? 2 : 3));
+    }
+
+    // same as java.beans.Introspector.decapitalize(String)
+    private static String decapitalize(String name) {
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+            return name;
+        }
+
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private String findJsonPropertyName(Element element) {
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            String propertyName = getJsonPropertyName(annotation);
+
+            if (propertyName != null) {
+                return propertyName;
+            }
+
+            for (AnnotationMirror metaAnnotation : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+                propertyName = getJsonPropertyName(metaAnnotation);
+
+                if (propertyName != null) {
+                    return propertyName;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private String getJsonPropertyName(AnnotationMirror annotation) {
+        if (!JSON_PROPERTY.equals(getName(annotation))) {
+            return null;
+        }
+
+        Object value = getValue(annotation);
+        return value == null || value.toString().isEmpty() ? null : value.toString();
+    }
+
+    // views of a @PropertyView, or of an annotation annotated with it
+    private void addViews(Set<String> views, AnnotationMirror annotation) {
+        if (PROPERTY_VIEW.equals(getName(annotation))) {
+            addViewNames(views, annotation);
+        }
+
+        for (AnnotationMirror metaAnnotation : annotation.getAnnotationType().asElement().getAnnotationMirrors()) {
+            if (PROPERTY_VIEW.equals(getName(metaAnnotation))) {
+                addViewNames(views, metaAnnotation);
+            }
+        }
+    }
+
+    private void addViewNames(Set<String> views, AnnotationMirror annotation) {
+        Object value = getValue(annotation);
+
+        if (value instanceof List) {
+            for (Object view : (List<?>) value) {
+                views.add(((AnnotationValue) view).getValue().toString());
+            }
+        } else if (value != null) {
+            views.add(value.toString());
+        }
+    }
+
+    private Object getValue(AnnotationMirror annotation) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry
+                : processingEnv.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals("value")) {
+                return entry.getValue().getValue();
+            }
+        }
+
+        return null;
+    }
+
+    private static String getName(AnnotationMirror annotation) {
+        return ((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().toString();
+    }
+
+    private void write(TypeElement type, Map<String, Set<String>> propertyViews, Set<String> unwrapped) {
+        PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1))
+                + CLASS_NAME_SUFFIX;
+        String generatedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(generatedName, type);
+
+            try (Writer writer = file.openWriter()) {
+                writer.write(generateSource(type, packageName, simpleName, propertyViews, unwrapped));
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                                                     "Unable to write " + generatedName + ": " + e.getMessage(), type);
+        }
+    }
+
+    private static String generateSource(TypeElement type, String packageName, String simpleName,
+                                         Map<String, Set<String>> propertyViews, Set<String> unwrapped) {
+        StringBuilder source = new StringBuilder();
+
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+
+        source.append("import io.github.walkin.purifier.bean.GeneratedBeanInfo;\n\n")
+                .append("import java.util.Arrays;\n")
+                .append("import java.util.Collections;\n")
+                .append("import java.util.HashSet;\n")
+                .append("import java.util.LinkedHashMap;\n")
+                .append("import java.util.Map;\n")
+                .append("import java.util.Set;\n\n")
+                .append("/**\n")
+                .append(" * Bean info of {@link ").append(type.getQualifiedName()).append("}, generated by ")
+                .append(BeanInfoProcessor.class.getName()).append(".\n")
+                .append(" */\n")
+                .append("public final class ").append(simpleName).append(" implements GeneratedBeanInfo {\n\n")
+                .append("    private static final Map<String, Set<String>> PROPERTY_VIEWS;\n\n")
+                .append("    private static final Set<String> UNWRAPPED_PROPERTIES = setOf(")
+                .append(toLiterals(unwrapped)).append(");\n\n")
+                .append("    static {\n")
+                .append("        Map<String, Set<String>> propertyViews = new LinkedHashMap<>();\n");
+
+        for (Map.Entry<String, Set<String>> entry : propertyViews.entrySet()) {
+            source.append("        propertyViews.put(").append(toLiteral(entry.getKey())).append(", setOf(")
+                    .append(toLiterals(entry.getValue())).append("));\n");
+        }
+
+        source.append("        PROPERTY_VIEWS = Collections.unmodifiableMap(propertyViews);\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public Map<String, Set<String>> getPropertyViews() {\n")
+                .append("        return PROPERTY_VIEWS;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public Set<String> getUnwrappedProperties() {\n")
+                .append("        return UNWRAPPED_PROPERTIES;\n")
+                .append("    }\n\n")
+                .append("    private static Set<String> setOf(String... values) {\n")
+                .append("        return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(values)));\n")
+                .append("    }\n\n")
+                .append("}\n");
+
+        return source.toString();
+    }
+
+    private static String toLiterals(Set<String> values) {
+        StringBuilder literals = new StringBuilder();
+
+        for (String value : values) {
+            if (literals.length() > 0) {
+                literals.append(", ");
+            }
+
+            literals.append(toLiteral(value));
+        }
+
+        return literals.toString();
+    }
+
+    private static String toLiteral(String value) {
+        StringBuilder literal = new StringBuilder("\"");
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == '"' || c == '\\') {
+                literal.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7E) {
+                literal.append(String.format("\\u%04x", (int) c));
+            } else {
+                literal.append(c);
+            }
+        }
+
+        return literal.append('"').toString();
+    }
+
+}
@@ -1,6 +1,7 @@
 rootProject.name = "purifier"
 
 include("core")
+include("processor")
 include(
     "web:web",
     "web:web-javax",
@@ -29,6 +30,10 @@ dependencyResolutionManagement {
             library("jakarta.servlet-api", "jakarta.servlet:jakarta.servlet-api:6.0.0")
             library("javax.servlet-api", "javax.servlet:javax.servlet-api:4.0.1")
 
+            library("junit-bom", "org.junit:junit-bom:5.9.1")
+            library("junit-jupiter", "org.junit.jupiter", "junit-jupiter").withoutVersion()
+            library("junit-platform-launcher", "org.junit.platform", "junit-platform-launcher").withoutVersion()
+
             library(
                 "spring-boot-autoconfigure-processor",
                 "org.springframework.boot",